@@ -0,0 +1,168 @@
+package down4that.bench;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Load test for the HTTP API in EventServer. It keeps a fixed number of
+ * requests in flight at all times, each on its own connection, for a fixed
+ * time, then prints throughput, errors and latency percentiles. Nine requests
+ * in ten read a page of events and the rest cast votes.
+ *
+ * <pre>
+ * ApiLoadTest [connections [seconds [base URL]]]
+ * </pre>
+ *
+ * Without a base URL it starts an EventServer on a fresh store in a temporary
+ * directory, in this JVM, and stops it afterwards. Tens of thousands of
+ * connections need a matching open-file limit (ulimit -n) on both ends.
+ */
+public final class ApiLoadTest {
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private static final LocalDateTime START = LocalDateTime.of(2021, 1, 1, 9, 0);
+    private static final int SEED_EVENTS = 2000;
+
+    // Latencies by power of two microseconds.
+    private final AtomicLongArray histogram = new AtomicLongArray(40);
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final HttpClient client;
+    private final String base;
+    private final List<String> ids;
+    private volatile long deadline;
+
+    private ApiLoadTest(HttpClient client, String base, List<String> ids) {
+        this.client = client;
+        this.base = base;
+        this.ids = ids;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Closeable local = null;
+        Path directory = null;
+        String base;
+        if (args.length > 2) {
+            base = args[2];
+        } else {
+            directory = Files.createTempDirectory("api-load");
+            Closeable store = (Closeable) Class.forName("EventStore").getConstructor(Path.class, long.class)
+                    .newInstance(directory, 100000L);
+            Class<?> serverClass = Class.forName("EventServer");
+            Object server = serverClass.getConstructor(store.getClass(), InetSocketAddress.class)
+                    .newInstance(store, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            serverClass.getMethod("start").invoke(server);
+            base = "http://127.0.0.1:" + serverClass.getMethod("getPort").invoke(server) + "/events";
+            local = () -> {
+                ((Closeable) server).close();
+                store.close();
+            };
+        }
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30)).build();
+        ApiLoadTest test = new ApiLoadTest(client, base, seed(client, base));
+        System.out.println("Seeded " + test.ids.size() + " events; running " + connections + " connections for "
+                + seconds + "s against " + base);
+        long began = System.nanoTime();
+        test.deadline = began + seconds * 1_000_000_000L;
+        List<CompletableFuture<Void>> users = new ArrayList<CompletableFuture<Void>>(connections);
+        for (int i = 0; i < connections; i++) {
+            users.add(test.loop("load_" + i));
+        }
+        CompletableFuture.allOf(users.toArray(new CompletableFuture<?>[0])).join();
+        double elapsed = (System.nanoTime() - began) / 1e9;
+        test.report(elapsed);
+
+        if (local != null) {
+            local.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    // Adds events through the API and collects their IDs for voting on.
+    private static List<String> seed(HttpClient client, String base) throws Exception {
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < SEED_EVENTS; i++) {
+            String body = "{\"author\":\"seed\",\"name\":\"Load " + i + "\",\"location\":\"Room " + (i % 50)
+                    + "\",\"time\":\"" + START.plusMinutes(37L * i) + "\"}";
+            HttpResponse<String> created = client.send(post(base, body), HttpResponse.BodyHandlers.ofString());
+            Matcher m = ID.matcher(created.body());
+            if (m.find()) {
+                ids.add(m.group(1));
+            }
+        }
+        return ids;
+    }
+
+    // One simulated user: sends a request, and another as soon as it is answered.
+    private CompletableFuture<Void> loop(String user) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpRequest request;
+        if (random.nextInt(10) > 0 || ids.isEmpty()) {
+            LocalDateTime from = START.plusHours(random.nextInt(24 * 40));
+            request = HttpRequest.newBuilder(URI.create(base + "?from=" + from + "&limit=20")).build();
+        } else {
+            String id = ids.get(random.nextInt(ids.size()));
+            request = post(base + "/" + id + "/votes", "{\"user\":\"" + user + "\",\"up\":" + random.nextBoolean()
+                    + "}");
+        }
+        long sent = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).handle((response, error) -> {
+            if (error != null || response.statusCode() >= 400) {
+                failed.increment();
+            } else {
+                completed.increment();
+                long micros = Math.max(1, (System.nanoTime() - sent) / 1000);
+                histogram.incrementAndGet(Math.min(histogram.length() - 1, 63 - Long.numberOfLeadingZeros(micros)));
+            }
+            return null;
+        }).thenCompose(ignored -> loop(user));
+    }
+
+    private static HttpRequest post(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url)).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private void report(double elapsed) {
+        long done = completed.sum();
+        System.out.printf("%d requests in %.1fs: %.0f/s, %d failed%n", done, elapsed, done / elapsed, failed.sum());
+        long seen = 0;
+        double[] wanted = { 0.5, 0.9, 0.99, 0.999 };
+        int next = 0;
+        for (int bucket = 0; bucket < histogram.length() && next < wanted.length; bucket++) {
+            seen += histogram.get(bucket);
+            while (next < wanted.length && done > 0 && seen >= wanted[next] * done) {
+                System.out.printf("p%s under %.1f ms%n", Double.toString(wanted[next] * 100).replaceAll("\\.0$", ""),
+                        (2L << bucket) / 1000.0);
+                next++;
+            }
+        }
+    }
+}
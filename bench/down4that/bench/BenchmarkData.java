@@ -0,0 +1,55 @@
+package down4that.bench;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds repeatable test data for the benchmarks. The same seed always gives the
+ * same events and votes, so runs can be compared against a saved baseline.
+ */
+final class BenchmarkData {
+    private static final String[] NAMES = { "Study Group", "Party", "DJ Set", "Hike", "Movie Night", "Lunch" };
+    private static final String[] LOCATIONS = { "Library", "Apple Gate", "Stream", "Juan's House", "Quad" };
+    private static final LocalDateTime START = LocalDateTime.of(2021, 1, 1, 0, 0);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Makes events spread over a year, on quarter-hour boundaries.
+     *
+     * @param count How many events to make.
+     * @param seed  The random seed.
+     * @return The events, in no particular order.
+     */
+    static List<Object> events(int count, long seed) throws Throwable {
+        Random random = new Random(seed);
+        List<Object> events = new ArrayList<Object>(count);
+        for (int i = 0; i < count; i++) {
+            String name = NAMES[random.nextInt(NAMES.length)] + " #" + i;
+            String location = LOCATIONS[random.nextInt(LOCATIONS.length)];
+            LocalDateTime time = START.plusMinutes(15L * random.nextInt(365 * 96));
+            events.add((Object) Domain.NEW_EVENT.invokeExact("User_" + random.nextInt(10_000), name, location, time));
+        }
+        return events;
+    }
+
+    /**
+     * Makes votes from distinct users, roughly two thirds of them upvotes.
+     *
+     * @param count  How many votes to make.
+     * @param prefix The start of each voter's user ID.
+     * @param seed   The random seed.
+     * @return The votes.
+     */
+    static List<Object> votes(int count, String prefix, long seed) throws Throwable {
+        Random random = new Random(seed);
+        List<Object> votes = new ArrayList<Object>(count);
+        for (int i = 0; i < count; i++) {
+            votes.add((Object) Domain.NEW_VOTE.invokeExact(prefix + i, random.nextInt(3) != 0));
+        }
+        return votes;
+    }
+}
@@ -0,0 +1,27 @@
+package down4that.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmark suite with the GC profiler on, so every result also shows
+ * bytes allocated per operation. Pass a regular expression to run only the
+ * matching benchmarks, e.g. "EventList". Results are written to
+ * bench_output.txt so they can be diffed against an earlier run.
+ */
+public final class Benchmarks {
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "down4that\\.bench\\..*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .output("bench_output.txt")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,85 @@
+package down4that.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Handles onto the Down4That classes being measured. Those classes live in the
+ * unnamed package, which named packages cannot import, and JMH will not generate
+ * benchmarks for classes in the unnamed package. These handles are static final,
+ * so the JIT treats them as constants and inlines the calls, the same as direct
+ * calls would be.
+ */
+final class Domain {
+    static final MethodHandle NEW_EVENT;
+    static final MethodHandle NEW_VOTE;
+    static final MethodHandle NEW_EVENT_LIST;
+    static final MethodHandle ADD_EVENT;
+    static final MethodHandle ADD_EVENTS;
+    static final MethodHandle DELETE_EVENT;
+    static final MethodHandle CONTAINS;
+    static final MethodHandle GET_SIZE;
+    static final MethodHandle ADD_VOTE;
+    static final MethodHandle REMOVE_VOTE_BY_ID;
+    static final MethodHandle SWITCH_VOTE;
+    static final MethodHandle GET_TOTAL_VOTES;
+    static final MethodHandle GET_SCORE;
+    static final MethodHandle COMPARE_TO;
+    static final MethodHandle HASH_CODE;
+    static final MethodHandle GET_EVENT_DATE_TIME;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> event = Class.forName("Event");
+            Class<?> vote = Class.forName("Vote");
+            Class<?> eventList = Class.forName("EventList");
+
+            NEW_EVENT = lookup.findConstructor(event, MethodType.methodType(void.class, String.class, String.class,
+                    String.class, LocalDateTime.class)).asType(MethodType.methodType(Object.class, String.class,
+                            String.class, String.class, LocalDateTime.class));
+            NEW_VOTE = lookup.findConstructor(vote, MethodType.methodType(void.class, String.class, boolean.class))
+                    .asType(MethodType.methodType(Object.class, String.class, boolean.class));
+            NEW_EVENT_LIST = lookup.findConstructor(eventList, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+
+            ADD_EVENT = virtual(lookup, eventList, "addEvent", void.class, event);
+            // The events refused are dropped; the benchmarks add to open buckets only.
+            ADD_EVENTS = lookup.findVirtual(eventList, "addEvents", MethodType.methodType(List.class,
+                    Collection.class)).asType(MethodType.methodType(void.class, Object.class, Collection.class));
+            DELETE_EVENT = virtual(lookup, eventList, "deleteEvent", void.class, event);
+            CONTAINS = virtual(lookup, eventList, "contains", boolean.class, event);
+            GET_SIZE = virtual(lookup, eventList, "getSize", int.class);
+
+            ADD_VOTE = virtual(lookup, event, "addVote", void.class, vote);
+            REMOVE_VOTE_BY_ID = lookup.findVirtual(event, "removeVoteByID", MethodType.methodType(void.class,
+                    String.class)).asType(MethodType.methodType(void.class, Object.class, String.class));
+            SWITCH_VOTE = lookup.findVirtual(event, "switchVote", MethodType.methodType(void.class, String.class))
+                    .asType(MethodType.methodType(void.class, Object.class, String.class));
+            GET_TOTAL_VOTES = virtual(lookup, event, "getTotalVotes", int.class);
+            GET_SCORE = virtual(lookup, event, "getScore", int.class);
+            COMPARE_TO = virtual(lookup, event, "compareTo", int.class, event);
+            HASH_CODE = virtual(lookup, event, "hashCode", int.class);
+            GET_EVENT_DATE_TIME = lookup.findVirtual(event, "getEventDateTime", MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Domain() {
+    }
+
+    // Looks up an instance method and erases its receiver and argument to Object.
+    private static MethodHandle virtual(MethodHandles.Lookup lookup, Class<?> owner, String name, Class<?> result,
+            Class<?>... args) throws ReflectiveOperationException {
+        MethodHandle handle = lookup.findVirtual(owner, name, MethodType.methodType(result, args));
+        Class<?>[] erased = new Class<?>[args.length + 1];
+        java.util.Arrays.fill(erased, Object.class);
+        return handle.asType(MethodType.methodType(result, erased));
+    }
+}
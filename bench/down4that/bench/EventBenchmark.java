@@ -0,0 +1,85 @@
+package down4that.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the per-event hot paths: voting on events that already have many
+ * votes, and comparing, hashing and formatting events.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBenchmark {
+    @Param({ "100", "10000", "1000000" })
+    public int votes;
+
+    private Object event;
+    private Object other;
+    private Object[] extra;
+    private String[] extraIDs;
+    private int next;
+
+    @Setup
+    public void setUp() throws Throwable {
+        Object[] events = BenchmarkData.events(2, 42).toArray();
+        event = events[0];
+        other = events[1];
+        for (Object v : BenchmarkData.votes(votes, "User_", 42)) {
+            Domain.ADD_VOTE.invokeExact(event, v);
+        }
+        extra = BenchmarkData.votes(1024, "Extra_", 7).toArray();
+        extraIDs = new String[extra.length];
+        for (int i = 0; i < extra.length; i++) {
+            extraIDs[i] = "Extra_" + i;
+        }
+    }
+
+    /**
+     * Casts a vote and takes it back by user ID, so the vote count stays the same.
+     */
+    @Benchmark
+    public int addThenRemoveVote() throws Throwable {
+        int i = next++ & (extra.length - 1);
+        Domain.ADD_VOTE.invokeExact(event, extra[i]);
+        Domain.REMOVE_VOTE_BY_ID.invokeExact(event, extraIDs[i]);
+        return (int) Domain.GET_TOTAL_VOTES.invokeExact(event);
+    }
+
+    /**
+     * Reads the net score of an event with many votes.
+     */
+    @Benchmark
+    public int score() throws Throwable {
+        return (int) Domain.GET_SCORE.invokeExact(event);
+    }
+
+    @Benchmark
+    public int compareTo() throws Throwable {
+        return (int) Domain.COMPARE_TO.invokeExact(event, other);
+    }
+
+    @Benchmark
+    public int hashCodeOf() throws Throwable {
+        return (int) Domain.HASH_CODE.invokeExact(event);
+    }
+
+    @Benchmark
+    public String eventDateTime() throws Throwable {
+        return (String) Domain.GET_EVENT_DATE_TIME.invokeExact(event);
+    }
+}
@@ -0,0 +1,77 @@
+package down4that.bench;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks adding, finding and deleting events on EventLists of different
+ * sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventListBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    public int size;
+
+    private Object list;
+    private Object[] extra;
+    private List<Object> batch;
+    private int next;
+
+    @Setup
+    public void setUp() throws Throwable {
+        list = (Object) Domain.NEW_EVENT_LIST.invokeExact();
+        for (Object e : BenchmarkData.events(size, 42)) {
+            Domain.ADD_EVENT.invokeExact(list, e);
+        }
+        extra = BenchmarkData.events(1024, 7).toArray();
+        batch = BenchmarkData.events(size, 11);
+    }
+
+    /**
+     * Adds an event and deletes it again, so the list stays the same size.
+     */
+    @Benchmark
+    public int addThenDelete() throws Throwable {
+        Object e = extra[next++ & (extra.length - 1)];
+        Domain.ADD_EVENT.invokeExact(list, e);
+        Domain.DELETE_EVENT.invokeExact(list, e);
+        return (int) Domain.GET_SIZE.invokeExact(list);
+    }
+
+    /**
+     * Looks an event up by its key.
+     */
+    @Benchmark
+    public boolean contains() throws Throwable {
+        return (boolean) Domain.CONTAINS.invokeExact(list, extra[next++ & (extra.length - 1)]);
+    }
+
+    /**
+     * Fills a fresh list with the benchmark size through the batch path.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object bulkAdd() throws Throwable {
+        Object fresh = (Object) Domain.NEW_EVENT_LIST.invokeExact();
+        Domain.ADD_EVENTS.invokeExact(fresh, (Collection<?>) batch);
+        return fresh;
+    }
+}
@@ -0,0 +1,88 @@
+package down4that.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Benchmarks many threads voting on the same event at once, each as its own
+ * users, to show how long voters on a hot event wait for each other. Compare
+ * the time per operation with EventBenchmark's single-threaded one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class HotEventBenchmark {
+    @Param({ "100", "1000000" })
+    public int votes;
+
+    private Object event;
+
+    @Setup
+    public void setUp() throws Throwable {
+        event = BenchmarkData.events(1, 42).get(0);
+        for (Object v : BenchmarkData.votes(votes, "User_", 42)) {
+            Domain.ADD_VOTE.invokeExact(event, v);
+        }
+    }
+
+    /**
+     * One benchmark thread's own voters, so threads never vote as the same user.
+     */
+    @State(Scope.Thread)
+    public static class Voter {
+        private Object[] extra;
+        private String[] extraIDs;
+        private int next;
+
+        @Setup
+        public void setUp(HotEventBenchmark hot, ThreadParams thread) throws Throwable {
+            String prefix = "Hot" + thread.getThreadIndex() + "_";
+            extra = BenchmarkData.votes(1024, prefix, thread.getThreadIndex()).toArray();
+            extraIDs = new String[extra.length];
+            for (int i = 0; i < extra.length; i++) {
+                extraIDs[i] = prefix + i;
+                Domain.ADD_VOTE.invokeExact(hot.event, extra[i]);
+            }
+        }
+    }
+
+    /**
+     * Casts a vote and takes it back by user ID while the other threads do the
+     * same on the same event.
+     */
+    @Benchmark
+    public int addThenRemoveVote(Voter voter) throws Throwable {
+        int i = voter.next++ & (voter.extra.length - 1);
+        Domain.ADD_VOTE.invokeExact(event, voter.extra[i]);
+        Domain.REMOVE_VOTE_BY_ID.invokeExact(event, voter.extraIDs[i]);
+        return (int) Domain.GET_TOTAL_VOTES.invokeExact(event);
+    }
+
+    /**
+     * Flips one of the thread's existing votes while the other threads do the
+     * same on the same event.
+     */
+    @Benchmark
+    public int switchVote(Voter voter) throws Throwable {
+        int i = voter.next++ & (voter.extraIDs.length - 1);
+        Domain.SWITCH_VOTE.invokeExact(event, voter.extraIDs[i]);
+        return (int) Domain.GET_SCORE.invokeExact(event);
+    }
+}
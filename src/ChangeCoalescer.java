@@ -0,0 +1,154 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Collects changes to an EventList from any thread and hands them on in
+ * batches, at most once per frame.
+ *
+ * Changes to the same event are merged while they wait, so a burst of a thousand
+ * votes on one event becomes a single VOTES_CHANGED. The merging and batching
+ * happen on the calling threads and a shared timer thread; only the finished
+ * batch is handed to the delivery executor, which for the GUI is the event
+ * dispatch thread.
+ *
+ * A coalescer can also follow no list and be handed only the changes its owner
+ * picks out, as ScoreFeed does with votes on watched events.
+ */
+public class ChangeCoalescer implements EventListListener {
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ChangeCoalescer-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final EventList events;
+    private final long frameMillis;
+    private final Executor deliverOn;
+    private final Consumer<List<EventChange>> sink;
+    private final ConcurrentHashMap<Long, EventChange> pending;
+    private final AtomicBoolean scheduled;
+
+    /**
+     * Starts following an event list.
+     *
+     * @param events      The list to follow.
+     * @param frameMillis The shortest time between two batches.
+     * @param deliverOn   Where to run the sink, e.g. SwingUtilities::invokeLater.
+     * @param sink        Receives each batch of changes.
+     */
+    public ChangeCoalescer(EventList events, long frameMillis, Executor deliverOn,
+            Consumer<List<EventChange>> sink) {
+        this.events = events;
+        this.frameMillis = frameMillis;
+        this.deliverOn = deliverOn;
+        this.sink = sink;
+        this.pending = new ConcurrentHashMap<Long, EventChange>();
+        this.scheduled = new AtomicBoolean();
+        if (events != null) {
+            events.addListener(this);
+        }
+    }
+
+    /**
+     * Creates a coalescer that follows no list and only batches the changes
+     * passed to record.
+     *
+     * @param frameMillis The shortest time between two batches.
+     * @param deliverOn   Where to run the sink.
+     * @param sink        Receives each batch of changes.
+     */
+    ChangeCoalescer(long frameMillis, Executor deliverOn, Consumer<List<EventChange>> sink) {
+        this(null, frameMillis, deliverOn, sink);
+    }
+
+    /**
+     * Stops following the event list. Changes already waiting are dropped.
+     */
+    public void close() {
+        if (events != null) {
+            events.removeListener(this);
+        }
+        pending.clear();
+    }
+
+    @Override
+    public void eventAdded(Event added) {
+        record(new EventChange(EventChange.Kind.ADDED, added));
+    }
+
+    @Override
+    public void eventRemoved(Event removed) {
+        record(new EventChange(EventChange.Kind.REMOVED, removed));
+    }
+
+    @Override
+    public void eventMoved(Event moved) {
+        record(new EventChange(EventChange.Kind.MOVED, moved));
+    }
+
+    @Override
+    public void votesChanged(Event changed) {
+        record(new EventChange(EventChange.Kind.VOTES_CHANGED, changed));
+    }
+
+    @Override
+    public void recurringChanged(RecurringEvent series) {
+        record(new EventChange(EventChange.Kind.RECURRENCE_CHANGED, series.getTemplate()));
+    }
+
+    /**
+     * Merges a change into the next batch, and books a flush if none is due.
+     *
+     * @param change The change to pass on.
+     */
+    void record(EventChange change) {
+        pending.merge(change.getEvent().getEventID(), change, ChangeCoalescer::merge);
+        if (scheduled.compareAndSet(false, true)) {
+            TIMER.schedule(this::flush, frameMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Folds a newer change to an event into an older one that is still waiting.
+     * Returning null drops both, e.g. for an event added and removed in one frame.
+     */
+    private static EventChange merge(EventChange older, EventChange newer) {
+        EventChange.Kind before = older.getKind();
+        EventChange.Kind after = newer.getKind();
+        if (after == EventChange.Kind.VOTES_CHANGED) {
+            return older;
+        }
+        if (before == EventChange.Kind.ADDED) {
+            return after == EventChange.Kind.REMOVED ? null : older;
+        }
+        if (before == EventChange.Kind.REMOVED && after == EventChange.Kind.ADDED) {
+            return new EventChange(EventChange.Kind.MOVED, newer.getEvent());
+        }
+        return newer;
+    }
+
+    private void flush() {
+        // Cleared first, so a change that lands during the drain books another flush.
+        scheduled.set(false);
+        List<EventChange> batch = new ArrayList<EventChange>(pending.size());
+        Iterator<Map.Entry<Long, EventChange>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, EventChange> next = it.next();
+            if (pending.remove(next.getKey(), next.getValue())) {
+                batch.add(next.getValue());
+            }
+        }
+        if (!batch.isEmpty()) {
+            deliverOn.execute(() -> sink.accept(batch));
+        }
+    }
+}
@@ -0,0 +1,284 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the events of an EventList in interval trees, to find events that
+ * overlap in time: one tree for every event in the list, and one per user for
+ * the events that user has upvoted (is "down for").
+ *
+ * The trees are updated in O(log n) as events are added, removed or moved and
+ * as upvotes come and go. When a user upvotes an event that clashes with their
+ * other upvotes, registered ConflictListeners hear about it right away.
+ *
+ * Votes do not wait for the lock: each is handed to an UpdateCombiner and
+ * applied by whichever thread holds the lock. The clashes it finds are told to
+ * listeners outside the lock, by the voting thread or by the next thread to let
+ * go of the lock, so listeners can query the index.
+ */
+public class ConflictIndex implements EventListListener {
+    private final IntervalTree all;
+    private final HashMap<String, IntervalTree> upvotedByUser;
+    private final CopyOnWriteArrayList<ConflictListener> conflictListeners;
+    private final UpdateCombiner<UserVote> votes;
+    private final ConcurrentLinkedQueue<Conflict> unreported;
+
+    /**
+     * Creates an index that follows the given event list from now on, starting
+     * with the events already in it.
+     *
+     * @param events The event list to index.
+     */
+    public ConflictIndex(EventList events) {
+        all = new IntervalTree();
+        upvotedByUser = new HashMap<String, IntervalTree>();
+        conflictListeners = new CopyOnWriteArrayList<ConflictListener>();
+        votes = new UpdateCombiner<UserVote>(this::applyVote);
+        unreported = new ConcurrentLinkedQueue<Conflict>();
+        // Listening before walking, with the lock held, so no event added meanwhile is missed.
+        events.addListener(this);
+        votes.lock();
+        try {
+            for (Event e : events) {
+                add(e);
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Registers a listener to hear about users upvoting clashing events.
+     *
+     * @param listener The listener to add.
+     */
+    public void addConflictListener(ConflictListener listener) {
+        conflictListeners.add(listener);
+    }
+
+    /**
+     * Stops a listener from hearing about clashing upvotes.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeConflictListener(ConflictListener listener) {
+        conflictListeners.remove(listener);
+    }
+
+    /**
+     * Finds the events that take up any part of a span of time.
+     *
+     * @param from The start of the span (inclusive).
+     * @param to   The end of the span (exclusive).
+     * @return The overlapping events, by start time.
+     */
+    public List<Event> overlapping(LocalDateTime from, LocalDateTime to) {
+        votes.lock();
+        try {
+            return all.overlapping(from, to);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Finds the events a user has upvoted that overlap a given event, such as
+     * one they are about to vote on.
+     *
+     * @param userID The user to check.
+     * @param event  The event to check against.
+     * @return The user's other upvoted events that overlap it, by start time.
+     */
+    public List<Event> conflictsWith(String userID, Event event) {
+        votes.lock();
+        try {
+            IntervalTree upvoted = upvotedByUser.get(userID);
+            return upvoted == null ? new ArrayList<Event>() : upvoted.overlapping(event);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Finds every event a user has upvoted that overlaps another of their
+     * upvoted events.
+     *
+     * @param userID The user to check.
+     * @return The clashing events, by start time.
+     */
+    public List<Event> conflictsFor(String userID) {
+        List<Event> clashing = new ArrayList<Event>();
+        votes.lock();
+        try {
+            IntervalTree upvoted = upvotedByUser.get(userID);
+            if (upvoted == null) {
+                return clashing;
+            }
+            for (Event e : upvoted.events()) {
+                if (!upvoted.overlapping(e).isEmpty()) {
+                    clashing.add(e);
+                }
+            }
+            return clashing;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Re-reads an event's span. Edits made through the event's setters are
+     * picked up on their own, so this is only needed after changing an event
+     * some other way.
+     *
+     * @param event The event that changed.
+     */
+    public void update(Event event) {
+        votes.lock();
+        try {
+            if (all.contains(event)) {
+                reindex(event);
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void eventAdded(Event added) {
+        votes.lock();
+        try {
+            add(added);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void eventRemoved(Event removed) {
+        votes.lock();
+        try {
+            all.remove(removed);
+            for (Vote v : removed.getVotes()) {
+                unindex(v.getAuthorID(), removed);
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void eventMoved(Event moved) {
+        votes.lock();
+        try {
+            reindex(moved);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void voteChanged(Event changed, String userID) {
+        if (userID != null) {
+            votes.offer(new UserVote(changed, userID));
+            report();
+        }
+    }
+
+    private void unlock() {
+        votes.unlock();
+        report();
+    }
+
+    // Listeners run outside the lock so they can query the index.
+    private void report() {
+        for (Conflict c; (c = unreported.poll()) != null;) {
+            for (ConflictListener l : conflictListeners) {
+                l.conflictFound(c.userID, c.upvoted, c.conflicts);
+            }
+        }
+    }
+
+    // Called with the lock held.
+    private void applyVote(UserVote vote) {
+        if (!all.contains(vote.event)) {
+            return;
+        }
+        if (vote.event.hasUpvoted(vote.userID)) {
+            IntervalTree upvoted = upvoted(vote.userID, true);
+            upvoted.add(vote.event);
+            List<Event> conflicts = upvoted.overlapping(vote.event);
+            if (!conflicts.isEmpty()) {
+                unreported.add(new Conflict(vote.userID, vote.event, conflicts));
+            }
+        } else {
+            unindex(vote.userID, vote.event);
+        }
+    }
+
+    private void add(Event added) {
+        all.add(added);
+        // The votes already say which way they went, so nothing is looked up again.
+        for (Vote v : added.getVotes()) {
+            if (v.getValue()) {
+                upvoted(v.getAuthorID(), true).add(added);
+            }
+        }
+    }
+
+    private void reindex(Event event) {
+        all.add(event);
+        for (Vote v : event.getVotes()) {
+            IntervalTree upvoted = upvoted(v.getAuthorID(), false);
+            if (upvoted != null && upvoted.contains(event)) {
+                upvoted.add(event);
+            }
+        }
+    }
+
+    private void unindex(String userID, Event event) {
+        IntervalTree upvoted = upvoted(userID, false);
+        if (upvoted != null && upvoted.remove(event) && upvoted.size() == 0) {
+            upvotedByUser.remove(userID);
+        }
+    }
+
+    private IntervalTree upvoted(String userID, boolean create) {
+        IntervalTree upvoted = upvotedByUser.get(userID);
+        if (upvoted == null && create) {
+            upvoted = new IntervalTree();
+            upvotedByUser.put(userID, upvoted);
+        }
+        return upvoted;
+    }
+
+    /**
+     * A user's vote on an event, waiting to be applied.
+     */
+    private static final class UserVote {
+        final Event event;
+        final String userID;
+
+        UserVote(Event event, String userID) {
+            this.event = event;
+            this.userID = userID;
+        }
+    }
+
+    /**
+     * A clash found by a vote, waiting to be told to the listeners.
+     */
+    private static final class Conflict {
+        final String userID;
+        final Event upvoted;
+        final List<Event> conflicts;
+
+        Conflict(String userID, Event upvoted, List<Event> conflicts) {
+            this.userID = userID;
+            this.upvoted = upvoted;
+            this.conflicts = conflicts;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+import java.util.List;
+
+/**
+ * Hears about a user upvoting an event that clashes with other events they have
+ * upvoted, so they can be warned.
+ */
+@FunctionalInterface
+public interface ConflictListener {
+    /**
+     * Called after a user upvotes an event that overlaps events they had already
+     * upvoted.
+     * 
+     * @param userID    The user who voted.
+     * @param upvoted   The event they upvoted.
+     * @param conflicts Their other upvoted events that overlap it, by start time.
+     */
+    void conflictFound(String userID, Event upvoted, List<Event> conflicts);
+}
@@ -1,24 +1,76 @@
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
-import java.util.ArrayList;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * The building block of Down4That, uses Vote and LocalDateTime classes.
  * 
+ * Votes are kept compactly, as OrdinalBitmaps of the voters' ordinals in
+ * StringDictionary.USER_IDS, rather than as Vote objects; getVotes() makes Vote
+ * objects on the fly. The author and location are interned Strings, so each
+ * distinct ID or place is in memory once, and is let go with the last event
+ * that uses it; either may be null, as may a voter's ID.
+ * 
+ * Voting is safe to use from many threads at once. The voters are split into
+ * stripes by the low bits of their ordinals, each with its own bitmap and its
+ * own short lock, so users voting on a hot event at the same time rarely wait
+ * for each other; the counts are adders that are bumped and read without any
+ * lock.
+ * 
+ * The date-time, name and location are held only in the event's EventKey,
+ * which a setter replaces whole, so a reader on another thread always sees
+ * all three from the same edit. Setting the date-time, name, location or
+ * duration tells the event's listeners, so an EventList holding the event
+ * moves it right away, or refuses the edit if that would put the event in a
+ * compressed bucket.
+ * 
+ * The events read back from a compressed bucket are read-only copies that
+ * keep the ID of the event they copy; voting on them or setting their fields
+ * throws IllegalStateException, since the change would be lost.
+ * 
  * @author DCruz
  */
 public class Event implements Comparable<Event> {
-    private String authorID;
-    private String eventName;
-    private String eventLocation;
-    private LocalDateTime loggedTime;
-    private ArrayList<Vote> eventVotes;
+    private final String authorID;
+    private volatile Duration duration;
+    // Each made on the first vote by a voter whose ordinal falls in it.
+    private final AtomicReferenceArray<VoteStripe> voteStripes;
+    private final LongAdder upvotes;
+    private final LongAdder downvotes;
+    // The date-time, name and location; replaced, never changed, under the event's monitor.
+    private volatile EventKey key;
+    private final long eventID;
+    private volatile boolean readOnly;
+    private CopyOnWriteArrayList<VoteListener> voteListeners;
+
+    private static final AtomicLong nextEventID = new AtomicLong();
+    // A voter's stripe is the low STRIPE_BITS bits of their ordinal, and the rest is their slot in it.
+    private static final int STRIPE_BITS = 3;
+    private static final int STRIPE_MASK = (1 << STRIPE_BITS) - 1;
+
+    /** How long an event lasts if no duration is given. */
+    public static final Duration DEFAULT_DURATION = Duration.ofHours(1);
 
     // Useful formatter for taking in a date/time. Can be used outside of this
     // class.
     protected static DateTimeFormatter eventFormatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
 
+    // Localized formatters are costly to build, so one is kept per locale.
+    private static final ConcurrentHashMap<Locale, DateTimeFormatter> displayFormatters =
+            new ConcurrentHashMap<Locale, DateTimeFormatter>();
+
     /**
      * Creates an event object with LocalDateTime implementation.
      * 
@@ -28,11 +80,73 @@ public class Event implements Comparable<Event> {
      * @param inputDateTime input string for event date and time.
      */
     public Event(String inputID, String inputString, String inputLocation, LocalDateTime inputDateTime) {
-        authorID = inputID;
-        eventName = inputString;
-        eventLocation = inputLocation;
-        loggedTime = inputDateTime;
-        eventVotes = new ArrayList<Vote>();
+        this(inputID, inputString, inputLocation, inputDateTime, DEFAULT_DURATION);
+    }
+
+    /**
+     * Creates an event object that lasts for a given time.
+     * 
+     * @param inputID       input string for associated user ID.
+     * @param inputString   input string for event name.
+     * @param inputLocation input string for event location.
+     * @param inputDateTime input string for event date and time.
+     * @param inputDuration how long the event lasts, more than zero.
+     */
+    public Event(String inputID, String inputString, String inputLocation, LocalDateTime inputDateTime,
+            Duration inputDuration) {
+        this(nextEventID.incrementAndGet(), inputID, inputString, inputLocation, inputDateTime, inputDuration);
+    }
+
+    /**
+     * Creates an event with a given ID, as the copy of an event read back from a
+     * compressed image. The copy can take votes until it is made read-only.
+     * 
+     * @param eventID       the ID of the event copied.
+     * @param inputID       input string for associated user ID.
+     * @param inputString   input string for event name.
+     * @param inputLocation input string for event location.
+     * @param inputDateTime input string for event date and time.
+     * @param inputDuration how long the event lasts, more than zero.
+     */
+    Event(long eventID, String inputID, String inputString, String inputLocation, LocalDateTime inputDateTime,
+            Duration inputDuration) {
+        checkDuration(inputDuration);
+        duration = inputDuration;
+        authorID = intern(inputID);
+        key = new EventKey(inputDateTime, inputString, intern(inputLocation));
+        voteStripes = new AtomicReferenceArray<VoteStripe>(1 << STRIPE_BITS);
+        upvotes = new LongAdder();
+        downvotes = new LongAdder();
+        this.eventID = eventID;
+        voteListeners = new CopyOnWriteArrayList<VoteListener>();
+    }
+
+    /**
+     * Fetches a number that identifies this event object while the program runs.
+     * Unlike the event's key it never changes and is never shared by two events.
+     * 
+     * @return The ID of this event object.
+     */
+    public long getEventID() {
+        return eventID;
+    }
+
+    /**
+     * Checks whether this is a read-only copy, such as one read back from a
+     * compressed bucket.
+     * 
+     * @return Whether votes and setters throw IllegalStateException.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Makes this event refuse any further votes or edits, once a copy has been
+     * filled in.
+     */
+    void makeReadOnly() {
+        readOnly = true;
     }
 
     /**
@@ -41,7 +155,7 @@ public class Event implements Comparable<Event> {
      * @return the User ID belonging to the creator of the event.
      */
     public String getAuthorID() {
-        return this.authorID;
+        return authorID;
     }
 
     /**
@@ -50,16 +164,20 @@ public class Event implements Comparable<Event> {
      * @return A string representing the event name.
      */
     public String getName() {
-        return this.eventName;
+        return key.getName();
     }
 
     /**
      * Sets the event name to a new value.
      * 
      * @param newName The new name for the event.
+     * @throws IllegalStateException If this is a read-only copy, or the event
+     *                               is in an EventList and this would move it
+     *                               into a compressed bucket; the event is then
+     *                               left as it was.
      */
-    public void setName(String newName) {
-        this.eventName = newName;
+    public synchronized void setName(String newName) {
+        edit(new EventKey(key.getTime(), newName, key.getLocation()), duration);
     }
 
     /**
@@ -68,16 +186,20 @@ public class Event implements Comparable<Event> {
      * @return A string representing the event location.
      */
     public String getLocation() {
-        return this.eventLocation;
+        return key.getLocation();
     }
 
     /**
      * Sets the event location to a new value.
      * 
      * @param newLocation The new location for the event
+     * @throws IllegalStateException If this is a read-only copy, or the event
+     *                               is in an EventList and this would move it
+     *                               into a compressed bucket; the event is then
+     *                               left as it was.
      */
-    public void setLocation(String newLocation) {
-        this.eventLocation = newLocation;
+    public synchronized void setLocation(String newLocation) {
+        edit(new EventKey(key.getTime(), key.getName(), newLocation), duration);
     }
 
     /**
@@ -87,10 +209,20 @@ public class Event implements Comparable<Event> {
      * @return The date and time of the event.
      */
     public String getEventDateTime() {
-        return this.loggedTime.format(DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM, FormatStyle.MEDIUM));
+        return key.getTime().format(displayFormatter(Locale.getDefault(Locale.Category.FORMAT)));
+    }
+
+    /**
+     * Fetches the formatter used to show event times to people in a locale.
+     * 
+     * @param locale The locale to format for.
+     * @return The shared formatter for that locale.
+     */
+    static DateTimeFormatter displayFormatter(Locale locale) {
         // The default detail level for displaying the event time is medium, but this
         // does not have to be the case, it be adjusted as desired.
-
+        return displayFormatters.computeIfAbsent(locale,
+                l -> DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM, FormatStyle.MEDIUM).withLocale(l));
     }
 
     /**
@@ -98,45 +230,269 @@ public class Event implements Comparable<Event> {
      * methods that also alter the date specifically, and the time specifically?
      * 
      * @param newDateTime The new Date-Time for the event.
+     * @throws IllegalStateException If this is a read-only copy, or the event
+     *                               is in an EventList and this would move it
+     *                               into a compressed bucket; the event is then
+     *                               left as it was.
+     */
+    public synchronized void setEventDateTime(LocalDateTime newDateTime) {
+        edit(new EventKey(newDateTime, key.getName(), key.getLocation()), duration);
+    }
+
+    /**
+     * Fetches how long the event lasts.
+     * 
+     * @return The duration of the event.
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Sets how long the event lasts.
+     * 
+     * @param newDuration The new duration, more than zero.
+     * @throws IllegalStateException If this is a read-only copy.
+     */
+    public synchronized void setDuration(Duration newDuration) {
+        edit(key, newDuration);
+    }
+
+    /**
+     * Sets the event's date-time, name, location and duration at once, telling
+     * its listeners once. Edits are made one at a time under the event's
+     * monitor, listeners included, so a listener that refuses an edit by
+     * throwing IllegalStateException can have it undone before the next one.
+     * 
+     * @param newKey      The new date-time, name and location.
+     * @param newDuration The new duration, more than zero.
+     * @throws IllegalStateException If this is a read-only copy, or the event
+     *                               is in an EventList and this would move it
+     *                               into a compressed bucket; the event is then
+     *                               left as it was.
+     */
+    synchronized void edit(EventKey newKey, Duration newDuration) {
+        checkWritable();
+        checkDuration(newDuration);
+        EventKey oldKey = key;
+        Duration oldDuration = duration;
+        String location = intern(newKey.getLocation());
+        key = location == newKey.getLocation() ? newKey : new EventKey(newKey.getTime(), newKey.getName(), location);
+        duration = newDuration;
+        VoteListener[] told = voteListeners.toArray(new VoteListener[0]);
+        for (int i = 0; i < told.length; i++) {
+            try {
+                told[i].eventEdited(this, oldKey);
+            } catch (IllegalStateException e) {
+                EventKey refusedKey = key;
+                key = oldKey;
+                duration = oldDuration;
+                // Moves the event back wherever the listeners before this one had already moved it.
+                for (int j = 0; j < i; j++) {
+                    told[j].eventEdited(this, refusedKey);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Fetches the time the event ends, its date-time plus its duration.
+     * 
+     * @return The end of the event.
+     */
+    public LocalDateTime getEndTime() {
+        return key.getTime().plus(duration);
+    }
+
+    // The JVM's string table lets go of a string once nothing else holds it.
+    private static String intern(String s) {
+        return s == null ? null : s.intern();
+    }
+
+    private static void checkDuration(Duration d) {
+        if (d.isNegative() || d.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive: " + d);
+        }
+    }
+
+    /**
+     * Fetches the immutable key for the event's current date-time, name and
+     * location. A new key is made whenever one of those fields is set.
+     * 
+     * @return The key identifying this event.
      */
-    public void setEventDateTime(LocalDateTime newDateTime) {
-        loggedTime = newDateTime;
+    public EventKey getKey() {
+        return key;
     }
 
     /**
-     * Adds a vote to the arraylist associated with the event.
+     * Adds a vote to the votes associated with the event. Each user only gets one
+     * vote, so a second vote from the same user replaces their first one.
      * 
      * @param toBeAdded The vote object that is meant to be added.
+     * @throws IllegalStateException If this is a read-only copy.
      */
     public void addVote(Vote toBeAdded) {
-        eventVotes.add(toBeAdded);
+        checkWritable();
+        int voter = StringDictionary.USER_IDS.ordinal(toBeAdded.getAuthorID());
+        boolean up = toBeAdded.getValue();
+        VoteStripe stripe = stripe(voter, true);
+        int slot = voter >>> STRIPE_BITS;
+        synchronized (stripe) {
+            if (stripe.votes.remove(VoteStripe.entry(slot, !up))) {
+                (up ? downvotes : upvotes).decrement();
+            }
+            if (stripe.votes.add(VoteStripe.entry(slot, up))) {
+                (up ? upvotes : downvotes).increment();
+            }
+        }
+        fireVotesChanged(toBeAdded.getAuthorID());
     }
 
     /**
-     * Removes a vote object from the arraylist of votes based on the associated
-     * UserID.
+     * Switches the vote a user has cast on this event to be the opposite.
+     * 
+     * @param inputID The user ID of the vote to switch.
+     * @throws IllegalStateException If this is a read-only copy.
+     */
+    public void switchVote(String inputID) {
+        checkWritable();
+        int voter = StringDictionary.USER_IDS.find(inputID);
+        VoteStripe stripe = voter < 0 ? null : stripe(voter, false);
+        if (stripe == null) {
+            return;
+        }
+        int slot = voter >>> STRIPE_BITS;
+        synchronized (stripe) {
+            if (stripe.votes.remove(VoteStripe.entry(slot, true))) {
+                upvotes.decrement();
+                stripe.votes.add(VoteStripe.entry(slot, false));
+                downvotes.increment();
+            } else if (stripe.votes.remove(VoteStripe.entry(slot, false))) {
+                downvotes.decrement();
+                stripe.votes.add(VoteStripe.entry(slot, true));
+                upvotes.increment();
+            } else {
+                return;
+            }
+        }
+        fireVotesChanged(inputID);
+    }
+
+    /**
+     * Removes a vote object from the votes based on the associated UserID.
      * 
      * @param inputID The user ID of reference for which to remove the vote.
+     * @throws IllegalStateException If this is a read-only copy.
      */
     public void removeVoteByID(String inputID) {
-        int index = 0;
-        for (Vote v : eventVotes) {
-            if (v.getAuthorID().equals(inputID)) {
-                eventVotes.remove(index);
-                break;
-            }
-            index++;
+        checkWritable();
+        int voter = StringDictionary.USER_IDS.find(inputID);
+        if (voter >= 0 && unvote(voter)) {
+            fireVotesChanged(inputID);
         }
     }
 
     /**
-     * Removes a certain vote by its index in the arraylist.
+     * Removes a certain vote by its index, counting votes in the order the event
+     * currently iterates them. That order is not the order they were cast in.
+     * If other votes change at the same time, the index counts the votes as
+     * they were when it was looked up.
      * 
      * @param indexToRemove The index that belongs to the vote that is supposed to
      *                      be removed.
+     * @throws IllegalStateException If this is a read-only copy.
      */
     public void removeVoteByIndex(int indexToRemove) {
-        eventVotes.remove(indexToRemove);
+        checkWritable();
+        int[][] voters = voters();
+        int ups = voters[0].length;
+        int total = ups + voters[1].length;
+        if (indexToRemove < 0 || indexToRemove >= total) {
+            throw new IndexOutOfBoundsException("Index: " + indexToRemove + ", Size: " + total);
+        }
+        int voter = indexToRemove < ups ? voters[0][indexToRemove] : voters[1][indexToRemove - ups];
+        if (unvote(voter)) {
+            fireVotesChanged(StringDictionary.USER_IDS.get(voter));
+        }
+    }
+
+    /**
+     * Checks whether a user has voted on this event.
+     * 
+     * @param inputID The user ID to look up.
+     * @return Whether that user has a vote on this event.
+     */
+    public boolean hasVoted(String inputID) {
+        int voter = StringDictionary.USER_IDS.find(inputID);
+        VoteStripe stripe = voter < 0 ? null : stripe(voter, false);
+        if (stripe == null) {
+            return false;
+        }
+        int slot = voter >>> STRIPE_BITS;
+        synchronized (stripe) {
+            return stripe.votes.contains(VoteStripe.entry(slot, true))
+                    || stripe.votes.contains(VoteStripe.entry(slot, false));
+        }
+    }
+
+    /**
+     * Checks whether a user has upvoted this event.
+     * 
+     * @param inputID The user ID to look up.
+     * @return Whether that user has an upvote on this event.
+     */
+    public boolean hasUpvoted(String inputID) {
+        int voter = StringDictionary.USER_IDS.find(inputID);
+        VoteStripe stripe = voter < 0 ? null : stripe(voter, false);
+        if (stripe == null) {
+            return false;
+        }
+        synchronized (stripe) {
+            return stripe.votes.contains(VoteStripe.entry(voter >>> STRIPE_BITS, true));
+        }
+    }
+
+    /**
+     * Fetches a read-only view of the votes on this event, upvotes first. The
+     * Vote objects are made as the view is walked, from a copy of the voters
+     * taken when the walk starts, so switching one does not change the event.
+     * 
+     * @return The votes cast on this event.
+     */
+    public Collection<Vote> getVotes() {
+        return new AbstractCollection<Vote>() {
+            @Override
+            public int size() {
+                return getTotalVotes();
+            }
+
+            @Override
+            public Iterator<Vote> iterator() {
+                int[][] voters = voters();
+                final int[] up = voters[0];
+                final int[] down = voters[1];
+                return new Iterator<Vote>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < up.length + down.length;
+                    }
+
+                    @Override
+                    public Vote next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return i < up.length ? new Vote(StringDictionary.USER_IDS.get(up[i]), true)
+                                : new Vote(StringDictionary.USER_IDS.get(down[i - up.length]), false);
+                    }
+                };
+            }
+        };
     }
 
     /**
@@ -145,26 +501,163 @@ public class Event implements Comparable<Event> {
      * @return The total number of votes
      */
     public int getTotalVotes() {
-        return eventVotes.size();
+        return (int) (upvotes.sum() + downvotes.sum());
+    }
+
+    /**
+     * Gets the number of upvotes on the event.
+     * 
+     * @return The number of upvotes
+     */
+    public int getUpvotes() {
+        return (int) upvotes.sum();
+    }
+
+    /**
+     * Gets the number of downvotes on the event.
+     * 
+     * @return The number of downvotes
+     */
+    public int getDownvotes() {
+        return (int) downvotes.sum();
+    }
+
+    /**
+     * Gets the net score of the event, upvotes minus downvotes. While votes are
+     * still coming in this is a close reading rather than an exact snapshot.
+     * 
+     * @return The net vote score
+     */
+    public int getScore() {
+        return (int) (upvotes.sum() - downvotes.sum());
+    }
+
+    /**
+     * Works out roughly how much heap this event's votes take.
+     * 
+     * @return The estimated size in bytes.
+     */
+    long estimateVoteBytes() {
+        // The stripe array and the two adders, then each stripe made so far.
+        long bytes = 16 + 16 + 4L * voteStripes.length() + 2 * 24;
+        for (int i = 0; i < voteStripes.length(); i++) {
+            VoteStripe stripe = voteStripes.get(i);
+            if (stripe != null) {
+                synchronized (stripe) {
+                    bytes += 16 + stripe.votes.estimateBytes();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Registers a listener to hear about every change to this event's votes.
+     * 
+     * @param listener The listener to add.
+     */
+    public void addVoteListener(VoteListener listener) {
+        voteListeners.add(listener);
+    }
+
+    /**
+     * Stops a listener from hearing about this event's votes.
+     * 
+     * @param listener The listener to remove.
+     */
+    public void removeVoteListener(VoteListener listener) {
+        voteListeners.remove(listener);
+    }
+
+    // Called after the stripe lock is released, so listeners never run under it.
+    private void fireVotesChanged(String voterID) {
+        for (VoteListener l : voteListeners) {
+            l.voteChanged(this, voterID);
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("Event " + eventID + " is a read-only copy from a compressed bucket");
+        }
+    }
+
+    private boolean unvote(int voter) {
+        VoteStripe stripe = stripe(voter, false);
+        if (stripe == null) {
+            return false;
+        }
+        int slot = voter >>> STRIPE_BITS;
+        synchronized (stripe) {
+            if (stripe.votes.remove(VoteStripe.entry(slot, true))) {
+                upvotes.decrement();
+                return true;
+            }
+            if (stripe.votes.remove(VoteStripe.entry(slot, false))) {
+                downvotes.decrement();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private VoteStripe stripe(int voter, boolean create) {
+        int i = voter & STRIPE_MASK;
+        VoteStripe stripe = voteStripes.get(i);
+        if (stripe == null && create) {
+            voteStripes.compareAndSet(i, null, new VoteStripe());
+            stripe = voteStripes.get(i);
+        }
+        return stripe;
+    }
+
+    // The upvoters' and downvoters' ordinals, each sorted; every stripe is copied under its own lock.
+    private int[][] voters() {
+        int[][] entries = new int[voteStripes.length()][];
+        int ups = 0;
+        int total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            VoteStripe stripe = voteStripes.get(i);
+            if (stripe != null) {
+                synchronized (stripe) {
+                    entries[i] = stripe.votes.toArray();
+                }
+                total += entries[i].length;
+                for (int entry : entries[i]) {
+                    ups += entry & 1;
+                }
+            }
+        }
+        int[] up = new int[ups];
+        int[] down = new int[total - ups];
+        int u = 0;
+        int d = 0;
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] != null) {
+                for (int entry : entries[i]) {
+                    int voter = (entry >>> 1) << STRIPE_BITS | i;
+                    if ((entry & 1) != 0) {
+                        up[u++] = voter;
+                    } else {
+                        down[d++] = voter;
+                    }
+                }
+            }
+        }
+        Arrays.sort(up);
+        Arrays.sort(down);
+        return new int[][] { up, down };
     }
 
     /**
      * Compares an event to another event. Compares by date-time first, then name,
-     * then location.
+     * then location, putting a missing name or location first.
      * 
      * @return The result of the comparison.
      */
     @Override
     public int compareTo(Event other) {
-        if (this.loggedTime.compareTo(other.loggedTime) == 0) {
-            if (this.getName().compareTo(other.getName()) == 0) {
-                return this.getLocation().compareTo(other.getLocation());
-            } else {
-                return this.getName().compareTo(other.getName());
-            }
-        } else {
-            return this.loggedTime.compareTo(other.loggedTime);
-        }
+        return this.getKey().compareTo(other.getKey());
     }
 
     /**
@@ -196,13 +689,27 @@ public class Event implements Comparable<Event> {
     }
 
     /**
-     * Returns a hashcode unique to an Event object.
+     * Returns a hashcode unique to an Event object. Built from the same fields as
+     * equals, and cached in the event's key.
      * 
      * @return the hashcode of the current Event object.
      */
     @Override
     public int hashCode() {
-        return this.getAuthorID().hashCode() + this.getName().hashCode() + this.getLocation().hashCode()
-                + this.getEventDateTime().hashCode();
+        return this.getKey().hashCode();
+    }
+
+    /**
+     * The votes of the voters whose ordinals end in the same low bits, and the
+     * lock that guards them. Upvotes and downvotes share one bitmap, so a
+     * stripe costs one set however its votes are split.
+     */
+    private static final class VoteStripe {
+        final OrdinalBitmap votes = new OrdinalBitmap();
+
+        // A voter's slot in the stripe, and which way they voted, as one bitmap value.
+        static int entry(int slot, boolean up) {
+            return slot << 1 | (up ? 1 : 0);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,553 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The events of an EventList that start inside one span of time (a week or a
+ * month, say), with their own ordered index, key index and lock.
+ *
+ * The ordered index is a PersistentSortedMap from key to a slot of events, and
+ * every change makes a new immutable View of the bucket that shares all but
+ * the changed path with the one before. Writers take the bucket's lock and hand
+ * the new view to the list's Publisher; readers never lock, and walk whichever
+ * view they picked up for as long as they like. Slots are arrays that are
+ * copied when they change, never changed in place, and the key index is a
+ * concurrent map, so lookups do not lock either.
+ *
+ * A bucket starts out open. Once sealed, events can no longer be added to it
+ * or deleted from it. Once compressed, its events are kept only as a deflated
+ * SnapshotCodec image and are decoded again, as read-only copies, when the
+ * bucket is read. A dropped bucket is empty and refuses everything, so an
+ * EventList that picked it up just before it was dropped knows to make a new
+ * one.
+ *
+ * The bucket also stands in as the vote listener of its events, so it can stop
+ * passing their votes on once it is compressed or dropped without touching the
+ * events one by one.
+ */
+final class EventBucket implements VoteListener {
+    private static final Event[] NO_EVENTS = new Event[0];
+
+    /**
+     * What can still be done to a bucket.
+     */
+    enum State {
+        OPEN, SEALED, COMPRESSED, DROPPED
+    }
+
+    /**
+     * How a call to moveTo turned out.
+     */
+    enum Move {
+        /** The event is in its new place. */
+        MOVED,
+        /** The event was not in this bucket under its old key. */
+        MISSING,
+        /** The target bucket was dropped; nothing changed. */
+        RETRY
+    }
+
+    /**
+     * Makes new views of buckets visible to readers. It is called with the
+     * locks of the changed buckets held, and must make all of them visible at
+     * once.
+     */
+    interface Publisher {
+        void publish(EventBucket... changed);
+    }
+
+    /**
+     * What a bucket held at one moment. Never changed once made.
+     */
+    static final class View {
+        final EventBucket bucket;
+        final State state;
+        final int size;
+        // Null once the bucket is compressed.
+        private final PersistentSortedMap<EventKey, Event[]> slots;
+
+        View(EventBucket bucket, State state, int size, PersistentSortedMap<EventKey, Event[]> slots) {
+            this.bucket = bucket;
+            this.state = state;
+            this.size = size;
+            this.slots = slots;
+        }
+
+        /**
+         * Fetches the ordered index, or that of a decoded copy if the bucket is
+         * compressed.
+         *
+         * @return The slots of the bucket, by key.
+         */
+        PersistentSortedMap<EventKey, Event[]> slots() {
+            return slots != null ? slots : bucket.unpack();
+        }
+
+        /**
+         * Collects the events inside a window that pass a filter.
+         *
+         * @param from   The lowest key wanted (inclusive).
+         * @param to     The highest key wanted (exclusive).
+         * @param filter Which events to keep.
+         * @return The matching events, in order.
+         */
+        List<Event> find(EventKey from, EventKey to, Predicate<? super Event> filter) {
+            List<Event> found = new ArrayList<Event>();
+            for (Iterator<Event[]> it = slots().values(from, to); it.hasNext();) {
+                for (Event e : it.next()) {
+                    if (filter.test(e)) {
+                        found.add(e);
+                    }
+                }
+            }
+            return found;
+        }
+    }
+
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final VoteListener votesTo;
+    private final Publisher publisher;
+    private final ReentrantLock lock;
+    private final ConcurrentHashMap<EventKey, Event[]> slotsByKey;
+    private volatile View view;
+    private byte[] archive;
+    private volatile SoftReference<PersistentSortedMap<EventKey, Event[]>> unpacked;
+
+    /**
+     * Creates an empty, open bucket.
+     *
+     * @param start     The earliest start time of its events (inclusive).
+     * @param end       The latest start time of its events (exclusive).
+     * @param votesTo   Where to pass on vote changes to its events.
+     * @param publisher Where to hand each new view of the bucket.
+     */
+    EventBucket(LocalDateTime start, LocalDateTime end, VoteListener votesTo, Publisher publisher) {
+        this.start = start;
+        this.end = end;
+        this.votesTo = votesTo;
+        this.publisher = publisher;
+        this.lock = new ReentrantLock();
+        this.slotsByKey = new ConcurrentHashMap<EventKey, Event[]>();
+        this.view = new View(this, State.OPEN, 0, PersistentSortedMap.<EventKey, Event[]>empty());
+    }
+
+    LocalDateTime getStart() {
+        return start;
+    }
+
+    LocalDateTime getEnd() {
+        return end;
+    }
+
+    State getState() {
+        return view.state;
+    }
+
+    int size() {
+        return view.size;
+    }
+
+    /**
+     * Fetches what the bucket holds now.
+     *
+     * @return The latest view.
+     */
+    View view() {
+        return view;
+    }
+
+    /**
+     * Adds a run of events, in order, under one lock.
+     *
+     * @param events The events, all starting inside this bucket.
+     * @param force  Whether to add to a sealed bucket anyway.
+     * @return False if the bucket was dropped and nothing was added.
+     */
+    boolean addAll(List<Event> events, boolean force) {
+        lock.lock();
+        try {
+            View now = view;
+            if (now.state == State.DROPPED) {
+                return false;
+            }
+            checkWritable(force);
+            PersistentSortedMap<EventKey, Event[]> slots = now.slots;
+            for (Event e : events) {
+                slots = insert(slots, e);
+                e.addVoteListener(this);
+            }
+            publish(new View(this, now.state, now.size + events.size(), slots));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes an event, preferring the exact object if it is there.
+     *
+     * @param event The event to delete.
+     * @return The event deleted, or null if there was none.
+     */
+    Event remove(Event event) {
+        lock.lock();
+        try {
+            View now = view;
+            if (now.state == State.DROPPED) {
+                return null;
+            }
+            checkWritable(false);
+            EventKey key = event.getKey();
+            Event[] slot = slotsByKey.get(key);
+            if (slot == null) {
+                return null;
+            }
+            int index = Math.max(0, indexOf(slot, event));
+            Event removed = slot[index];
+            removed.removeVoteListener(this);
+            publish(new View(this, now.state, now.size - 1, take(now.slots, key, slot, index)));
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves an event that was edited from the slot for its old key into the one
+     * for its new key, in this bucket or another. Both buckets are locked for
+     * the whole move, earlier bucket first, and both new views are published
+     * together, so readers never find the event missing or in two places. Edits
+     * are not deletes, so sealed buckets allow this, but a compressed bucket
+     * takes no new events, so a move into one is refused as an add would be.
+     *
+     * @param target The bucket for the event's new start time.
+     * @param event  The edited event.
+     * @param oldKey The key it had before the edit.
+     * @return What happened.
+     * @throws IllegalStateException If the target bucket is compressed; nothing
+     *                               changed.
+     */
+    Move moveTo(EventBucket target, Event event, EventKey oldKey) {
+        EventBucket first = target.start.isBefore(start) ? target : this;
+        EventBucket second = first == this ? target : this;
+        first.lock.lock();
+        second.lock.lock();
+        try {
+            View from = view;
+            View to = target.view;
+            if (to.state == State.DROPPED) {
+                return Move.RETRY;
+            }
+            Event[] slot = slotsByKey.get(oldKey);
+            int index = slot == null ? -1 : indexOf(slot, event);
+            if (from.state == State.COMPRESSED || from.state == State.DROPPED || index < 0) {
+                return Move.MISSING;
+            }
+            target.checkWritable(true);
+            PersistentSortedMap<EventKey, Event[]> slots = take(from.slots, oldKey, slot, index);
+            if (target == this) {
+                publish(new View(this, from.state, from.size, insert(slots, event)));
+                return Move.MOVED;
+            }
+            event.removeVoteListener(this);
+            event.addVoteListener(target);
+            view = new View(this, from.state, from.size - 1, slots);
+            target.view = new View(target, to.state, to.size + 1, target.insert(to.slots, event));
+            publisher.publish(this, target);
+            return Move.MOVED;
+        } finally {
+            second.lock.unlock();
+            first.lock.unlock();
+        }
+    }
+
+    /**
+     * Takes out the events whose key no longer matches the slot they sit in,
+     * because they were edited while in the list.
+     *
+     * @return The events taken out.
+     */
+    List<Event> takeMoved() {
+        List<Event> moved = new ArrayList<Event>();
+        lock.lock();
+        try {
+            View now = view;
+            if (now.state == State.COMPRESSED || now.state == State.DROPPED) {
+                return moved;
+            }
+            PersistentSortedMap<EventKey, Event[]> slots = now.slots;
+            for (Iterator<EventKey> keys = now.slots.keys(null, null); keys.hasNext();) {
+                EventKey key = keys.next();
+                Event[] slot = now.slots.get(key);
+                List<Event> kept = new ArrayList<Event>(slot.length);
+                for (Event e : slot) {
+                    if (e.getKey().equals(key)) {
+                        kept.add(e);
+                    } else {
+                        moved.add(e);
+                        e.removeVoteListener(this);
+                    }
+                }
+                if (kept.isEmpty()) {
+                    slotsByKey.remove(key);
+                    slots = slots.remove(key);
+                } else if (kept.size() < slot.length) {
+                    Event[] left = kept.toArray(NO_EVENTS);
+                    slotsByKey.put(key, left);
+                    slots = slots.put(key, left);
+                }
+            }
+            if (!moved.isEmpty()) {
+                publish(new View(this, now.state, now.size - moved.size(), slots));
+            }
+            return moved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Looks up an event by its key, without locking.
+     *
+     * @param key The key to look for.
+     * @return The first event added with that key, or null if there is none.
+     */
+    Event get(EventKey key) {
+        Event[] slot = slot(key);
+        return slot == null ? null : slot[0];
+    }
+
+    /**
+     * Checks whether an event, or a compressed copy of it, is in its slot,
+     * rather than just another event with the same key. Does not lock.
+     *
+     * @param event The event to look for.
+     * @return Whether an event with the same ID is filed under its key.
+     */
+    boolean holds(Event event) {
+        Event[] slot = slot(event.getKey());
+        if (slot != null) {
+            for (Event e : slot) {
+                if (e.getEventID() == event.getEventID()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Event[] slot(EventKey key) {
+        View now = view;
+        return now.state == State.COMPRESSED ? now.slots().get(key) : slotsByKey.get(key);
+    }
+
+    /**
+     * Stops events from being added to or deleted from the bucket.
+     *
+     * @return Whether the bucket was open.
+     */
+    boolean seal() {
+        lock.lock();
+        try {
+            View now = view;
+            if (now.state != State.OPEN) {
+                return false;
+            }
+            publish(new View(this, State.SEALED, now.size, now.slots));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Seals the bucket and swaps its events for a compressed image of them.
+     *
+     * @return The events that were let go, or null if the bucket was already
+     *         compressed or dropped.
+     */
+    List<Event> compress() {
+        lock.lock();
+        try {
+            View now = view;
+            if (now.state == State.COMPRESSED || now.state == State.DROPPED) {
+                return null;
+            }
+            List<Event> released = events(now);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (OutputStream deflated = new DeflaterOutputStream(bytes);
+                    WritableByteChannel out = Channels.newChannel(deflated)) {
+                SnapshotCodec.encodeCopies(out, released, now.size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            archive = bytes.toByteArray();
+            slotsByKey.clear();
+            publish(new View(this, State.COMPRESSED, now.size, null));
+            return released;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Empties the bucket for good.
+     *
+     * @return The events that were still held in memory, which is none for a
+     *         compressed bucket, or null if it was already dropped.
+     */
+    List<Event> drop() {
+        lock.lock();
+        try {
+            View now = view;
+            if (now.state == State.DROPPED) {
+                return null;
+            }
+            List<Event> released = now.state == State.COMPRESSED ? new ArrayList<Event>() : events(now);
+            slotsByKey.clear();
+            publish(new View(this, State.DROPPED, 0, PersistentSortedMap.<EventKey, Event[]>empty()));
+            archive = null;
+            unpacked = null;
+            return released;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fetches the size of the compressed image.
+     *
+     * @return The number of bytes, or 0 if the bucket is not compressed.
+     */
+    int getCompressedSize() {
+        byte[] image = archive;
+        return image == null ? 0 : image.length;
+    }
+
+    @Override
+    public void votesChanged(Event changed) {
+        voteChanged(changed, null);
+    }
+
+    @Override
+    public void voteChanged(Event changed, String userID) {
+        if (holdsEvents()) {
+            votesTo.voteChanged(changed, userID);
+        }
+    }
+
+    @Override
+    public void eventEdited(Event changed, EventKey oldKey) {
+        if (holdsEvents()) {
+            votesTo.eventEdited(changed, oldKey);
+        }
+    }
+
+    // Compressed and dropped buckets have let their events go.
+    private boolean holdsEvents() {
+        State now = view.state;
+        return now == State.OPEN || now == State.SEALED;
+    }
+
+    private void checkWritable(boolean force) {
+        State now = view.state;
+        if (now == State.COMPRESSED || (now == State.SEALED && !force)) {
+            throw new IllegalStateException("Events starting " + start + " to " + end + " are " + now);
+        }
+    }
+
+    // Called with the lock held.
+    private void publish(View next) {
+        view = next;
+        publisher.publish(this);
+    }
+
+    // Slots compare events by their fields, which an edit may have changed.
+    private static int indexOf(Event[] slot, Event event) {
+        for (int i = 0; i < slot.length; i++) {
+            if (slot[i] == event) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private PersistentSortedMap<EventKey, Event[]> insert(PersistentSortedMap<EventKey, Event[]> slots, Event event) {
+        EventKey key = event.getKey();
+        Event[] slot = slotsByKey.get(key);
+        Event[] grown = slot == null ? new Event[1] : Arrays.copyOf(slot, slot.length + 1);
+        grown[grown.length - 1] = event;
+        slotsByKey.put(key, grown);
+        return slots.put(key, grown);
+    }
+
+    // Takes the event at an index out of the slot for a key.
+    private PersistentSortedMap<EventKey, Event[]> take(PersistentSortedMap<EventKey, Event[]> slots, EventKey key,
+            Event[] slot, int index) {
+        if (slot.length == 1) {
+            slotsByKey.remove(key);
+            return slots.remove(key);
+        }
+        Event[] shrunk = new Event[slot.length - 1];
+        System.arraycopy(slot, 0, shrunk, 0, index);
+        System.arraycopy(slot, index + 1, shrunk, index, shrunk.length - index);
+        slotsByKey.put(key, shrunk);
+        return slots.put(key, shrunk);
+    }
+
+    private static List<Event> events(View of) {
+        List<Event> all = new ArrayList<Event>(of.size);
+        for (Iterator<Event[]> it = of.slots.values(null, null); it.hasNext();) {
+            all.addAll(Arrays.asList(it.next()));
+        }
+        return all;
+    }
+
+    // Decoded copies are cached until memory runs short.
+    private PersistentSortedMap<EventKey, Event[]> unpack() {
+        SoftReference<PersistentSortedMap<EventKey, Event[]>> cached = unpacked;
+        PersistentSortedMap<EventKey, Event[]> copy = cached == null ? null : cached.get();
+        if (copy != null) {
+            return copy;
+        }
+        byte[] image = archive;
+        if (image == null) {
+            // Dropped since the view was read.
+            return PersistentSortedMap.empty();
+        }
+        EventList decoded = new EventList();
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(image))) {
+            SnapshotCodec.decode(ByteBuffer.wrap(in.readAllBytes()), new HashMap<String, User>(), decoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        copy = PersistentSortedMap.empty();
+        for (Event e : decoded) {
+            Event[] slot = copy.get(e.getKey());
+            Event[] grown = slot == null ? new Event[1] : Arrays.copyOf(slot, slot.length + 1);
+            grown[grown.length - 1] = e;
+            copy = copy.put(e.getKey(), grown);
+        }
+        unpacked = new SoftReference<PersistentSortedMap<EventKey, Event[]>>(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * One change to an EventList, as delivered in batches by a ChangeCoalescer.
+ */
+public final class EventChange {
+    /**
+     * The kinds of change an event can go through.
+     */
+    public enum Kind {
+        ADDED, REMOVED, MOVED, VOTES_CHANGED, RECURRENCE_CHANGED
+    }
+
+    private final Kind kind;
+    private final Event event;
+
+    /**
+     * Creates a change record.
+     *
+     * @param kind  What happened to the event.
+     * @param event The event that changed, or a recurring event's template.
+     */
+    public EventChange(Kind kind, Event event) {
+        this.kind = kind;
+        this.event = event;
+    }
+
+    /**
+     * Fetches what happened to the event.
+     *
+     * @return The kind of change.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Fetches the event that changed.
+     *
+     * @return The changed event.
+     */
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * Checks whether the change adds, removes or moves a row, as opposed to only
+     * changing what a row shows.
+     *
+     * @return Whether the change affects the order or size of the list.
+     */
+    public boolean isStructural() {
+        return kind != Kind.VOTES_CHANGED;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + event.getName();
+    }
+}
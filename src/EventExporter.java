@@ -0,0 +1,453 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Exports events, in the order they are given, as JSON, iCalendar (.ics) or
+ * CSV.
+ *
+ * Output goes straight into one reused byte array that is written to the
+ * channel whenever it fills. Text is encoded to UTF-8 and numbers and fixed-format
+ * times are written digit by digit into that buffer, so exporting an event
+ * builds no Strings. The only formatter used, for the readable time in JSON, is
+ * the shared one for the exporter's locale and it writes into a reused builder.
+ *
+ * CSV output has the same columns and time format EventImporter reads, with the
+ * length in minutes last, and so does iCalendar output, so an export can be
+ * imported again. An event with no author or location gets a JSON null, no
+ * ORGANIZER or LOCATION line and an empty CSV field.
+ */
+public class EventExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // iCalendar lines longer than this many bytes are folded.
+    private static final int ICS_LINE_BYTES = 75;
+
+    /**
+     * The formats events can be exported as.
+     */
+    public enum Format {
+        JSON, ICS, CSV
+    }
+
+    private final DateTimeFormatter displayFormatter;
+    private final int bufferSize;
+
+    /**
+     * Creates an exporter that writes readable times for the default locale.
+     */
+    public EventExporter() {
+        this(Locale.getDefault(Locale.Category.FORMAT));
+    }
+
+    /**
+     * Creates an exporter that writes readable times for a locale.
+     *
+     * @param locale The locale for readable times.
+     */
+    public EventExporter(Locale locale) {
+        this(locale, BUFFER_SIZE);
+    }
+
+    /**
+     * Creates an exporter that writes readable times for a locale and buffers
+     * a given number of bytes between writes. A small buffer suits many small
+     * exports running at once, such as HTTP responses.
+     *
+     * @param locale     The locale for readable times.
+     * @param bufferSize The number of bytes to buffer, at least 128.
+     */
+    public EventExporter(Locale locale, int bufferSize) {
+        if (bufferSize < 128) {
+            throw new IllegalArgumentException("Buffer too small: " + bufferSize);
+        }
+        this.displayFormatter = Event.displayFormatter(locale);
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Exports events to a file, replacing it if it exists.
+     *
+     * @param events The events to export, such as an EventList.
+     * @param format The format to write.
+     * @param file   The file to write.
+     * @return How many events were exported.
+     * @throws IOException If the file cannot be written.
+     */
+    public long export(Iterable<Event> events, Format format, Path file) throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            switch (format) {
+            case JSON:
+                return exportJson(events, out);
+            case ICS:
+                return exportIcs(events, out);
+            default:
+                return exportCsv(events, out);
+            }
+        }
+    }
+
+    /**
+     * Exports events as a JSON array of objects with the event's ID, author,
+     * name, location, ISO time, length in minutes, readable time and vote
+     * counts.
+     *
+     * @param events The events to export.
+     * @param out    Where to write them.
+     * @return How many events were exported.
+     * @throws IOException If the channel cannot be written.
+     */
+    public long exportJson(Iterable<Event> events, WritableByteChannel out) throws IOException {
+        Writer w = new Writer(out, bufferSize);
+        long count = 0;
+        w.ascii('[');
+        for (Event e : events) {
+            w.ascii(count == 0 ? "\n" : ",\n");
+            jsonObject(w, e);
+            count++;
+        }
+        w.ascii(count == 0 ? "]\n" : "\n]\n");
+        w.flush();
+        return count;
+    }
+
+    /**
+     * Exports one event as a JSON object with the same fields exportJson
+     * writes for each event.
+     *
+     * @param event The event to export.
+     * @param out   Where to write it.
+     * @throws IOException If the channel cannot be written.
+     */
+    public void exportJson(Event event, WritableByteChannel out) throws IOException {
+        Writer w = new Writer(out, bufferSize);
+        jsonObject(w, event);
+        w.ascii('\n');
+        w.flush();
+    }
+
+    private void jsonObject(Writer w, Event e) throws IOException {
+        w.ascii("{\"id\":");
+        w.number(e.getEventID());
+        w.ascii(",\"author\":");
+        if (e.getAuthorID() == null) {
+            w.ascii("null");
+        } else {
+            w.jsonString(e.getAuthorID());
+        }
+        w.ascii(",\"name\":");
+        w.jsonString(e.getName());
+        w.ascii(",\"location\":");
+        if (e.getLocation() == null) {
+            w.ascii("null");
+        } else {
+            w.jsonString(e.getLocation());
+        }
+        w.ascii(",\"time\":\"");
+        LocalDateTime time = e.getKey().getTime();
+        w.digits(time.getYear(), 4).ascii('-').digits(time.getMonthValue(), 2).ascii('-')
+                .digits(time.getDayOfMonth(), 2).ascii('T').digits(time.getHour(), 2).ascii(':')
+                .digits(time.getMinute(), 2).ascii(':').digits(time.getSecond(), 2);
+        w.ascii("\",\"minutes\":");
+        w.number(e.getDuration().toMinutes());
+        w.ascii(",\"display\":");
+        // Events are in time order, so neighbours often share a readable time.
+        if (!time.equals(w.displayed)) {
+            w.scratch.setLength(0);
+            displayFormatter.formatTo(time, w.scratch);
+            w.displayed = time;
+        }
+        w.jsonString(w.scratch);
+        w.ascii(",\"upvotes\":");
+        w.number(e.getUpvotes());
+        w.ascii(",\"downvotes\":");
+        w.number(e.getDownvotes());
+        w.ascii('}');
+    }
+
+    /**
+     * Exports events as an iCalendar file with one VEVENT each.
+     *
+     * @param events The events to export.
+     * @param out    Where to write them.
+     * @return How many events were exported.
+     * @throws IOException If the channel cannot be written.
+     */
+    public long exportIcs(Iterable<Event> events, WritableByteChannel out) throws IOException {
+        Writer w = new Writer(out, bufferSize);
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        long count = 0;
+        w.ascii("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//Down4That//Event export//EN\r\n");
+        for (Event e : events) {
+            w.ascii("BEGIN:VEVENT\r\nUID:");
+            w.number(e.getEventID());
+            w.ascii("@down4that\r\nDTSTAMP:");
+            w.icsTime(now).ascii("Z\r\nDTSTART:");
+            w.icsTime(e.getKey().getTime()).ascii("\r\nDTEND:");
+            w.icsTime(e.getEndTime()).ascii("\r\n");
+            w.foldedLine("SUMMARY:", e.getName());
+            if (e.getLocation() != null) {
+                w.foldedLine("LOCATION:", e.getLocation());
+            }
+            if (e.getAuthorID() != null) {
+                w.organizer(e.getAuthorID());
+            }
+            w.ascii("END:VEVENT\r\n");
+            count++;
+        }
+        w.ascii("END:VCALENDAR\r\n");
+        w.flush();
+        return count;
+    }
+
+    /**
+     * Exports events as CSV rows of author, name, location, time and length in
+     * minutes, rounded up, after a header row.
+     *
+     * @param events The events to export.
+     * @param out    Where to write them.
+     * @return How many events were exported.
+     * @throws IOException If the channel cannot be written.
+     */
+    public long exportCsv(Iterable<Event> events, WritableByteChannel out) throws IOException {
+        Writer w = new Writer(out, bufferSize);
+        long count = 0;
+        w.ascii("author,name,location,time,minutes\n");
+        for (Event e : events) {
+            if (e.getAuthorID() != null) {
+                w.csvField(e.getAuthorID());
+            }
+            w.ascii(',');
+            w.csvField(e.getName());
+            w.ascii(',');
+            if (e.getLocation() != null) {
+                w.csvField(e.getLocation());
+            }
+            w.ascii(',');
+            // Event.eventFormatter's "dd-MM-yyyy HH:mm".
+            LocalDateTime time = e.getKey().getTime();
+            w.digits(time.getDayOfMonth(), 2).ascii('-').digits(time.getMonthValue(), 2).ascii('-')
+                    .digits(time.getYear(), 4).ascii(' ').digits(time.getHour(), 2).ascii(':')
+                    .digits(time.getMinute(), 2).ascii(',');
+            w.number(e.getDuration().plusMinutes(1).minusNanos(1).toMinutes());
+            w.ascii('\n');
+            count++;
+        }
+        w.flush();
+        return count;
+    }
+
+    /**
+     * Encodes text into a reused buffer, writing it out whenever it fills.
+     */
+    private static class Writer {
+        final StringBuilder scratch;
+        // The time last formatted into scratch.
+        LocalDateTime displayed;
+        private final byte[] buf;
+        private final ByteBuffer wrapped;
+        private final WritableByteChannel out;
+        private int position;
+        // Bytes written since the last line break, for folding iCalendar lines.
+        private int column;
+
+        Writer(WritableByteChannel out, int size) {
+            this.out = out;
+            this.buf = new byte[size];
+            this.wrapped = ByteBuffer.wrap(buf);
+            this.scratch = new StringBuilder(64);
+        }
+
+        void flush() throws IOException {
+            wrapped.limit(position).position(0);
+            while (wrapped.hasRemaining()) {
+                out.write(wrapped);
+            }
+            position = 0;
+        }
+
+        private void ensure(int needed) throws IOException {
+            if (buf.length - position < needed) {
+                flush();
+            }
+        }
+
+        Writer ascii(char c) throws IOException {
+            ensure(1);
+            buf[position++] = (byte) c;
+            column = c == '\n' ? 0 : column + 1;
+            return this;
+        }
+
+        // For the short fixed strings of the formats, which fit in the buffer.
+        Writer ascii(String s) throws IOException {
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                buf[position++] = (byte) c;
+                column = c == '\n' ? 0 : column + 1;
+            }
+            return this;
+        }
+
+        void number(long v) throws IOException {
+            ensure(20);
+            if (v < 0) {
+                buf[position++] = '-';
+                column++;
+            }
+            int length = 1;
+            for (long rest = v / 10; rest != 0; rest /= 10) {
+                length++;
+            }
+            for (int i = position + length - 1; i >= position; i--) {
+                buf[i] = (byte) ('0' + Math.abs(v % 10));
+                v /= 10;
+            }
+            position += length;
+            column += length;
+        }
+
+        // Writes a non-negative number padded with zeros to at least width digits.
+        Writer digits(int v, int width) throws IOException {
+            int length = 1;
+            for (int rest = v; rest >= 10; rest /= 10) {
+                length++;
+            }
+            for (; length < width; length++) {
+                ascii('0');
+            }
+            number(v);
+            return this;
+        }
+
+        Writer icsTime(LocalDateTime time) throws IOException {
+            digits(time.getYear(), 4).digits(time.getMonthValue(), 2).digits(time.getDayOfMonth(), 2).ascii('T');
+            return digits(time.getHour(), 2).digits(time.getMinute(), 2).digits(time.getSecond(), 2);
+        }
+
+        void jsonString(CharSequence s) throws IOException {
+            ascii('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    ascii('\\').ascii(c);
+                } else if (c == '\n') {
+                    ascii("\\n");
+                } else if (c == '\r') {
+                    ascii("\\r");
+                } else if (c == '\t') {
+                    ascii("\\t");
+                } else if (c < 0x20) {
+                    ascii("\\u00").ascii(Character.forDigit(c >> 4, 16)).ascii(Character.forDigit(c & 0xF, 16));
+                } else if (c < 0x80) {
+                    ascii(c);
+                } else {
+                    i = utf8(s, i, 0);
+                }
+            }
+            ascii('"');
+        }
+
+        void csvField(String s) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < s.length() && !quote; i++) {
+                char c = s.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                for (int i = 0; i < s.length(); i++) {
+                    i = utf8(s, i, 0);
+                }
+                return;
+            }
+            ascii('"');
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) == '"') {
+                    ascii('"');
+                }
+                i = utf8(s, i, 0);
+            }
+            ascii('"');
+        }
+
+        // Writes an iCalendar property with an escaped text value, folding long lines.
+        void foldedLine(String property, String value) throws IOException {
+            ascii(property);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' || c == ';' || c == ',') {
+                    fold(2);
+                    ascii('\\').ascii(c);
+                } else if (c == '\n') {
+                    fold(2);
+                    ascii("\\n");
+                } else if (c == '\r') {
+                    continue;
+                } else {
+                    i = utf8(value, i, ICS_LINE_BYTES);
+                }
+            }
+            ascii("\r\n");
+        }
+
+        // Authors have no address, so the organizer is just a common name.
+        void organizer(String author) throws IOException {
+            ascii("ORGANIZER;CN=\"");
+            for (int i = 0; i < author.length(); i++) {
+                // Quoted parameter values cannot hold quotes or control characters.
+                if (author.charAt(i) >= 0x20 && author.charAt(i) != '"') {
+                    i = utf8(author, i, ICS_LINE_BYTES);
+                }
+            }
+            fold(15);
+            ascii("\":invalid:nomail\r\n");
+        }
+
+        private void fold(int nextBytes) throws IOException {
+            if (column + nextBytes > ICS_LINE_BYTES) {
+                ascii("\r\n ");
+            }
+        }
+
+        // Writes the code point at i and returns the index of its last char.
+        private int utf8(CharSequence s, int i, int foldAt) throws IOException {
+            char c = s.charAt(i);
+            int cp = c;
+            if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                cp = Character.toCodePoint(c, s.charAt(++i));
+            } else if (Character.isSurrogate(c)) {
+                cp = '?';
+            }
+            int bytes = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (foldAt > 0) {
+                fold(bytes);
+            }
+            ensure(4);
+            if (bytes == 1) {
+                buf[position++] = (byte) cp;
+            } else if (bytes == 2) {
+                buf[position++] = (byte) (0xC0 | (cp >> 6));
+                buf[position++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (bytes == 3) {
+                buf[position++] = (byte) (0xE0 | (cp >> 12));
+                buf[position++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[position++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                buf[position++] = (byte) (0xF0 | (cp >> 18));
+                buf[position++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[position++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[position++] = (byte) (0x80 | (cp & 0x3F));
+            }
+            column = cp == '\n' ? 0 : column + bytes;
+            return i;
+        }
+    }
+}
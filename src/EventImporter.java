@@ -0,0 +1,412 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Imports a group's existing calendar into an EventList, from either a CSV file
+ * or an iCalendar (.ics) file.
+ *
+ * The file is read as a stream in chunks of rows. Each chunk is parsed on the
+ * common fork/join pool while the next one is being read, and the parsed events
+ * are added to the list in one batch at the end. Rows that cannot be parsed, or
+ * that start in a sealed or compressed part of the list, are counted and skipped.
+ *
+ * CSV rows hold the author ID, event name, location and date-time, the last one
+ * in the same "dd-MM-yyyy HH:mm" format as Event.eventFormatter, and optionally
+ * the length in minutes; rows without it, or with it empty, last
+ * Event.DEFAULT_DURATION. Fields may be quoted. A first row that names the
+ * columns, "author,name,location,time" with or without ",minutes" in any case,
+ * is skipped as a header; "authorID" may stand for "author". An empty author
+ * field means the event has no author.
+ */
+public class EventImporter {
+    private static final int CHUNK_SIZE = 4096;
+    private static final DateTimeFormatter ICS_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter ICS_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final List<String> CSV_COLUMNS = Arrays.asList("author", "name", "location", "time", "minutes");
+
+    private final ForkJoinPool pool;
+    private final int maxChunksInFlight;
+
+    /**
+     * Creates an importer that parses on the common fork/join pool.
+     */
+    public EventImporter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an importer that parses on the given pool.
+     *
+     * @param pool The pool to parse chunks on.
+     */
+    public EventImporter(ForkJoinPool pool) {
+        this.pool = pool;
+        this.maxChunksInFlight = pool.getParallelism() * 2;
+    }
+
+    /**
+     * Imports every event in a CSV file.
+     *
+     * @param file        The CSV file to read.
+     * @param destination The list to add the events to.
+     * @return How many rows were imported and rejected, and how fast.
+     * @throws IOException If the file cannot be read.
+     */
+    public Report importCsv(Path file, EventList destination) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong rejected = new AtomicLong();
+        Chunks<String> chunks = new Chunks<String>(rows -> parseCsvRows(rows, rejected));
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            if (line != null && !isCsvHeader(line)) {
+                chunks.add(line);
+            }
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    chunks.add(line);
+                }
+            }
+        }
+        return finish(chunks.finish(), destination, rejected.get(), start);
+    }
+
+    /**
+     * Imports every VEVENT in an iCalendar file. SUMMARY, LOCATION and DTSTART are
+     * used for the name, location and date-time, DTEND (if any) for the duration,
+     * and the ORGANIZER's common name (or address) becomes the author. Times in
+     * UTC, or with a TZID that is a zone ID such as "Europe/Paris", are moved to
+     * the local zone, and times with neither are taken as local already. Events
+     * whose TZID is not a zone ID, such as the name of a VTIMEZONE the file
+     * defines itself, are rejected rather than read in the wrong zone.
+     *
+     * @param file        The .ics file to read.
+     * @param destination The list to add the events to.
+     * @return How many events were imported and rejected, and how fast.
+     * @throws IOException If the file cannot be read.
+     */
+    public Report importIcs(Path file, EventList destination) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong rejected = new AtomicLong();
+        Chunks<Map<String, String>> chunks = new Chunks<Map<String, String>>(
+                vevents -> parseIcsEvents(vevents, rejected));
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Map<String, String> current = null;
+            String pendingLine = in.readLine();
+            while (pendingLine != null) {
+                // Lines starting with a space or tab continue the line before them.
+                StringBuilder unfolded = new StringBuilder(pendingLine);
+                while ((pendingLine = in.readLine()) != null && !pendingLine.isEmpty()
+                        && (pendingLine.charAt(0) == ' ' || pendingLine.charAt(0) == '\t')) {
+                    unfolded.append(pendingLine, 1, pendingLine.length());
+                }
+                String line = unfolded.toString();
+                if (line.equalsIgnoreCase("BEGIN:VEVENT")) {
+                    current = new HashMap<String, String>();
+                } else if (line.equalsIgnoreCase("END:VEVENT")) {
+                    if (current != null) {
+                        chunks.add(current);
+                    }
+                    current = null;
+                } else if (current != null) {
+                    int colon = icsValueStart(line);
+                    if (colon > 0) {
+                        current.put(line.substring(0, colon), line.substring(colon + 1));
+                    }
+                }
+            }
+        }
+        return finish(chunks.finish(), destination, rejected.get(), start);
+    }
+
+    private static Report finish(List<Event> parsed, EventList destination, long rejected, long start) {
+        int refused = destination.addEvents(parsed).size();
+        return new Report(parsed.size() - refused, rejected + refused, System.nanoTime() - start);
+    }
+
+    private static List<Event> parseCsvRows(List<String> rows, AtomicLong rejected) {
+        List<Event> parsed = new ArrayList<Event>(rows.size());
+        ArrayList<String> fields = new ArrayList<String>(5);
+        for (String row : rows) {
+            fields.clear();
+            try {
+                splitCsv(row, fields);
+                if (fields.size() != 4 && fields.size() != 5) {
+                    rejected.incrementAndGet();
+                    continue;
+                }
+                LocalDateTime time = LocalDateTime.parse(fields.get(3).trim(), Event.eventFormatter);
+                String author = fields.get(0).isEmpty() ? null : fields.get(0);
+                String minutes = fields.size() == 5 ? fields.get(4).trim() : "";
+                // A bad, non-positive or huge length throws, and the row is rejected.
+                Duration duration = minutes.isEmpty() ? Event.DEFAULT_DURATION
+                        : Duration.ofMinutes(Long.parseLong(minutes));
+                parsed.add(new Event(author, fields.get(1), fields.get(2), time, duration));
+            } catch (DateTimeParseException | IllegalArgumentException | ArithmeticException e) {
+                rejected.incrementAndGet();
+            }
+        }
+        return parsed;
+    }
+
+    private static boolean isCsvHeader(String row) {
+        List<String> fields = new ArrayList<String>(5);
+        try {
+            splitCsv(row, fields);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (fields.size() != 4 && fields.size() != 5) {
+            return false;
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            String field = fields.get(i).trim().toLowerCase(Locale.ROOT);
+            if (!field.equals(CSV_COLUMNS.get(i)) && !(i == 0 && field.equals("authorid"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void splitCsv(String row, List<String> fields) {
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < row.length() && row.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        fields.add(field.toString());
+    }
+
+    private static List<Event> parseIcsEvents(List<Map<String, String>> vevents, AtomicLong rejected) {
+        List<Event> parsed = new ArrayList<Event>(vevents.size());
+        for (Map<String, String> properties : vevents) {
+            String summary = null;
+            String location = "";
+            String author = "imported";
+            LocalDateTime time = null;
+            LocalDateTime end = null;
+            try {
+                for (Map.Entry<String, String> p : properties.entrySet()) {
+                    String[] nameAndParams = p.getKey().split(";");
+                    String name = nameAndParams[0].toUpperCase(Locale.ROOT);
+                    if (name.equals("SUMMARY")) {
+                        summary = unescapeIcs(p.getValue());
+                    } else if (name.equals("LOCATION")) {
+                        location = unescapeIcs(p.getValue());
+                    } else if (name.equals("DTSTART")) {
+                        time = parseIcsTime(nameAndParams, p.getValue());
+                    } else if (name.equals("DTEND")) {
+                        end = parseIcsTime(nameAndParams, p.getValue());
+                    } else if (name.equals("ORGANIZER")) {
+                        author = icsOrganizer(nameAndParams, p.getValue());
+                    }
+                }
+            } catch (DateTimeException e) {
+                // Unreadable, or in a zone that is not known.
+                time = null;
+            }
+            if (summary == null || time == null) {
+                rejected.incrementAndGet();
+            } else if (end != null && end.isAfter(time)) {
+                parsed.add(new Event(author, summary, location, time, Duration.between(time, end)));
+            } else {
+                parsed.add(new Event(author, summary, location, time));
+            }
+        }
+        return parsed;
+    }
+
+    private static LocalDateTime parseIcsTime(String[] nameAndParams, String value) {
+        if (value.length() == 8) {
+            return LocalDate.parse(value, ICS_DATE).atStartOfDay();
+        }
+        if (value.endsWith("Z")) {
+            LocalDateTime utc = LocalDateTime.parse(value.substring(0, value.length() - 1), ICS_DATE_TIME);
+            return utc.atOffset(ZoneOffset.UTC).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        }
+        LocalDateTime time = LocalDateTime.parse(value, ICS_DATE_TIME);
+        for (int i = 1; i < nameAndParams.length; i++) {
+            if (nameAndParams[i].regionMatches(true, 0, "TZID=", 0, 5)) {
+                String tzid = nameAndParams[i].substring(5).replace("\"", "");
+                // Throws DateTimeException if the zone is not known.
+                return time.atZone(ZoneId.of(tzid)).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            }
+        }
+        return time;
+    }
+
+    private static String icsOrganizer(String[] nameAndParams, String value) {
+        for (int i = 1; i < nameAndParams.length; i++) {
+            if (nameAndParams[i].regionMatches(true, 0, "CN=", 0, 3)) {
+                String cn = nameAndParams[i].substring(3);
+                return cn.startsWith("\"") && cn.endsWith("\"") && cn.length() > 1
+                        ? cn.substring(1, cn.length() - 1)
+                        : cn;
+            }
+        }
+        return value.regionMatches(true, 0, "mailto:", 0, 7) ? value.substring(7) : value;
+    }
+
+    // The name and parameters end at the first colon outside a quoted parameter.
+    private static int icsValueStart(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ':' && !quoted) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String unescapeIcs(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                out.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Groups incoming rows into chunks and hands each full chunk to the pool,
+     * holding back the reader when too many chunks are still being parsed.
+     */
+    private class Chunks<T> {
+        private final Function<List<T>, List<Event>> parser;
+        private final ArrayDeque<CompletableFuture<List<Event>>> inFlight;
+        private final List<Event> parsed;
+        private List<T> current;
+
+        Chunks(Function<List<T>, List<Event>> parser) {
+            this.parser = parser;
+            this.inFlight = new ArrayDeque<CompletableFuture<List<Event>>>();
+            this.parsed = new ArrayList<Event>();
+            this.current = new ArrayList<T>(CHUNK_SIZE);
+        }
+
+        void add(T row) {
+            current.add(row);
+            if (current.size() == CHUNK_SIZE) {
+                submit();
+            }
+        }
+
+        List<Event> finish() {
+            if (!current.isEmpty()) {
+                submit();
+            }
+            while (!inFlight.isEmpty()) {
+                parsed.addAll(inFlight.poll().join());
+            }
+            return parsed;
+        }
+
+        private void submit() {
+            final List<T> chunk = current;
+            current = new ArrayList<T>(CHUNK_SIZE);
+            inFlight.add(CompletableFuture.supplyAsync(() -> parser.apply(chunk), pool));
+            while (inFlight.size() > maxChunksInFlight) {
+                parsed.addAll(inFlight.poll().join());
+            }
+        }
+    }
+
+    /**
+     * The outcome of an import.
+     */
+    public static class Report {
+        private final long imported;
+        private final long rejected;
+        private final long elapsedNanos;
+
+        Report(long imported, long rejected, long elapsedNanos) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Fetches how many events were added to the list.
+         *
+         * @return The number of imported events.
+         */
+        public long getImported() {
+            return imported;
+        }
+
+        /**
+         * Fetches how many rows could not be parsed.
+         *
+         * @return The number of rejected rows.
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Fetches how fast rows were read, counting rejected ones.
+         *
+         * @return Rows handled per second.
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : (imported + rejected) * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d imported, %d rejected, %.0f rows/s", imported, rejected, getRowsPerSecond());
+        }
+    }
+}
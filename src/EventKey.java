@@ -0,0 +1,96 @@
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Immutable identity of an event: its date-time, name and location, which are
+ * the same fields Event.compareTo and Event.equals look at. The hash is worked
+ * out once when the key is made, so using keys in hash tables is cheap. The
+ * name and location may be null, and sort before any other.
+ */
+public final class EventKey implements Comparable<EventKey> {
+    private static final Comparator<String> TEXT = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final LocalDateTime time;
+    private final String name;
+    private final String location;
+    private final int hash;
+
+    /**
+     * Creates a key from the identifying fields of an event.
+     * 
+     * @param time     The date and time of the event.
+     * @param name     The event name.
+     * @param location The event location.
+     */
+    public EventKey(LocalDateTime time, String name, String location) {
+        this.time = time;
+        this.name = name;
+        this.location = location;
+        this.hash = 31 * (31 * time.hashCode() + Objects.hashCode(name)) + Objects.hashCode(location);
+    }
+
+    /**
+     * Fetches the date and time of the keyed event.
+     * 
+     * @return The date and time.
+     */
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    /**
+     * Fetches the name of the keyed event.
+     * 
+     * @return The event name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Fetches the location of the keyed event.
+     * 
+     * @return The event location.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Compares by date-time first, then name, then location, matching
+     * Event.compareTo.
+     * 
+     * @return The result of the comparison.
+     */
+    @Override
+    public int compareTo(EventKey other) {
+        int result = time.compareTo(other.time);
+        if (result != 0) {
+            return result;
+        }
+        result = TEXT.compare(name, other.name);
+        if (result != 0) {
+            return result;
+        }
+        return TEXT.compare(location, other.location);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof EventKey)) {
+            return false;
+        }
+        EventKey k = (EventKey) other;
+        return hash == k.hash && time.equals(k.time) && Objects.equals(name, k.name)
+                && Objects.equals(location, k.location);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -1,54 +1,622 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
- * Responsible for handling a collection of events, with a sorting operation
- * that occurs upon modification of the collection.
+ * Responsible for handling a collection of events, kept in order by date/time,
+ * then name, then location (the order given by Event.compareTo). Events that
+ * compare as equal share a slot in the ordered index and keep their insertion
+ * order, so adding, deleting and walking the list never needs a full re-sort.
+ * Editing an event in the list moves just that event, in O(log n).
+ * A hash index on each event's key finds an event's slot in constant time.
+ *
+ * Events are split into time buckets (a month each by default), each an
+ * EventBucket with its own indexes and lock, so a query only touches the
+ * buckets its window covers and findBetween() can search them in parallel.
+ * Buckets that lie wholly in the past can be sealed against changes,
+ * compressed into a SnapshotCodec image, or dropped, a whole bucket at a time.
+ *
+ * Readers never lock. Every change publishes a new immutable version of the
+ * list, a PersistentSortedMap of bucket views that shares everything but the
+ * changed path with the version before, so a reader (or a Snapshot) keeps a
+ * consistent picture for as long as it likes while writers carry on, and
+ * nothing is copied to give it one.
+ *
+ * Listeners can be registered to hear about additions, deletions, moves and
+ * vote changes, which lets other indexes and views sit alongside the list.
+ *
+ * The list can also hold recurring events. Their occurrences are not stored;
+ * range queries work them out as they go and merge them with the stored events
+ * in order. Plain iteration and getSize() only cover the stored events, since a
+ * recurring event may never end.
  */
-public class EventList {
-    private ArrayList<Event> eventsList;
+public class EventList implements Iterable<Event> {
+    private final ChronoUnit bucketUnit;
+    // Where writers find a bucket; readers go through version instead.
+    private final ConcurrentSkipListMap<LocalDateTime, EventBucket> buckets;
+    private final AtomicReference<Version> version;
+    private final EventBucket.Publisher publisher = this::publish;
+    private CopyOnWriteArrayList<EventListListener> listeners;
+    private final VoteListener voteForwarder = new VoteListener() {
+        @Override
+        public void votesChanged(Event changed) {
+            fireVotesChanged(changed, null);
+        }
+
+        @Override
+        public void voteChanged(Event changed, String userID) {
+            fireVotesChanged(changed, userID);
+        }
+
+        @Override
+        public void eventEdited(Event changed, EventKey oldKey) {
+            relocate(changed, oldKey);
+        }
+    };
+    private CopyOnWriteArrayList<RecurringEvent> recurring;
+    private final EventListListener seriesForwarder = new EventListListener() {
+        @Override
+        public void votesChanged(Event changed) {
+            fireVotesChanged(changed, null);
+        }
+
+        @Override
+        public void recurringChanged(RecurringEvent series) {
+            fireRecurringChanged(series);
+        }
+    };
 
     /**
-     * Constructor that initilizes the eventsList arraylist.
+     * Constructor that initilizes an empty list, bucketed by month.
      */
     public EventList() {
-        eventsList = new ArrayList<Event>();
+        this(ChronoUnit.MONTHS);
     }
 
     /**
-     * Sorts eventsList by date/time, then by name, then by other sorting criteria.
+     * Creates an empty list whose buckets each cover one calendar day, week
+     * (from Monday), month or year.
+     *
+     * @param bucketUnit DAYS, WEEKS, MONTHS or YEARS.
+     */
+    public EventList(ChronoUnit bucketUnit) {
+        if (bucketUnit != ChronoUnit.DAYS && bucketUnit != ChronoUnit.WEEKS && bucketUnit != ChronoUnit.MONTHS
+                && bucketUnit != ChronoUnit.YEARS) {
+            throw new IllegalArgumentException("Cannot bucket events by " + bucketUnit);
+        }
+        this.bucketUnit = bucketUnit;
+        buckets = new ConcurrentSkipListMap<LocalDateTime, EventBucket>();
+        version = new AtomicReference<Version>(
+                new Version(PersistentSortedMap.<LocalDateTime, EventBucket.View>empty(), 0));
+        listeners = new CopyOnWriteArrayList<EventListListener>();
+        recurring = new CopyOnWriteArrayList<RecurringEvent>();
+    }
+
+    /**
+     * Puts any events whose key no longer matches their place back in order by
+     * date/time, then by name, then by other sorting criteria. Events edited
+     * through their setters are moved as soon as they change, so this is only a
+     * safety net. Events may move into a sealed bucket, but one that now starts
+     * inside a compressed bucket is deleted instead, as those take no new events.
      */
     public void sort() {
-        Collections.sort(eventsList);
+        Event[] moved = buckets.values().stream().flatMap(b -> b.takeMoved().stream()).toArray(Event[]::new);
+        Arrays.sort(moved, Comparator.comparing(Event::getKey));
+        Set<Event> lost = Collections.newSetFromMap(new IdentityHashMap<Event, Boolean>());
+        for (List<Event> run : runsByBucket(moved)) {
+            try {
+                store(run, true);
+            } catch (IllegalStateException e) {
+                lost.addAll(run);
+            }
+        }
+        for (Event e : moved) {
+            boolean kept = !lost.contains(e);
+            for (EventListListener l : listeners) {
+                if (kept) {
+                    l.eventMoved(e);
+                } else {
+                    l.eventRemoved(e);
+                }
+            }
+        }
     }
 
     /**
      * Fetches the number of events in the Event List
-     * 
+     *
      * @return The number of events inside the event list
      */
     public int getSize() {
-        return eventsList.size();
+        return version.get().size;
+    }
+
+    /**
+     * Fetches the list as it is now. The snapshot does not change however the
+     * list is changed afterwards, and taking one copies nothing and takes no
+     * locks.
+     *
+     * @return The stored events as of now.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(version.get());
     }
 
     /**
-     * Deletes the first occurrence of a given event from the event list.
+     * Deletes the first occurrence of a given event from the event list. If that
+     * exact event object is in the list it is the one removed.
      *
      * @param eventToDelete The event to be deleted.
      */
     public void deleteEvent(Event eventToDelete) {
-        eventsList.remove(eventToDelete);
-        this.sort();
+        EventBucket bucket = buckets.get(bucketStart(eventToDelete.getKey().getTime()));
+        Event removed = bucket == null ? null : bucket.remove(eventToDelete);
+        if (removed != null) {
+            for (EventListListener l : listeners) {
+                l.eventRemoved(removed);
+            }
+        }
     }
 
     /**
      * Adds an event object to eventsList.
-     * 
+     *
      * @param eventToAdd The event to be added to eventsList.
      */
     public void addEvent(Event eventToAdd) {
-        eventsList.add(eventToAdd);
-        this.sort();
+        store(Collections.singletonList(eventToAdd), false);
+        for (EventListListener l : listeners) {
+            l.eventAdded(eventToAdd);
+        }
+    }
+
+    /**
+     * Adds many events at once, such as from an import. The batch is sorted once
+     * and then merged into the index in order, one bucket at a time, rather than
+     * being added one by one in whatever order it came in. Events that start in
+     * a sealed or compressed bucket are refused and the rest are still added.
+     *
+     * @param eventsToAdd The events to be added to eventsList.
+     * @return The events that were refused, in order, or an empty list.
+     */
+    public List<Event> addEvents(Collection<Event> eventsToAdd) {
+        Event[] batch = eventsToAdd.toArray(new Event[0]);
+        Arrays.parallelSort(batch, Comparator.comparing(Event::getKey));
+        List<Event> refused = new ArrayList<Event>();
+        for (List<Event> run : runsByBucket(batch)) {
+            try {
+                store(run, false);
+            } catch (IllegalStateException e) {
+                refused.addAll(run);
+                continue;
+            }
+            for (Event e : run) {
+                for (EventListListener l : listeners) {
+                    l.eventAdded(e);
+                }
+            }
+        }
+        return refused;
+    }
+
+    /**
+     * Adds a recurring event, whose occurrences then show up in range queries.
+     *
+     * @param series The recurring event to add.
+     */
+    public void addRecurring(RecurringEvent series) {
+        recurring.add(series);
+        series.addListener(seriesForwarder);
+        fireRecurringChanged(series);
+    }
+
+    /**
+     * Removes a recurring event and all of its occurrences.
+     *
+     * @param series The recurring event to remove.
+     */
+    public void removeRecurring(RecurringEvent series) {
+        if (recurring.remove(series)) {
+            series.removeListener(seriesForwarder);
+            fireRecurringChanged(series);
+        }
+    }
+
+    /**
+     * Fetches the recurring events in the list.
+     *
+     * @return A read-only view of the recurring events.
+     */
+    public List<RecurringEvent> getRecurring() {
+        return Collections.unmodifiableList(recurring);
+    }
+
+    /**
+     * Registers a listener to hear about changes to the events in this list.
+     *
+     * @param listener The listener to add.
+     */
+    public void addListener(EventListListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops a listener from hearing about changes to this list.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeListener(EventListListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Seals every bucket that ends at or before a time, so events starting then
+     * can no longer be added or deleted.
+     *
+     * @param time The time to seal up to.
+     * @return The number of buckets newly sealed.
+     */
+    public int sealBefore(LocalDateTime time) {
+        int sealed = 0;
+        for (EventBucket b : bucketsBefore(time)) {
+            if (b.seal()) {
+                sealed++;
+            }
+        }
+        return sealed;
+    }
+
+    /**
+     * Seals and compresses every bucket that ends at or before a time. The
+     * events stay in the list, but are only kept as a compressed image and come
+     * back as read-only copies when read. Listeners hear that the originals were
+     * dropped, since votes on them no longer reach the list.
+     *
+     * @param time The time to compress up to.
+     * @return The number of buckets newly compressed.
+     */
+    public int compressBefore(LocalDateTime time) {
+        int compressed = 0;
+        for (EventBucket b : bucketsBefore(time)) {
+            List<Event> released = b.compress();
+            if (released != null) {
+                compressed++;
+                fireDropped(released);
+            }
+        }
+        return compressed;
+    }
+
+    /**
+     * Drops every bucket that ends at or before a time, with all of its events,
+     * without visiting the events one by one.
+     *
+     * @param time The time to drop up to.
+     * @return The number of buckets dropped.
+     */
+    public int dropBefore(LocalDateTime time) {
+        int dropped = 0;
+        for (EventBucket b : bucketsBefore(time)) {
+            // Dropped before it is let go, so no writer still holding it can publish it again.
+            List<Event> released = b.drop();
+            buckets.remove(b.getStart(), b);
+            if (released != null) {
+                dropped++;
+                fireDropped(released);
+            }
+        }
+        return dropped;
+    }
+
+    private List<EventBucket> bucketsBefore(LocalDateTime time) {
+        List<EventBucket> before = new ArrayList<EventBucket>();
+        for (EventBucket b : buckets.headMap(time, false).values()) {
+            if (!b.getEnd().isAfter(time)) {
+                before.add(b);
+            }
+        }
+        return before;
+    }
+
+    /**
+     * Adds a run of events that all start inside the same bucket, making the
+     * bucket if needed.
+     */
+    private void store(List<Event> run, boolean force) {
+        LocalDateTime start = bucketStart(run.get(0).getKey().getTime());
+        while (true) {
+            EventBucket bucket = bucketAt(start);
+            if (bucket.addAll(run, force)) {
+                return;
+            }
+            // Dropped after it was looked up; make way for a new one.
+            buckets.remove(start, bucket);
+        }
+    }
+
+    /**
+     * Moves an event that was edited while in the list from its old place to its
+     * new one, and tells the listeners, so every index can follow it. Throws
+     * IllegalStateException, changing nothing, if the new place is compressed.
+     */
+    private void relocate(Event edited, EventKey oldKey) {
+        EventBucket from = buckets.get(bucketStart(oldKey.getTime()));
+        if (from == null) {
+            return;
+        }
+        EventBucket.Move result = EventBucket.Move.MOVED;
+        // Only the duration changed, so the event keeps its place.
+        while (!oldKey.equals(edited.getKey())) {
+            LocalDateTime start = bucketStart(edited.getKey().getTime());
+            EventBucket to = bucketAt(start);
+            result = from.moveTo(to, edited, oldKey);
+            if (result != EventBucket.Move.RETRY) {
+                break;
+            }
+            buckets.remove(start, to);
+        }
+        if (result == EventBucket.Move.MOVED) {
+            for (EventListListener l : listeners) {
+                l.eventMoved(edited);
+            }
+        }
+    }
+
+    private EventBucket bucketAt(LocalDateTime start) {
+        return buckets.computeIfAbsent(start,
+                s -> new EventBucket(s, s.plus(1, bucketUnit), voteForwarder, publisher));
+    }
+
+    /**
+     * Swaps the latest views of some buckets into the current version. The
+     * buckets' locks are held, so their views cannot change underneath.
+     */
+    private void publish(EventBucket... changed) {
+        version.updateAndGet(old -> {
+            PersistentSortedMap<LocalDateTime, EventBucket.View> views = old.buckets;
+            int size = old.size;
+            for (EventBucket b : changed) {
+                EventBucket.View now = b.view();
+                EventBucket.View was = views.get(b.getStart());
+                if (was != null && was.bucket != b) {
+                    // A bucket that has been dropped and replaced.
+                    continue;
+                }
+                size += now.size - (was == null ? 0 : was.size);
+                if (now.state == EventBucket.State.DROPPED) {
+                    views = views.remove(b.getStart());
+                } else {
+                    views = views.put(b.getStart(), now);
+                }
+            }
+            return new Version(views, size);
+        });
+    }
+
+    private List<List<Event>> runsByBucket(Event[] sorted) {
+        List<List<Event>> runs = new ArrayList<List<Event>>();
+        LocalDateTime end = null;
+        List<Event> run = null;
+        for (Event e : sorted) {
+            LocalDateTime time = e.getKey().getTime();
+            if (end == null || !time.isBefore(end)) {
+                run = new ArrayList<Event>();
+                runs.add(run);
+                end = bucketStart(time).plus(1, bucketUnit);
+            }
+            run.add(e);
+        }
+        return runs;
+    }
+
+    private LocalDateTime bucketStart(LocalDateTime time) {
+        LocalDate day = time.toLocalDate();
+        switch (bucketUnit) {
+        case DAYS:
+            return day.atStartOfDay();
+        case WEEKS:
+            return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+        case MONTHS:
+            return day.withDayOfMonth(1).atStartOfDay();
+        default:
+            return day.withDayOfYear(1).atStartOfDay();
+        }
+    }
+
+    private void fireDropped(List<Event> dropped) {
+        if (dropped.isEmpty()) {
+            return;
+        }
+        Collection<Event> view = Collections.unmodifiableList(dropped);
+        for (EventListListener l : listeners) {
+            l.eventsDropped(view);
+        }
+    }
+
+    private void fireVotesChanged(Event changed, String userID) {
+        for (EventListListener l : listeners) {
+            l.voteChanged(changed, userID);
+        }
+    }
+
+    private void fireRecurringChanged(RecurringEvent series) {
+        for (EventListListener l : listeners) {
+            l.recurringChanged(series);
+        }
+    }
+
+    /**
+     * Checks whether an event equal to the given one is in the list.
+     *
+     * @param event The event to look for.
+     * @return Whether a matching event is in the list.
+     */
+    public boolean contains(Event event) {
+        return getEvent(event.getKey()) != null;
+    }
+
+    /**
+     * Checks whether this very event is in the list, unlike contains, which is
+     * also true for another event with the same key. A read-only copy from a
+     * compressed bucket counts as the event it copies.
+     *
+     * @param event The event to look for.
+     * @return Whether the event is in the list.
+     */
+    public boolean holds(Event event) {
+        EventBucket bucket = buckets.get(bucketStart(event.getKey().getTime()));
+        return bucket != null && bucket.holds(event);
+    }
+
+    /**
+     * Looks up an event by its key.
+     *
+     * @param key The key of the event to find.
+     * @return The first event added with that key, or null if there is none.
+     */
+    public Event getEvent(EventKey key) {
+        EventBucket bucket = buckets.get(bucketStart(key.getTime()));
+        return bucket == null ? null : bucket.get(key);
+    }
+
+    /**
+     * Walks the event list in order, without copying it.
+     *
+     * @return An iterator over every event, earliest first.
+     */
+    @Override
+    public Iterator<Event> iterator() {
+        return new SlotView(null, null, Integer.MAX_VALUE).iterator();
+    }
+
+    /**
+     * Fetches the events, including occurrences of recurring events, that start
+     * inside a window of time. The result is a live view over the list rather than
+     * a copy.
+     *
+     * @param from The start of the window (inclusive).
+     * @param to   The end of the window (exclusive).
+     * @return The events in the window, earliest first.
+     */
+    public Iterable<Event> eventsBetween(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return Collections.emptyList();
+        }
+        return withOccurrences(new SlotView(from, to, Integer.MAX_VALUE), from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Collects the events, including occurrences of recurring events, that start
+     * inside a window of time and pass a filter. Each bucket in the window is
+     * searched on its own, with the buckets shared out over the common fork/join
+     * pool, so a long window is searched in parallel. All of them are read as of
+     * the same version of the list.
+     *
+     * @param from   The start of the window (inclusive).
+     * @param to     The end of the window (exclusive).
+     * @param filter Which events to keep. It may be called from several threads
+     *               at once.
+     * @return The matching events, earliest first.
+     */
+    public List<Event> findBetween(LocalDateTime from, LocalDateTime to, Predicate<? super Event> filter) {
+        if (!from.isBefore(to)) {
+            return new ArrayList<Event>();
+        }
+        EventKey low = probe(from);
+        EventKey high = probe(to);
+        List<EventBucket.View> range = new ArrayList<EventBucket.View>();
+        version.get().buckets.values(bucketStart(from), to).forEachRemaining(range::add);
+        List<Event> found = range.parallelStream().flatMap(b -> b.find(low, high, filter).stream())
+                .collect(Collectors.toList());
+        if (recurring.isEmpty()) {
+            return found;
+        }
+        List<Iterable<Event>> sources = new ArrayList<Iterable<Event>>(recurring.size() + 1);
+        sources.add(found);
+        for (RecurringEvent series : recurring) {
+            List<Event> occurrences = new ArrayList<Event>();
+            for (Event e : series.occurrencesBetween(from, to)) {
+                if (filter.test(e)) {
+                    occurrences.add(e);
+                }
+            }
+            sources.add(occurrences);
+        }
+        List<Event> merged = new ArrayList<Event>();
+        for (Event e : new MergedView(sources, Integer.MAX_VALUE)) {
+            merged.add(e);
+        }
+        return merged;
+    }
+
+    /**
+     * Fetches every stored event, merged with the occurrences of recurring events
+     * that start before a given time.
+     *
+     * @param until The time to stop adding occurrences (exclusive).
+     * @return The events, earliest first.
+     */
+    public Iterable<Event> withOccurrencesBefore(LocalDateTime until) {
+        return withOccurrences(this, LocalDateTime.MIN, until, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Fetches the events that start on a given day.
+     *
+     * @param date The day to look up.
+     * @return The events on that day, earliest first.
+     */
+    public Iterable<Event> eventsOnDay(LocalDate date) {
+        return eventsBetween(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Fetches the next few events starting at or after a given time.
+     *
+     * @param now   The time to start looking from.
+     * @param count The most events to return.
+     * @return Up to count upcoming events, earliest first.
+     */
+    public Iterable<Event> nextEvents(LocalDateTime now, int count) {
+        return withOccurrences(new SlotView(now, null, count), now, null, count);
+    }
+
+    private Iterable<Event> withOccurrences(Iterable<Event> stored, LocalDateTime from, LocalDateTime to, int limit) {
+        if (recurring.isEmpty()) {
+            return stored;
+        }
+        List<Iterable<Event>> sources = new ArrayList<Iterable<Event>>(recurring.size() + 1);
+        sources.add(stored);
+        for (RecurringEvent series : recurring) {
+            sources.add(series.occurrencesBetween(from, to));
+        }
+        return new MergedView(sources, limit);
+    }
+
+    /**
+     * Builds a key that sorts before every real event at the given time, since the
+     * empty string sorts before every name and location.
+     */
+    private static EventKey probe(LocalDateTime time) {
+        return new EventKey(time, "", "");
     }
 
     /**
@@ -56,12 +624,305 @@ public class EventList {
      * in the corresponding JUnit class.
      */
     public void displayEvents() {
-        this.sort();
-        for (Event e : eventsList) {
+        for (Event e : this) {
             System.out.println("Event Name: " + e.getName());
             System.out.println("Event Location: " + e.getLocation());
             System.out.println("Event Date and Time: " + e.getEventDateTime());
             System.out.println();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A version of the list: the view of every bucket at one moment, and how
+     * many events they hold between them. Never changed once made.
+     */
+    private static final class Version {
+        private final PersistentSortedMap<LocalDateTime, EventBucket.View> buckets;
+        private final int size;
+
+        Version(PersistentSortedMap<LocalDateTime, EventBucket.View> buckets, int size) {
+            this.buckets = buckets;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The stored events of the list as they were at one moment. Reading a
+     * snapshot takes no locks and is never disturbed by changes to the list,
+     * though the events themselves are shared with it, so their votes stay live.
+     * Occurrences of recurring events are not included.
+     */
+    public class Snapshot implements Iterable<Event> {
+        private final Version pinned;
+
+        private Snapshot(Version pinned) {
+            this.pinned = pinned;
+        }
+
+        /**
+         * Fetches the number of events in the snapshot.
+         *
+         * @return The number of events.
+         */
+        public int getSize() {
+            return pinned.size;
+        }
+
+        /**
+         * Walks the snapshot in order.
+         *
+         * @return An iterator over every event, earliest first.
+         */
+        @Override
+        public Iterator<Event> iterator() {
+            return new SlotView(pinned, null, null, Integer.MAX_VALUE).iterator();
+        }
+
+        /**
+         * Fetches the events in the snapshot that start inside a window of time.
+         *
+         * @param from The start of the window (inclusive).
+         * @param to   The end of the window (exclusive).
+         * @return The events in the window, earliest first.
+         */
+        public Iterable<Event> eventsBetween(LocalDateTime from, LocalDateTime to) {
+            if (!from.isBefore(to)) {
+                return Collections.emptyList();
+            }
+            return new SlotView(pinned, from, to, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Walks the keys the events were filed under when the snapshot was taken,
+         * one per event, in step with iterator(). An event edited since then has
+         * a new key of its own, but is still filed under its old one here.
+         *
+         * @return The key of every event as of the snapshot, earliest first.
+         */
+        Iterable<EventKey> keys() {
+            return () -> new Iterator<EventKey>() {
+                private final Iterator<EventBucket.View> views = pinned.buckets.values(null, null);
+                private PersistentSortedMap<EventKey, Event[]> slots;
+                private Iterator<EventKey> slotKeys = Collections.emptyIterator();
+                private EventKey key;
+                private int left;
+
+                @Override
+                public boolean hasNext() {
+                    while (left == 0) {
+                        while (!slotKeys.hasNext()) {
+                            if (!views.hasNext()) {
+                                return false;
+                            }
+                            slots = views.next().slots();
+                            slotKeys = slots.keys(null, null);
+                        }
+                        key = slotKeys.next();
+                        left = slots.get(key).length;
+                    }
+                    return true;
+                }
+
+                @Override
+                public EventKey next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    left--;
+                    return key;
+                }
+            };
+        }
+    }
+
+    /**
+     * Read-only view over the ordered index between two times, capped at a number
+     * of events. It walks the buckets in the window one after another, as of
+     * the version of the list that was current when the walk began.
+     */
+    private class SlotView implements Iterable<Event> {
+        private final Version pinned;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final int limit;
+
+        // A null from or to leaves that end of the window open.
+        SlotView(LocalDateTime from, LocalDateTime to, int limit) {
+            this(null, from, to, limit);
+        }
+
+        // A null version reads whichever is current.
+        SlotView(Version pinned, LocalDateTime from, LocalDateTime to, int limit) {
+            this.pinned = pinned;
+            this.from = from;
+            this.to = to;
+            this.limit = limit;
+        }
+
+        @Override
+        public Iterator<Event> iterator() {
+            Version read = pinned != null ? pinned : version.get();
+            Iterator<EventBucket.View> range = read.buckets.values(from == null ? null : bucketStart(from), to);
+            final Iterator<Event> events = new SlotIterator(
+                    new BucketSlots(range, from == null ? null : probe(from), to == null ? null : probe(to)));
+            return new Iterator<Event>() {
+                private int returned = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return returned < limit && events.hasNext();
+                }
+
+                @Override
+                public Event next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    returned++;
+                    return events.next();
+                }
+            };
+        }
+    }
+
+    /**
+     * Merges several runs of events, each already in order, into one, capped at a
+     * number of events. Events that compare as equal come out in source order.
+     */
+    private static class MergedView implements Iterable<Event> {
+        private final List<Iterable<Event>> sources;
+        private final int limit;
+
+        MergedView(List<Iterable<Event>> sources, int limit) {
+            this.sources = sources;
+            this.limit = limit;
+        }
+
+        @Override
+        public Iterator<Event> iterator() {
+            final PriorityQueue<Head> heads = new PriorityQueue<Head>(sources.size());
+            for (int i = 0; i < sources.size(); i++) {
+                Iterator<Event> run = sources.get(i).iterator();
+                if (run.hasNext()) {
+                    heads.add(new Head(run.next(), run, i));
+                }
+            }
+            return new Iterator<Event>() {
+                private int returned = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return returned < limit && !heads.isEmpty();
+                }
+
+                @Override
+                public Event next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    returned++;
+                    Head head = heads.poll();
+                    Event result = head.event;
+                    if (head.rest.hasNext()) {
+                        head.event = head.rest.next();
+                        head.key = head.event.getKey();
+                        heads.add(head);
+                    }
+                    return result;
+                }
+            };
+        }
+    }
+
+    /**
+     * The next event of one run being merged.
+     */
+    private static class Head implements Comparable<Head> {
+        private Event event;
+        private EventKey key;
+        private final Iterator<Event> rest;
+        private final int source;
+
+        Head(Event event, Iterator<Event> rest, int source) {
+            this.event = event;
+            this.key = event.getKey();
+            this.rest = rest;
+            this.source = source;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            int c = key.compareTo(other.key);
+            return c != 0 ? c : Integer.compare(source, other.source);
+        }
+    }
+
+    /**
+     * Chains the slots of a run of buckets, trimmed to a range of keys.
+     */
+    private static class BucketSlots implements Iterator<Event[]> {
+        private final Iterator<EventBucket.View> buckets;
+        private final EventKey from;
+        private final EventKey to;
+        private Iterator<Event[]> current = Collections.emptyIterator();
+
+        // A null from or to leaves that end of the range open.
+        BucketSlots(Iterator<EventBucket.View> buckets, EventKey from, EventKey to) {
+            this.buckets = buckets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (!buckets.hasNext()) {
+                    return false;
+                }
+                current = buckets.next().slots().values(from, to);
+            }
+            return true;
+        }
+
+        @Override
+        public Event[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+
+    /**
+     * Flattens the slots of the ordered index into a single run of events.
+     */
+    private static class SlotIterator implements Iterator<Event> {
+        private final Iterator<Event[]> slots;
+        private Event[] current;
+        private int index;
+
+        SlotIterator(Iterator<Event[]> slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (current == null || index >= current.length) {
+                if (!slots.hasNext()) {
+                    return false;
+                }
+                current = slots.next();
+                index = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public Event next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current[index++];
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.Collection;
+
+/**
+ * Hears about changes to the events held in an EventList. Every method does
+ * nothing by default, so listeners only override what they care about.
+ */
+public interface EventListListener {
+    /**
+     * Called after an event is added to the list.
+     * 
+     * @param added The event that was added.
+     */
+    default void eventAdded(Event added) {
+    }
+
+    /**
+     * Called after an event is removed from the list.
+     * 
+     * @param removed The event that was removed.
+     */
+    default void eventRemoved(Event removed) {
+    }
+
+    /**
+     * Called after a whole bucket of events is dropped from the list, or
+     * compressed so that the events themselves are no longer held. Calls
+     * eventRemoved for each one unless overridden.
+     * 
+     * @param dropped The events that were let go.
+     */
+    default void eventsDropped(Collection<Event> dropped) {
+        for (Event e : dropped) {
+            eventRemoved(e);
+        }
+    }
+
+    /**
+     * Called after an event changes position in the list because its date-time,
+     * name or location was edited, or after its duration was edited.
+     * 
+     * @param moved The event that moved.
+     */
+    default void eventMoved(Event moved) {
+    }
+
+    /**
+     * Called after the votes on an event in the list have changed.
+     * 
+     * @param changed The event whose votes changed.
+     */
+    default void votesChanged(Event changed) {
+    }
+
+    /**
+     * Called after one user's vote on an event in the list has changed. Calls
+     * votesChanged unless overridden.
+     * 
+     * @param changed The event whose votes changed.
+     * @param userID  The user whose vote changed, or null if it is not known.
+     */
+    default void voteChanged(Event changed, String userID) {
+        votesChanged(changed);
+    }
+
+    /**
+     * Called after a recurring event is added to or removed from the list, or
+     * one of its occurrences is cancelled or overridden.
+     * 
+     * @param series The recurring event that changed.
+     */
+    default void recurringChanged(RecurringEvent series) {
+    }
+}
@@ -0,0 +1,637 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP API that serves the events of an EventStore as JSON and lets
+ * clients create events and cast, switch and remove votes. It runs on the
+ * JDK's built-in server, so it needs nothing beyond the JDK:
+ *
+ * <pre>
+ * GET    /events?from=&amp;to=&amp;limit=     events, earliest first (ISO-8601 times)
+ * GET    /events/stream?ids=1,2,3      vote counts as Server-Sent Events
+ * POST   /events                       {"author", "name", "location", "time", "minutes"}
+ * GET    /events/{id}
+ * DELETE /events/{id}
+ * POST   /events/{id}/votes            {"user", "up"}
+ * POST   /events/{id}/votes/{user}/switch
+ * DELETE /events/{id}/votes/{user}
+ * </pre>
+ *
+ * Each request runs on its own virtual thread when the JVM has them, so a
+ * request waiting for the store's log to sync ties up no platform thread and
+ * open connections cost only their socket. On older JVMs requests share a
+ * fixed pool instead. Responses are written by EventExporter straight into the
+ * response stream through a small reused buffer, with no intermediate String
+ * or document, and lists are read from one lock-free snapshot of the list.
+ *
+ * The stream sends the counts of each watched event at once, then again
+ * whenever they change, at most once per event every SCORE_INTERVAL_MILLIS
+ * (see ScoreFeed), so a burst of votes becomes a few messages a second. A
+ * watched event that is deleted gets a "removed" message instead, and the
+ * stream ends once every event it watches is gone. Each stream is handed off
+ * to a thread of its own, apart from the request threads, so however many
+ * streams are open, and however slowly their clients read, votes and other
+ * requests never wait for them. At most MAX_STREAMS streams are open at once;
+ * past that a stream request gets 503.
+ *
+ * Events are addressed by their event ID, which is only good while the server
+ * runs. Events in compressed buckets are read-only copies and cannot be looked
+ * up by ID.
+ */
+public class EventServer implements Closeable {
+    // Connections waiting to be accepted, for bursts of new clients.
+    private static final int BACKLOG = 8192;
+    // Handler threads when there are no virtual threads.
+    private static final int FALLBACK_THREADS = 256;
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 10000;
+    private static final int MAX_BODY = 16 * 1024;
+    private static final int RESPONSE_BUFFER = 4 * 1024;
+    private static final long SCORE_INTERVAL_MILLIS = 250;
+    private static final int MAX_STREAMS = 1024;
+    // How often an idle stream sends a comment, so proxies keep it open.
+    private static final long KEEPALIVE_MILLIS = 15000;
+
+    static {
+        // Chunked responses end in a few small writes, which Nagle's algorithm would hold back for an ACK.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final EventStore store;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    // Each open stream holds one of these threads, and one permit, until it ends.
+    private final ExecutorService streams;
+    private final Semaphore streamSlots;
+    private final EventExporter exporter;
+    private final ConcurrentHashMap<Long, Event> eventsByID;
+    private final ScoreFeed scores;
+    private final EventListListener indexer = new EventListListener() {
+        @Override
+        public void eventAdded(Event e) {
+            eventsByID.put(e.getEventID(), e);
+        }
+
+        @Override
+        public void eventRemoved(Event e) {
+            eventsByID.remove(e.getEventID());
+        }
+    };
+
+    /**
+     * Creates a server for a store. It does not take requests until started.
+     *
+     * @param store   The store to serve.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @throws IOException If the address cannot be bound.
+     */
+    public EventServer(EventStore store, InetSocketAddress address) throws IOException {
+        this.store = store;
+        this.exporter = new EventExporter(Locale.ROOT, RESPONSE_BUFFER);
+        this.eventsByID = new ConcurrentHashMap<Long, Event>();
+        // Changes to the store wait while it is locked, so no event is missed or indexed twice.
+        synchronized (store) {
+            EventList events = store.getEvents();
+            for (Event e : events) {
+                indexer.eventAdded(e);
+            }
+            events.addListener(indexer);
+        }
+        this.scores = new ScoreFeed(store.getEvents(), SCORE_INTERVAL_MILLIS);
+        this.handlers = newHandlerExecutor("EventServer-handler", FALLBACK_THREADS);
+        this.streams = newHandlerExecutor("EventServer-stream", MAX_STREAMS);
+        this.streamSlots = new Semaphore(MAX_STREAMS);
+        this.server = HttpServer.create(address, BACKLOG);
+        server.createContext("/events", this::handle);
+        server.setExecutor(handlers);
+    }
+
+    /**
+     * Starts taking requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Fetches the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Ends every stream, stops taking requests, lets those underway finish for
+     * up to a second, and stops following the store. The store itself is left
+     * open.
+     */
+    @Override
+    public void close() {
+        scores.close();
+        server.stop(1);
+        handlers.shutdown();
+        streams.shutdown();
+        store.getEvents().removeListener(indexer);
+    }
+
+    /**
+     * Serves a store from the command line until the process is stopped.
+     *
+     * @param args The store's directory and, optionally, the port (8151 by
+     *             default).
+     * @throws IOException If the store cannot be opened or the port bound.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: EventServer <store directory> [port]");
+            return;
+        }
+        Path directory = Paths.get(args[0]);
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8151;
+        EventStore store = new EventStore(directory, 100000);
+        EventServer server = new EventServer(store, new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                store.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        server.start();
+        System.out.println("Serving " + directory + " on port " + server.getPort());
+    }
+
+    /**
+     * Makes a virtual thread per task executor if the JVM has one (Java 21 on),
+     * looked up by name so this class still builds and runs on older JDKs, or
+     * else a fixed pool of daemon threads, started as they are needed.
+     */
+    static ExecutorService newHandlerExecutor(String name, int fallbackThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(fallbackThreads, r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        boolean handedOff = false;
+        try {
+            String[] path = exchange.getRequestURI().getRawPath().split("/");
+            String method = exchange.getRequestMethod();
+            if (path.length < 2 || !path[1].equals("events")) {
+                sendError(exchange, 404, "No such resource");
+            } else if (path.length == 3 && path[2].equals("stream") && method.equals("GET")) {
+                handedOff = streamScores(exchange);
+            } else if (path.length > 2) {
+                handleEvent(exchange, method, path);
+            } else if (method.equals("GET")) {
+                listEvents(exchange);
+            } else if (method.equals("POST")) {
+                createEvent(exchange);
+            } else {
+                sendError(exchange, 405, method + " not allowed");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            failed(exchange, 400, e);
+        } catch (IllegalStateException e) {
+            // The event lies in a sealed or compressed part of the list.
+            failed(exchange, 409, e);
+        } catch (IOException | RuntimeException e) {
+            failed(exchange, 500, e);
+        } finally {
+            if (!handedOff) {
+                exchange.close();
+            }
+        }
+    }
+
+    private void handleEvent(HttpExchange exchange, String method, String[] path) throws IOException {
+        Event event = findEvent(path[2]);
+        if (event == null) {
+            sendError(exchange, 404, "No event " + path[2]);
+        } else if (path.length == 3 && method.equals("GET")) {
+            sendEvent(exchange, 200, event);
+        } else if (path.length == 3 && method.equals("DELETE")) {
+            store.deleteEvent(event);
+            exchange.sendResponseHeaders(204, -1);
+        } else if (path.length >= 4 && path[3].equals("votes")) {
+            handleVote(exchange, method, path, event);
+        } else {
+            sendError(exchange, 404, "No such resource");
+        }
+    }
+
+    private void handleVote(HttpExchange exchange, String method, String[] path, Event event) throws IOException {
+        if (path.length == 4 && method.equals("POST")) {
+            Map<String, Object> body = readBody(exchange);
+            String user = field(body, "user", String.class);
+            store.castVote(event, new Vote(user, field(body, "up", Boolean.class)));
+            sendEvent(exchange, 200, event);
+            return;
+        }
+        String user = path.length > 4 ? URLDecoder.decode(path[4], StandardCharsets.UTF_8) : null;
+        if (user == null || !(path.length == 5 && method.equals("DELETE")
+                || path.length == 6 && path[5].equals("switch") && method.equals("POST"))) {
+            sendError(exchange, 404, "No such resource");
+        } else if (!event.hasVoted(user)) {
+            sendError(exchange, 404, "No vote from " + user);
+        } else {
+            if (path.length == 5) {
+                store.removeVote(event, user);
+            } else {
+                store.switchVote(event, user);
+            }
+            sendEvent(exchange, 200, event);
+        }
+    }
+
+    private void listEvents(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        LocalDateTime from = query.containsKey("from") ? LocalDateTime.parse(query.get("from")) : null;
+        LocalDateTime to = query.containsKey("to") ? LocalDateTime.parse(query.get("to")) : null;
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_LIMIT;
+        if (limit < 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be from 0 to " + MAX_LIMIT);
+        }
+        EventList events = store.getEvents();
+        Iterable<Event> found;
+        if (from == null && to == null) {
+            found = events.snapshot();
+        } else if (to == null) {
+            found = events.nextEvents(from, limit);
+        } else {
+            found = events.eventsBetween(from == null ? LocalDateTime.MIN : from, to);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        // A length of 0 sends the body in chunks as the exporter fills its buffer.
+        exchange.sendResponseHeaders(200, 0);
+        exporter.exportJson(first(found, limit), Channels.newChannel(exchange.getResponseBody()));
+    }
+
+    // Checks the request here, then hands the stream to its own thread, which closes the exchange.
+    private boolean streamScores(HttpExchange exchange) throws IOException {
+        String ids = parseQuery(exchange.getRequestURI().getRawQuery()).get("ids");
+        List<Event> watched = new ArrayList<Event>();
+        for (String id : ids == null ? new String[0] : ids.split(",")) {
+            Event event = findEvent(id.trim());
+            if (event == null) {
+                sendError(exchange, 404, "No event " + id);
+                return false;
+            }
+            watched.add(event);
+        }
+        if (watched.isEmpty()) {
+            throw new IllegalArgumentException("ids must list at least one event");
+        }
+        if (!streamSlots.tryAcquire()) {
+            sendError(exchange, 503, "Too many open streams");
+            return false;
+        }
+        try {
+            streams.execute(() -> {
+                try {
+                    sendScores(exchange, watched);
+                } finally {
+                    streamSlots.release();
+                    exchange.close();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            streamSlots.release();
+            throw e;
+        }
+        return true;
+    }
+
+    private void sendScores(HttpExchange exchange, List<Event> watched) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            try (ScoreFeed.Subscription subscription = scores.subscribe(watched)) {
+                // The counts as they are now, then only what changes.
+                List<EventChange> changed = new ArrayList<EventChange>();
+                for (Event e : watched) {
+                    changed.add(new EventChange(EventChange.Kind.VOTES_CHANGED, e));
+                }
+                while (changed != null) {
+                    out.write(scoreMessages(changed));
+                    out.flush();
+                    changed = subscription.take(KEEPALIVE_MILLIS);
+                }
+            }
+        } catch (IOException e) {
+            // The client went away.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] scoreMessages(List<EventChange> changed) {
+        if (changed.isEmpty()) {
+            return ":\n\n".getBytes(StandardCharsets.US_ASCII);
+        }
+        StringBuilder text = new StringBuilder(changed.size() * 80);
+        for (EventChange change : changed) {
+            Event e = change.getEvent();
+            if (change.getKind() == EventChange.Kind.REMOVED) {
+                text.append("event: removed\ndata: {\"id\":").append(e.getEventID()).append("}\n\n");
+                continue;
+            }
+            int up = e.getUpvotes();
+            int down = e.getDownvotes();
+            text.append("event: score\ndata: {\"id\":").append(e.getEventID()).append(",\"upvotes\":").append(up)
+                    .append(",\"downvotes\":").append(down).append(",\"score\":").append(up - down)
+                    .append("}\n\n");
+        }
+        return text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void createEvent(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = readBody(exchange);
+        LocalDateTime time = LocalDateTime.parse(field(body, "time", String.class));
+        Duration length = body.get("minutes") == null ? Event.DEFAULT_DURATION
+                : Duration.ofMinutes(field(body, "minutes", Long.class));
+        Event event = new Event(field(body, "author", String.class), field(body, "name", String.class),
+                field(body, "location", String.class), time, length);
+        if (store.addEvent(event)) {
+            sendEvent(exchange, 201, event);
+        } else {
+            sendError(exchange, 409, "An event with that name and location is already at " + time);
+        }
+    }
+
+    private Event findEvent(String id) {
+        try {
+            return eventsByID.get(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void sendEvent(HttpExchange exchange, int status, Event event) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        exporter.exportJson(event, Channels.newChannel(exchange.getResponseBody()));
+    }
+
+    // Once a response has started there is no way to report an error but to cut it short.
+    private static void failed(HttpExchange exchange, int status, Exception e) throws IOException {
+        if (exchange.getResponseCode() == -1) {
+            sendError(exchange, status, e.getMessage());
+        } else if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":\"");
+        String text = message == null ? "" : message;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        byte[] bytes = json.append("\"}\n").toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        byte[] bytes;
+        try (InputStream in = exchange.getRequestBody()) {
+            bytes = in.readNBytes(MAX_BODY + 1);
+        }
+        if (bytes.length > MAX_BODY) {
+            throw new IllegalArgumentException("Request body over " + MAX_BODY + " bytes");
+        }
+        return new JsonReader(new String(bytes, StandardCharsets.UTF_8)).readObject();
+    }
+
+    private static <T> T field(Map<String, Object> body, String name, Class<T> type) {
+        Object value = body.get(name);
+        if (!type.isInstance(value)) {
+            throw new IllegalArgumentException("Expected " + type.getSimpleName() + " field \"" + name + "\"");
+        }
+        return type.cast(value);
+    }
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> query = new HashMap<String, String>();
+        if (raw == null || raw.isEmpty()) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static Iterable<Event> first(Iterable<Event> events, int limit) {
+        return () -> new Iterator<Event>() {
+            private final Iterator<Event> rest = events.iterator();
+            private int returned = 0;
+
+            @Override
+            public boolean hasNext() {
+                return returned < limit && rest.hasNext();
+            }
+
+            @Override
+            public Event next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                returned++;
+                return rest.next();
+            }
+        };
+    }
+
+    /**
+     * Reads a flat JSON object of strings, whole numbers, booleans and nulls,
+     * which is all a request body holds.
+     */
+    private static class JsonReader {
+        private final String text;
+        private int at;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> readObject() {
+            Map<String, Object> object = new HashMap<String, Object>();
+            expect('{');
+            if (peek() == '}') {
+                at++;
+            } else {
+                do {
+                    String name = readString();
+                    expect(':');
+                    object.put(name, readValue());
+                } while (next(',', '}') == ',');
+            }
+            if (peek() != 0) {
+                throw error("Unexpected text after object");
+            }
+            return object;
+        }
+
+        private Object readValue() {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (text.startsWith("true", at)) {
+                at += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", at)) {
+                at += 5;
+                return Boolean.FALSE;
+            }
+            if (text.startsWith("null", at)) {
+                at += 4;
+                return null;
+            }
+            int start = at;
+            if (c == '-') {
+                at++;
+            }
+            while (at < text.length() && Character.isDigit(text.charAt(at))) {
+                at++;
+            }
+            try {
+                return Long.valueOf(text.substring(start, at));
+            } catch (NumberFormatException e) {
+                throw error("Expected a value");
+            }
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder s = new StringBuilder();
+            while (true) {
+                if (at >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = text.charAt(at++);
+                if (c == '"') {
+                    return s.toString();
+                }
+                if (c != '\\') {
+                    s.append(c);
+                    continue;
+                }
+                if (at >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char escaped = text.charAt(at++);
+                switch (escaped) {
+                case 'b':
+                    s.append('\b');
+                    break;
+                case 'f':
+                    s.append('\f');
+                    break;
+                case 'n':
+                    s.append('\n');
+                    break;
+                case 'r':
+                    s.append('\r');
+                    break;
+                case 't':
+                    s.append('\t');
+                    break;
+                case 'u':
+                    if (at + 4 > text.length()) {
+                        throw error("Bad escape");
+                    }
+                    s.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                    at += 4;
+                    break;
+                default:
+                    s.append(escaped);
+                }
+            }
+        }
+
+        // Skips white space and fetches the next character, or 0 at the end.
+        private char peek() {
+            while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+                at++;
+            }
+            return at < text.length() ? text.charAt(at) : 0;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            at++;
+        }
+
+        private char next(char a, char b) {
+            char c = peek();
+            if (c != a && c != b) {
+                throw error("Expected '" + a + "' or '" + b + "'");
+            }
+            at++;
+            return c;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at character " + at + " of the request body");
+        }
+    }
+}
@@ -0,0 +1,757 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Durable home for the EventList, the votes on its events and the known users.
+ *
+ * Every change is applied in memory and appended to a write-ahead log, and the
+ * call returns once the change is on disk, so readers may see a change a
+ * moment before it is durable. If the log cannot be written, the change that
+ * failed stays in memory but the store refuses every change after it, so no
+ * change is acknowledged that builds on one that was lost, and reopening the
+ * store brings back what reached the disk. Changes from many threads that come
+ * in while the log is being synced are written and synced together, so one
+ * fsync covers a whole batch. Every so often the full state is written to a
+ * snapshot (see SnapshotCodec) and the log starts over. Changes only wait for
+ * the state to be pinned and the log to be switched, not for the snapshot to
+ * be written, so a snapshot may already hold a few changes that come after
+ * it; logged changes set state rather than flip it, so replaying those again
+ * is harmless. Opening a store memory-maps the newest snapshot and replays
+ * every log written after it.
+ *
+ * Events are identified in the log by their key, so the store keeps at most one
+ * event per key, and stored events have to be edited through editEvent rather
+ * than their own setters for the edit, and the votes after it, to be logged.
+ */
+public class EventStore implements Closeable {
+    private static final byte ADD_EVENT = 1;
+    private static final byte DELETE_EVENT = 2;
+    private static final byte CAST_VOTE = 3;
+    private static final byte SWITCH_VOTE = 4;
+    private static final byte REMOVE_VOTE = 5;
+    private static final byte PUT_USER = 6;
+    private static final byte REMOVE_USER = 7;
+    private static final byte EDIT_EVENT = 8;
+
+    private final Path directory;
+    private final long snapshotThreshold;
+    private final EventList events;
+    private final ConcurrentHashMap<String, User> users;
+
+    // Guarded by this: the applied state and the order records enter the log.
+    private long lastSeq;
+    private long snapshotSeq;
+    // The sequence number the current log starts after, which names its file.
+    private long logSeq;
+
+    // Held for a whole snapshot, so two are never written at once.
+    private final Object snapshotLock = new Object();
+
+    // Guarded by logLock: the batch waiting for the flusher and the log file.
+    private final Object logLock = new Object();
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    private long appendedSeq;
+    private long durableSeq;
+    private FileChannel log;
+    // The log to switch to once the first rotateAt bytes of pending are written.
+    private FileChannel nextLog;
+    private int rotateAt;
+    private IOException failure;
+    private boolean closed;
+    private boolean flusherStopped;
+
+    private final Thread flusher;
+    private final ExecutorService snapshotter;
+    private final AtomicBoolean snapshotQueued;
+
+    /**
+     * Opens the store kept in a directory, creating it if needed, and recovers the
+     * state saved there.
+     *
+     * @param directory         The directory holding the snapshot and log files.
+     * @param snapshotThreshold How many logged changes to allow before a new
+     *                          snapshot is taken in the background.
+     * @throws IOException If the files cannot be read or created.
+     */
+    public EventStore(Path directory, long snapshotThreshold) throws IOException {
+        this.directory = directory;
+        this.snapshotThreshold = snapshotThreshold;
+        this.events = new EventList();
+        this.users = new ConcurrentHashMap<String, User>();
+        this.pending = ByteBuffer.allocate(64 * 1024);
+        this.spare = ByteBuffer.allocate(64 * 1024);
+        this.snapshotQueued = new AtomicBoolean();
+
+        Files.createDirectories(directory);
+        recover();
+
+        flusher = new Thread(this::flushLoop, "EventStore-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        snapshotter = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "EventStore-snapshotter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Fetches the events held by the store. Changes should go through the store so
+     * they are logged; the list itself should only be read.
+     *
+     * @return The stored event list.
+     */
+    public EventList getEvents() {
+        return events;
+    }
+
+    /**
+     * Looks up a stored user.
+     *
+     * @param userID The ID of the user.
+     * @return The user, or null if there is none with that ID.
+     */
+    public User getUser(String userID) {
+        return users.get(userID);
+    }
+
+    /**
+     * Fetches every stored user.
+     *
+     * @return A read-only view of the stored users.
+     */
+    public Collection<User> getUsers() {
+        return Collections.unmodifiableCollection(users.values());
+    }
+
+    /**
+     * Adds an event and waits for it to be logged.
+     *
+     * @param event The event to add.
+     * @return False if an event with the same key is already stored.
+     * @throws IOException If the change could not be made durable.
+     */
+    public boolean addEvent(Event event) throws IOException {
+        long seq;
+        synchronized (this) {
+            checkWritable();
+            if (events.contains(event)) {
+                return false;
+            }
+            events.addEvent(event);
+            seq = append(addEventRecord(event));
+        }
+        awaitDurable(seq);
+        return true;
+    }
+
+    /**
+     * Deletes an event and waits for the deletion to be logged.
+     *
+     * @param event The event to delete.
+     * @throws IOException If the change could not be made durable.
+     */
+    public void deleteEvent(Event event) throws IOException {
+        long seq;
+        synchronized (this) {
+            checkWritable();
+            if (!events.contains(event)) {
+                return;
+            }
+            events.deleteEvent(event);
+            seq = append(record(DELETE_EVENT, event.getKey()));
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Edits a stored event and waits for the edit to be logged.
+     *
+     * @param event    The event to edit.
+     * @param name     The new name.
+     * @param location The new location.
+     * @param time     The new date-time.
+     * @param duration The new duration.
+     * @return False if another stored event already has the new key.
+     * @throws IOException           If the change could not be made durable.
+     * @throws IllegalStateException If the new time is in a compressed bucket;
+     *                               nothing is changed or logged.
+     */
+    public boolean editEvent(Event event, String name, String location, LocalDateTime time, Duration duration)
+            throws IOException {
+        long seq;
+        synchronized (this) {
+            checkWritable();
+            EventKey oldKey = event.getKey();
+            EventKey newKey = new EventKey(time, name, location);
+            Event holder = events.getEvent(newKey);
+            if (holder != null && holder != event) {
+                return false;
+            }
+            event.edit(newKey, duration);
+            ByteBuffer b = ByteBuffer.allocate(1 + sizeOf(oldKey) + sizeOf(newKey) + 12);
+            b.put(EDIT_EVENT);
+            putKey(b, oldKey);
+            putKey(b, newKey);
+            b.putLong(duration.getSeconds());
+            b.putInt(duration.getNano());
+            seq = append(b);
+        }
+        awaitDurable(seq);
+        return true;
+    }
+
+    /**
+     * Casts a vote on a stored event and waits for it to be logged.
+     *
+     * @param event The event being voted on.
+     * @param vote  The vote to cast.
+     * @throws IOException If the change could not be made durable.
+     */
+    public void castVote(Event event, Vote vote) throws IOException {
+        long seq;
+        synchronized (this) {
+            checkWritable();
+            event.addVote(vote);
+            seq = append(record(CAST_VOTE, event.getKey(), vote.getAuthorID(), vote.getValue()));
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Switches a user's vote on a stored event and waits for it to be logged.
+     *
+     * @param event  The event that was voted on.
+     * @param userID The user whose vote to switch.
+     * @throws IOException If the change could not be made durable.
+     */
+    public void switchVote(Event event, String userID) throws IOException {
+        long seq;
+        synchronized (this) {
+            checkWritable();
+            event.switchVote(userID);
+            if (!event.hasVoted(userID)) {
+                return;
+            }
+            // Logged as the vote it became, so replaying it over a newer snapshot cannot flip it back.
+            seq = append(record(CAST_VOTE, event.getKey(), userID, event.hasUpvoted(userID)));
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Removes a user's vote on a stored event and waits for it to be logged.
+     *
+     * @param event  The event that was voted on.
+     * @param userID The user whose vote to remove.
+     * @throws IOException If the change could not be made durable.
+     */
+    public void removeVote(Event event, String userID) throws IOException {
+        long seq;
+        synchronized (this) {
+            checkWritable();
+            event.removeVoteByID(userID);
+            seq = append(record(REMOVE_VOTE, event.getKey(), userID, false));
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Adds or replaces a user and waits for the change to be logged.
+     *
+     * @param user The user to store.
+     * @throws IOException If the change could not be made durable.
+     */
+    public void putUser(User user) throws IOException {
+        long seq;
+        synchronized (this) {
+            checkWritable();
+            users.put(user.getUserID(), user);
+            seq = append(userRecord(user));
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Removes a user and waits for the change to be logged.
+     *
+     * @param userID The ID of the user to remove.
+     * @throws IOException If the change could not be made durable.
+     */
+    public void removeUser(String userID) throws IOException {
+        long seq;
+        synchronized (this) {
+            checkWritable();
+            if (users.remove(userID) == null) {
+                return;
+            }
+            ByteBuffer b = ByteBuffer.allocate(1 + sizeOf(userID));
+            b.put(REMOVE_USER);
+            putString(b, userID);
+            seq = append(b);
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Writes the full state to a new snapshot and starts a fresh log after it.
+     * Changes wait only while the state is pinned and the log is switched, not
+     * while the snapshot is written and synced.
+     *
+     * @throws IOException If the snapshot could not be written.
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long seq;
+            EventList.Snapshot state;
+            List<User> saved;
+            synchronized (this) {
+                synchronized (logLock) {
+                    if (closed) {
+                        return;
+                    }
+                }
+                // A failed log may have lost changes the state in memory still has.
+                checkWritable();
+                if (lastSeq == snapshotSeq) {
+                    return;
+                }
+                seq = lastSeq;
+                state = events.snapshot();
+                saved = new ArrayList<User>(users.values());
+                if (seq != logSeq) {
+                    FileChannel next = openLog(seq);
+                    synchronized (logLock) {
+                        // What is pending now is all at or before seq, so it still goes to the old log.
+                        nextLog = next;
+                        rotateAt = pending.position();
+                        logLock.notifyAll();
+                    }
+                    logSeq = seq;
+                }
+            }
+
+            Path tmp = directory.resolve("snapshot.tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                SnapshotCodec.encode(out, seq, saved, state, state.keys(), state.getSize());
+                out.force(true);
+            }
+            Files.move(tmp, snapshotFile(seq), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            synchronized (this) {
+                snapshotSeq = seq;
+            }
+            // Only now is everything up to seq safe without the older files.
+            deleteBefore("wal-*.log", seq);
+            deleteBefore("snapshot-*.bin", seq);
+        }
+    }
+
+    /**
+     * Stops the background threads and closes the log. Changes that already
+     * returned are on disk.
+     *
+     * @throws IOException If the log could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            synchronized (logLock) {
+                closed = true;
+                logLock.notifyAll();
+            }
+        }
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (logLock) {
+            log.close();
+            if (nextLog != null) {
+                nextLog.close();
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        long newest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "snapshot-*.bin")) {
+            for (Path p : files) {
+                newest = Math.max(newest, sequenceOf(p));
+            }
+        }
+        if (newest >= 0) {
+            try (FileChannel in = FileChannel.open(snapshotFile(newest), StandardOpenOption.READ)) {
+                MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                SnapshotCodec.decode(map, users, events);
+            }
+        }
+        snapshotSeq = Math.max(newest, 0);
+        lastSeq = snapshotSeq;
+        logSeq = snapshotSeq;
+
+        // A snapshot that failed after the log was switched leaves its log behind, so follow on to it.
+        log = openLog(logSeq);
+        while (true) {
+            long end = 0;
+            if (log.size() > 0) {
+                end = replay(log.map(FileChannel.MapMode.READ_ONLY, 0, log.size()));
+            }
+            if (end < log.size()) {
+                // A torn write from a crash mid-append; nothing after it was acknowledged.
+                log.truncate(end);
+                log.force(true);
+                break;
+            }
+            if (lastSeq == logSeq || !Files.exists(logFile(lastSeq))) {
+                break;
+            }
+            log.close();
+            logSeq = lastSeq;
+            log = openLog(logSeq);
+        }
+        log.position(log.size());
+        appendedSeq = lastSeq;
+        durableSeq = lastSeq;
+    }
+
+    private long replay(ByteBuffer in) {
+        CRC32 crc = new CRC32();
+        while (in.remaining() >= 8) {
+            int start = in.position();
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length <= 0 || length > in.remaining()) {
+                return start;
+            }
+            ByteBuffer body = in.slice();
+            body.limit(length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+            apply(body);
+            in.position(in.position() + length);
+            lastSeq++;
+        }
+        return in.position();
+    }
+
+    private void apply(ByteBuffer b) {
+        byte type = b.get();
+        if (type == PUT_USER) {
+            String id = getString(b);
+            String email = getString(b);
+            users.put(id, User.withStoredPassword(email, id, getString(b)));
+            return;
+        }
+        if (type == REMOVE_USER) {
+            users.remove(getString(b));
+            return;
+        }
+        EventKey key = getKey(b);
+        if (type == ADD_EVENT) {
+            String author = getString(b);
+            Duration duration = Duration.ofSeconds(b.getLong(), b.getInt());
+            events.addEvent(new Event(author, key.getName(), key.getLocation(), key.getTime(), duration));
+            return;
+        }
+        Event event = events.getEvent(key);
+        if (event == null) {
+            return;
+        }
+        switch (type) {
+        case DELETE_EVENT:
+            events.deleteEvent(event);
+            break;
+        case CAST_VOTE:
+            String voter = getString(b);
+            event.addVote(new Vote(voter, b.get() != 0));
+            break;
+        case SWITCH_VOTE:
+            event.switchVote(getString(b));
+            break;
+        case REMOVE_VOTE:
+            event.removeVoteByID(getString(b));
+            break;
+        case EDIT_EVENT:
+            EventKey newKey = getKey(b);
+            event.edit(newKey, Duration.ofSeconds(b.getLong(), b.getInt()));
+            break;
+        default:
+            throw new IllegalStateException("Unknown log record type " + type);
+        }
+    }
+
+    // Called with this held, before a change is applied, so a failed store changes nothing more.
+    private void checkWritable() throws IOException {
+        synchronized (logLock) {
+            if (failure != null) {
+                throw new IOException("Write-ahead log failed", failure);
+            }
+            if (closed) {
+                throw new IOException("Event store is closed");
+            }
+        }
+    }
+
+    private long append(ByteBuffer record) throws IOException {
+        record.flip();
+        int length = record.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        long seq;
+        synchronized (logLock) {
+            if (pending.remaining() < length + 8) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + length + 8));
+                pending.flip();
+                bigger.put(pending);
+                pending = bigger;
+            }
+            pending.putInt(length).putInt((int) crc.getValue()).put(record);
+            seq = ++appendedSeq;
+            logLock.notifyAll();
+        }
+        lastSeq = seq;
+        if (seq - snapshotSeq >= snapshotThreshold && snapshotQueued.compareAndSet(false, true)) {
+            snapshotter.execute(() -> {
+                snapshotQueued.set(false);
+                try {
+                    snapshot();
+                } catch (IOException e) {
+                    // The log still holds every change, so the next snapshot can catch up.
+                }
+            });
+        }
+        return seq;
+    }
+
+    private void awaitDurable(long seq) throws IOException {
+        synchronized (logLock) {
+            while (durableSeq < seq && failure == null && !flusherStopped) {
+                try {
+                    logLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the log", e);
+                }
+            }
+            if (durableSeq < seq) {
+                throw failure != null ? new IOException("Write-ahead log failed", failure)
+                        : new IOException("Event store is closed");
+            }
+        }
+    }
+
+    private void flushLoop() {
+        try {
+            flushBatches();
+        } finally {
+            synchronized (logLock) {
+                flusherStopped = true;
+                logLock.notifyAll();
+            }
+        }
+    }
+
+    private void flushBatches() {
+        while (true) {
+            ByteBuffer batch;
+            long target;
+            FileChannel out;
+            FileChannel next;
+            int split;
+            synchronized (logLock) {
+                while (pending.position() == 0 && nextLog == null && !closed) {
+                    try {
+                        logLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0 && nextLog == null) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                target = appendedSeq;
+                out = log;
+                next = nextLog;
+                split = next == null ? batch.position() : rotateAt;
+            }
+            try {
+                batch.flip();
+                write(out, batch, split);
+                if (next != null) {
+                    synchronized (logLock) {
+                        log = next;
+                        nextLog = null;
+                    }
+                    out.close();
+                    write(next, batch, batch.limit());
+                }
+            } catch (IOException e) {
+                synchronized (logLock) {
+                    failure = e;
+                    logLock.notifyAll();
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+            synchronized (logLock) {
+                durableSeq = target;
+                logLock.notifyAll();
+            }
+        }
+    }
+
+    // Writes the batch up to a position, if it has anything before there, and syncs it.
+    private static void write(FileChannel out, ByteBuffer batch, int end) throws IOException {
+        if (batch.position() >= end) {
+            return;
+        }
+        ByteBuffer part = batch.duplicate();
+        part.limit(end);
+        while (part.hasRemaining()) {
+            out.write(part);
+        }
+        batch.position(end);
+        out.force(false);
+    }
+
+    private void deleteBefore(String glob, long seq) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path p : files) {
+                if (sequenceOf(p) < seq) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+    }
+
+    // Log and snapshot files are named for their sequence number, as in wal-0000000000000042.log.
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.lastIndexOf('.')));
+    }
+
+    private FileChannel openLog(long seq) throws IOException {
+        return FileChannel.open(logFile(seq), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private Path logFile(long seq) {
+        return directory.resolve(String.format("wal-%016d.log", seq));
+    }
+
+    private Path snapshotFile(long seq) {
+        return directory.resolve(String.format("snapshot-%016d.bin", seq));
+    }
+
+    private static ByteBuffer addEventRecord(Event e) {
+        ByteBuffer b = ByteBuffer.allocate(1 + sizeOf(e.getKey()) + sizeOf(e.getAuthorID()) + 12);
+        b.put(ADD_EVENT);
+        putKey(b, e.getKey());
+        putString(b, e.getAuthorID());
+        b.putLong(e.getDuration().getSeconds());
+        b.putInt(e.getDuration().getNano());
+        return b;
+    }
+
+    private static ByteBuffer record(byte type, EventKey key) {
+        ByteBuffer b = ByteBuffer.allocate(1 + sizeOf(key));
+        b.put(type);
+        putKey(b, key);
+        return b;
+    }
+
+    // The user ID may be null, for a vote cast without one.
+    private static ByteBuffer record(byte type, EventKey key, String userID, boolean value) {
+        ByteBuffer b = ByteBuffer.allocate(1 + sizeOf(key) + sizeOf(userID) + 1);
+        b.put(type);
+        putKey(b, key);
+        putString(b, userID);
+        b.put(value ? (byte) 1 : (byte) 0);
+        return b;
+    }
+
+    private static ByteBuffer userRecord(User u) {
+        ByteBuffer b = ByteBuffer.allocate(1 + sizeOf(u.getUserID()) + sizeOf(u.getEmail()) + sizeOf(u.getHashedPassword()));
+        b.put(PUT_USER);
+        putString(b, u.getUserID());
+        putString(b, u.getEmail());
+        putString(b, u.getHashedPassword());
+        return b;
+    }
+
+    private static int sizeOf(String s) {
+        return 4 + (s == null ? 0 : s.length() * 3);
+    }
+
+    private static int sizeOf(EventKey key) {
+        return 12 + sizeOf(key.getName()) + sizeOf(key.getLocation());
+    }
+
+    // A length of -1 stands for null, such as an event with no author.
+    private static void putString(ByteBuffer b, String s) {
+        if (s == null) {
+            b.putInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        b.putInt(bytes.length);
+        b.put(bytes);
+    }
+
+    private static String getString(ByteBuffer b) {
+        int length = b.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putKey(ByteBuffer b, EventKey key) {
+        b.putLong(key.getTime().toEpochSecond(ZoneOffset.UTC));
+        b.putInt(key.getTime().getNano());
+        putString(b, key.getName());
+        putString(b, key.getLocation());
+    }
+
+    private static EventKey getKey(ByteBuffer b) {
+        LocalDateTime time = LocalDateTime.ofEpochSecond(b.getLong(), b.getInt(), ZoneOffset.UTC);
+        String name = getString(b);
+        return new EventKey(time, name, getString(b));
+    }
+}
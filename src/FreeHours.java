@@ -1,43 +1,272 @@
 /**
  * Manages the client's available hours for Events on the GUI.
- * 
- * @deprecated Legacy code when attempting to set up web app implemenation with
- *             browser-based GUI. May be updated to be better suited for a local
- *             java swing GUI implementation.
- * 
+ *
+ * The timeline is a bitset with one bit per 15 minute slot, set when the user is
+ * free. By default it covers one week starting on Monday (day 0), which takes 11
+ * longs. It can instead cover any number of days, such as a month of dates.
+ * Marking, clearing and checking a range of time works on 64 slots at a time.
+ *
  * @author Dylan Mirandilla
  */
 public class FreeHours {
-    private int[][] timeline;
+    /** Number of slots in an hour. */
+    public static final int SLOTS_PER_HOUR = 4;
+    /** Number of slots in a day. */
+    public static final int SLOTS_PER_DAY = 24 * SLOTS_PER_HOUR;
+
+    private static final String[] DAY_NAMES = { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+
+    private final int days;
+    private final long[] timeline;
 
     /**
-     * updateTime will update specific day/hour on timeline
-     * 
+     * Creates an empty weekly timeline, with no free hours yet.
+     */
+    public FreeHours() {
+        this(7);
+    }
+
+    /**
+     * Creates an empty timeline covering a number of days, with no free hours yet.
+     *
+     * @param days The number of days to cover.
+     */
+    public FreeHours(int days) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("days must be positive: " + days);
+        }
+        this.days = days;
+        this.timeline = new long[(days * SLOTS_PER_DAY + 63) >>> 6];
+    }
+
+    /**
+     * updateTime will mark a specific day/hour on the timeline as free
+     *
      * @param day  desired day to udpate
      * @param hour desired hour to update
      */
     public void updateTime(int day, int hour) {
-        // this is gonna get figured out
+        markFree(day, hour * SLOTS_PER_HOUR, (hour + 1) * SLOTS_PER_HOUR);
     }
 
     /**
-     * clearDay will clear specific day on timeline with 0 to indiciate it is
-     * available
-     * 
+     * Marks a range of slots on one day as free.
+     *
+     * @param day       The day to update.
+     * @param startSlot The first slot (inclusive).
+     * @param endSlot   The last slot (exclusive), up to SLOTS_PER_DAY.
+     */
+    public void markFree(int day, int startSlot, int endSlot) {
+        checkRange(day, startSlot, endSlot);
+        setBits(day * SLOTS_PER_DAY + startSlot, day * SLOTS_PER_DAY + endSlot);
+    }
+
+    /**
+     * Marks a range of slots on one day as not free.
+     *
+     * @param day       The day to update.
+     * @param startSlot The first slot (inclusive).
+     * @param endSlot   The last slot (exclusive), up to SLOTS_PER_DAY.
+     */
+    public void markBusy(int day, int startSlot, int endSlot) {
+        checkRange(day, startSlot, endSlot);
+        clearBits(day * SLOTS_PER_DAY + startSlot, day * SLOTS_PER_DAY + endSlot);
+    }
+
+    /**
+     * clearDay will clear every free slot on a specific day
+     *
      * @param day desired day to clear
      */
     public void clearDay(int day) {
-        // this will get handled
+        markBusy(day, 0, SLOTS_PER_DAY);
+    }
+
+    /**
+     * Checks whether a single slot is free.
+     *
+     * @param day  The day to check.
+     * @param slot The slot in that day.
+     * @return Whether the slot is free.
+     */
+    public boolean isFree(int day, int slot) {
+        checkRange(day, slot, slot + 1);
+        int bit = day * SLOTS_PER_DAY + slot;
+        return (timeline[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Checks whether every slot in a range on one day is free.
+     *
+     * @param day       The day to check.
+     * @param startSlot The first slot (inclusive).
+     * @param endSlot   The last slot (exclusive), up to SLOTS_PER_DAY.
+     * @return Whether the whole range is free.
+     */
+    public boolean isFreeBetween(int day, int startSlot, int endSlot) {
+        checkRange(day, startSlot, endSlot);
+        int from = day * SLOTS_PER_DAY + startSlot;
+        int to = day * SLOTS_PER_DAY + endSlot;
+        if (from == to) {
+            return true;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            long mask = firstMask & lastMask;
+            return (timeline[first] & mask) == mask;
+        }
+        if ((timeline[first] & firstMask) != firstMask) {
+            return false;
+        }
+        for (int i = first + 1; i < last; i++) {
+            if (timeline[i] != -1L) {
+                return false;
+            }
+        }
+        return (timeline[last] & lastMask) == lastMask;
+    }
+
+    /**
+     * Counts the free slots on the whole timeline.
+     *
+     * @return The number of free 15 minute slots.
+     */
+    public int getFreeSlotCount() {
+        int count = 0;
+        for (long word : timeline) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Fetches the number of days the timeline covers.
+     *
+     * @return The number of days.
+     */
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * getAvailableHours describes the free time on the timeline as a list of
+     * ranges, such as "Mon 09:00-12:00, Wed 13:15-14:00". Days are named for a
+     * weekly timeline and numbered from 0 otherwise.
+     *
+     * @return The free ranges, or an empty string if there are none.
+     */
+    public String getAvailableHours() {
+        StringBuilder out = new StringBuilder();
+        int end = days * SLOTS_PER_DAY;
+        int start = nextSetBit(0, end);
+        while (start < end) {
+            int day = start / SLOTS_PER_DAY;
+            int dayEnd = (day + 1) * SLOTS_PER_DAY;
+            int stop = nextClearBit(start, dayEnd);
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(days == 7 ? DAY_NAMES[day] : "Day " + day).append(' ');
+            appendTime(out, start - day * SLOTS_PER_DAY);
+            out.append('-');
+            appendTime(out, stop - day * SLOTS_PER_DAY);
+            start = nextSetBit(stop, end);
+        }
+        return out.toString();
     }
 
     /**
-     * getAvailableHours will either display available hours or update another data
-     * structure with availableHours
+     * Gives direct access to the bitset for the meeting solver. Bit i of the
+     * timeline is bit (i % 64) of word (i / 64).
      */
-    public void getAvailableHours() {
-        // this needs more thought, whether we want to output something
-        // of an elaborate string into the terminal for early dev, or
-        // whether we want to store it somewhere where it will get displayed
-        // on the html side of things
+    long[] words() {
+        return timeline;
+    }
+
+    private static void appendTime(StringBuilder out, int slot) {
+        int minutes = slot * (60 / SLOTS_PER_HOUR);
+        int hour = minutes / 60;
+        int minute = minutes % 60;
+        out.append(hour < 10 ? "0" : "").append(hour).append(':').append(minute < 10 ? "0" : "").append(minute);
+    }
+
+    private void checkRange(int day, int startSlot, int endSlot) {
+        if (day < 0 || day >= days || startSlot < 0 || endSlot > SLOTS_PER_DAY || startSlot > endSlot) {
+            throw new IndexOutOfBoundsException(
+                    "day " + day + ", slots " + startSlot + "-" + endSlot + " outside of " + days + " days");
+        }
+    }
+
+    private void setBits(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            timeline[first] |= firstMask & lastMask;
+            return;
+        }
+        timeline[first] |= firstMask;
+        for (int i = first + 1; i < last; i++) {
+            timeline[i] = -1L;
+        }
+        timeline[last] |= lastMask;
+    }
+
+    private void clearBits(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            timeline[first] &= ~(firstMask & lastMask);
+            return;
+        }
+        timeline[first] &= ~firstMask;
+        for (int i = first + 1; i < last; i++) {
+            timeline[i] = 0L;
+        }
+        timeline[last] &= ~lastMask;
+    }
+
+    // Returns the first set bit at or after from, or limit if there is none before it.
+    private int nextSetBit(int from, int limit) {
+        if (from >= limit) {
+            return limit;
+        }
+        int i = from >>> 6;
+        long word = timeline[i] & (-1L << from);
+        while (word == 0) {
+            if (++i >= timeline.length) {
+                return limit;
+            }
+            word = timeline[i];
+        }
+        return Math.min(limit, (i << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    // Returns the first clear bit at or after from, or limit if there is none before it.
+    private int nextClearBit(int from, int limit) {
+        if (from >= limit) {
+            return limit;
+        }
+        int i = from >>> 6;
+        long word = ~timeline[i] & (-1L << from);
+        while (word == 0) {
+            if (++i >= timeline.length) {
+                return limit;
+            }
+            word = ~timeline[i];
+        }
+        return Math.min(limit, (i << 6) + Long.numberOfTrailingZeros(word));
     }
-}
\ No newline at end of file
+}
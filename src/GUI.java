@@ -1,12 +1,20 @@
-package View;
-
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 public class GUI extends JFrame {
+    // matches the "MM-DD-YYYY & 24:00" hint next to the time box
+    private static final DateTimeFormatter TIME_INPUT = DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm");
+
     public static void main(String[] args) {
+        // no accounts yet, so everything this window does is done as the local user
+        String me = System.getProperty("user.name", "local_user");
+        EventList events = new EventList();
+
         //setting up main Frame
         JFrame frame = new JFrame();
         frame.setSize(750, 500);
@@ -28,7 +36,7 @@ public class GUI extends JFrame {
 
         //left inputs
         JLabel freeHoursLabel = new JLabel("Free Hours");
-        JLabel enterFreeHours = new JLabel("Enter your Free Hours: 24:00");
+        JLabel enterFreeHours = new JLabel("Enter your Free Hours: 09:00-17:00");
         JTextField freeHours = new JTextField(50);
         freeHours.setMaximumSize(freeHours.getPreferredSize());
         JCheckBox mon = new JCheckBox("Monday");
@@ -39,6 +47,8 @@ public class GUI extends JFrame {
         JCheckBox sat = new JCheckBox("Saturday");
         JCheckBox sun = new JCheckBox("Sunday");
         JLabel yourFreeHours = new JLabel("Your Free Hours:");
+        JLabel freeHoursList = new JLabel();
+        FreeHours myFreeHours = new FreeHours();
 
         //left layout
         left.setLayout(new BorderLayout());
@@ -68,6 +78,7 @@ public class GUI extends JFrame {
         leftCenter.add(Box.createRigidArea(new Dimension(0, 10)));
         leftCenter.add(addHour);
         leftCenter.add(yourFreeHours);
+        leftCenter.add(freeHoursList);
 
         //center
         //center labels
@@ -76,8 +87,24 @@ public class GUI extends JFrame {
         //center layout
         center.setLayout(new BorderLayout());
         JPanel centerNorth = new JPanel();
-        JPanel centerCenter = new JPanel();
+        JPanel centerCenter = new JPanel(new BorderLayout());
         centerCenter.setBackground(custBase);
+        Timeline timeline = new Timeline();
+        timeline.init();
+        timeline.displayEvents(events);
+        centerCenter.add(timeline.getComponent(), BorderLayout.CENTER);
+
+        // voting buttons act on the selected event
+        JPanel votePanel = new JPanel();
+        votePanel.setBackground(custBase);
+        JButton upVote = new JButton("Upvote");
+        JButton downVote = new JButton("Downvote");
+        // makes upvote green, downvote red
+        upVote.setForeground(Color.GREEN);
+        downVote.setForeground(Color.RED);
+        votePanel.add(upVote);
+        votePanel.add(downVote);
+        centerCenter.add(votePanel, BorderLayout.SOUTH);
         centerNorth.setPreferredSize(new Dimension(30, 40));
         center.add(centerNorth, BorderLayout.NORTH);
         Color custCyan = new Color(111, 195, 223);
@@ -139,102 +166,65 @@ public class GUI extends JFrame {
 
         //Add Event Functionality
         addEvent.addActionListener(e -> {
-            String data = "Event: " + eventName.getText() + "    " + " Time: " + time.getText();
+            LocalDateTime when;
             try {
-                JTextField event = new JTextField(20);
-                JLabel eventNameHolder = new JLabel(location.getText());
-                centerCenter.add(eventNameHolder);
-                centerCenter.add(event);
-
-                // voting button labels
-                JLabel upV = new JLabel("Upvote");
-                JLabel downV = new JLabel("Downvote");
-
-                // up/downvote buttons
-                JButton upVote = new JButton();
-                JButton downVote = new JButton();
-                // makes upvote green, downvote red
-                upVote.setForeground(Color.GREEN);
-                downVote.setForeground(Color.RED);
-
-                // upvoting button and labels
-                centerCenter.add(upV);
-                centerCenter.add(upVote);
-                upVote.setText("0");
-
-                // downvoting button and labels
-                centerCenter.add(downV);
-                centerCenter.add(downVote);
-                downVote.setText("0");
-
-                // prints values of the event
-                event.setText(data);
-                event.setEditable(false);
-
-                // reset text values after adding event
-                eventName.setText("");
-                time.setText("");
-                location.setText("");
-
-                // upvote counter
-                upVote.addActionListener(new ActionListener() {
-                    int count = 1;
-
-                    @Override
-                    public void actionPerformed(ActionEvent event) {
-                        upVote.setText(Integer.toString(count++));
-                    }
-
-                });
-
-                // downvote counter
-                downVote.addActionListener(new ActionListener() {
-                    int count = -1;
-
-                    @Override
-                    public void actionPerformed(ActionEvent event) {
-                        downVote.setText(Integer.toString(count--));
-                    }
-
-                });
+                when = LocalDateTime.parse(time.getText().trim().replace(" & ", " "), TIME_INPUT);
+            } catch (DateTimeParseException badTime) {
+                // leave the inputs alone so the time can be fixed
+                JOptionPane.showMessageDialog(frame, "Enter the time as MM-DD-YYYY & 24:00, e.g. 04-01-2021 & 15:00",
+                        "Time not understood", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            events.addEvent(new Event(me, eventName.getText(), location.getText(), when));
 
-                frame.setVisible(true);
+            // reset text values after adding event
+            eventName.setText("");
+            time.setText("");
+            location.setText("");
+        });
 
-            } catch (Exception exception) {
-                // do nothing
+        // a user has one vote per event, so voting again just changes it
+        upVote.addActionListener(e -> {
+            Event selected = timeline.getSelectedEvent();
+            if (selected != null) {
+                selected.addVote(new Vote(me, true));
+            }
+        });
+        downVote.addActionListener(e -> {
+            Event selected = timeline.getSelectedEvent();
+            if (selected != null) {
+                selected.addVote(new Vote(me, false));
             }
         });
 
         addHour.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                String avaliTimes = freeHours.getText();
-                JLabel print = new JLabel();
-                if (mon.isSelected()) {
-                    avaliTimes = avaliTimes + " " + "(M)";
-                }
-                if (tues.isSelected()) {
-                    avaliTimes = avaliTimes + " " + "(T)";
-                }
-                if (wed.isSelected()) {
-                    avaliTimes = avaliTimes + " " + "(W)";
+                // expects a range such as 09:00-17:00, in 15 minute steps
+                String[] range = freeHours.getText().trim().split("-");
+                int start;
+                int end;
+                try {
+                    start = toSlot(range[0]);
+                    end = toSlot(range[1]);
+                } catch (RuntimeException badInput) {
+                    JOptionPane.showMessageDialog(frame, "Enter the hours as a range such as 09:00-17:00",
+                            "Hours not understood", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
-                if (thur.isSelected()) {
-                    avaliTimes = avaliTimes + " " + "(Th)";
+                if (start >= end) {
+                    JOptionPane.showMessageDialog(frame, "The hours have to end after they start",
+                            "Hours not understood", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
-                if (fri.isSelected()) {
-                    avaliTimes = avaliTimes + " " + "(F)";
-                }
-                if (sat.isSelected()) {
-                    avaliTimes = avaliTimes + " " + "(S)";
-                }
-                if (sun.isSelected()) {
-                    avaliTimes = avaliTimes + " " + "(Su)";
+                JCheckBox[] days = { mon, tues, wed, thur, fri, sat, sun };
+                for (int day = 0; day < days.length; day++) {
+                    if (days[day].isSelected()) {
+                        myFreeHours.markFree(day, start, end);
+                    }
                 }
-                print.setText(avaliTimes);
-                //print.setMaximumSize(print.getPreferredSize());
-                //print.setLineWrap(true);
-                leftCenter.add(print);
-                frame.setVisible(true);
+                // one label holds every range, so nothing piles up on repeat clicks
+                freeHoursList.setText("<html>" + myFreeHours.getAvailableHours().replace(", ", "<br>") + "</html>");
+                leftCenter.revalidate();
             }
         });
 
@@ -246,4 +236,18 @@ public class GUI extends JFrame {
         frame.setResizable(true);
         frame.setVisible(true);
     }
+
+    /**
+     * Turns a time such as "13:45" into a FreeHours slot, rounding down to the
+     * quarter hour.
+     */
+    private static int toSlot(String time) {
+        String[] parts = time.trim().split(":");
+        int hour = Integer.parseInt(parts[0]);
+        int minute = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+        if (hour < 0 || minute < 0 || minute >= 60 || hour * 60 + minute > 24 * 60) {
+            throw new IllegalArgumentException("Not a time of day: " + time);
+        }
+        return hour * FreeHours.SLOTS_PER_HOUR + minute / (60 / FreeHours.SLOTS_PER_HOUR);
+    }
 }
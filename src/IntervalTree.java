@@ -0,0 +1,255 @@
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Index of events by the span of time they take up, from their date-time to
+ * their end time, for finding the events that overlap a span.
+ *
+ * It is an AVL tree ordered by start time, where every node also records the
+ * latest end time below it. A search skips any subtree that ends before the
+ * span starts and stops going right once nodes start after the span ends, so
+ * finding the k overlapping events out of n takes O(log n + k) time. Adding and
+ * removing take O(log n).
+ *
+ * Each event's span is read when it is added, in whole seconds, and kept until
+ * it is removed, so an event whose time or duration changes should be added
+ * again. Not thread-safe.
+ */
+public class IntervalTree {
+    private Node root;
+    private final IdentityHashMap<Event, Node> nodes;
+
+    /**
+     * Creates an empty tree.
+     */
+    public IntervalTree() {
+        nodes = new IdentityHashMap<Event, Node>();
+    }
+
+    /**
+     * Adds an event, or updates its span if it is already in the tree.
+     *
+     * @param event The event to add.
+     */
+    public void add(Event event) {
+        remove(event);
+        Node node = new Node(event, seconds(event.getKey().getTime()), seconds(event.getEndTime()));
+        root = insert(root, node);
+        nodes.put(event, node);
+    }
+
+    /**
+     * Removes an event.
+     *
+     * @param event The event to remove.
+     * @return Whether it was in the tree.
+     */
+    public boolean remove(Event event) {
+        Node node = nodes.remove(event);
+        if (node == null) {
+            return false;
+        }
+        root = delete(root, node.start, node.id);
+        return true;
+    }
+
+    /**
+     * Checks whether an event is in the tree.
+     *
+     * @param event The event to look for.
+     * @return Whether it is in the tree.
+     */
+    public boolean contains(Event event) {
+        return nodes.containsKey(event);
+    }
+
+    /**
+     * Fetches the number of events in the tree.
+     *
+     * @return The number of events.
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Finds the events that take up any part of a span of time.
+     *
+     * @param from The start of the span (inclusive).
+     * @param to   The end of the span (exclusive).
+     * @return The overlapping events, by start time.
+     */
+    public List<Event> overlapping(LocalDateTime from, LocalDateTime to) {
+        List<Event> found = new ArrayList<Event>();
+        collect(root, seconds(from), seconds(to), null, found);
+        return found;
+    }
+
+    /**
+     * Finds the other events in the tree that overlap an event.
+     *
+     * @param event The event to check, which need not be in the tree.
+     * @return The overlapping events apart from the event itself, by start time.
+     */
+    public List<Event> overlapping(Event event) {
+        List<Event> found = new ArrayList<Event>();
+        collect(root, seconds(event.getKey().getTime()), seconds(event.getEndTime()), event, found);
+        return found;
+    }
+
+    /**
+     * Fetches every event in the tree.
+     *
+     * @return The events, by start time.
+     */
+    public List<Event> events() {
+        List<Event> found = new ArrayList<Event>(nodes.size());
+        inOrder(root, found);
+        return found;
+    }
+
+    private static void inOrder(Node node, List<Event> found) {
+        for (; node != null; node = node.right) {
+            inOrder(node.left, found);
+            found.add(node.event);
+        }
+    }
+
+    private static long seconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static void collect(Node node, long from, long to, Event skip, List<Event> found) {
+        while (node != null && node.maxEnd > from) {
+            collect(node.left, from, to, skip, found);
+            if (node.start >= to) {
+                return;
+            }
+            if (node.end > from && node.event != skip) {
+                found.add(node.event);
+            }
+            node = node.right;
+        }
+    }
+
+    private static int compare(long start, long id, Node node) {
+        int c = Long.compare(start, node.start);
+        return c != 0 ? c : Long.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private Node delete(Node node, long start, long id) {
+        int c = compare(start, id, node);
+        if (c < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (c > 0) {
+            node.right = delete(node.right, start, id);
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        } else {
+            // Move the next event in order into this node, then delete it below.
+            Node next = node.right;
+            while (next.left != null) {
+                next = next.left;
+            }
+            node.event = next.event;
+            node.start = next.start;
+            node.end = next.end;
+            node.id = next.id;
+            nodes.put(node.event, node);
+            node.right = delete(node.right, next.start, next.id);
+        }
+        return balance(node);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd > maxEnd) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int lean = height(node.left) - height(node.right);
+        if (lean > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (lean < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node top = node.left;
+        node.left = top.right;
+        top.right = node;
+        update(node);
+        update(top);
+        return top;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node top = node.right;
+        node.right = top.left;
+        top.left = node;
+        update(node);
+        update(top);
+        return top;
+    }
+
+    /**
+     * One event and its span, plus the height and latest end of its subtree.
+     */
+    private static class Node {
+        private Event event;
+        private long start;
+        private long end;
+        private long id;
+        private long maxEnd;
+        private int height;
+        private Node left;
+        private Node right;
+
+        Node(Event event, long start, long end) {
+            this.event = event;
+            this.start = start;
+            this.end = end;
+            this.id = event.getEventID();
+            this.maxEnd = end;
+            this.height = 1;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Keeps the events of an EventList ranked by net vote score, for the "trending
+ * events" part of the home screen. The ranking is updated in O(log n) whenever
+ * an event is added, removed or voted on, so reading the top events never walks
+ * the whole list. Ties are broken by the usual Event.compareTo order.
+ *
+ * Events are also ranked per day, so the top events inside a window of time
+ * only touch the days in that window.
+ *
+ * Votes do not wait for the lock: a vote's re-rank is handed to an
+ * UpdateCombiner and done by whichever thread holds the lock, and readers
+ * catch up on any waiting re-ranks before they read.
+ */
+public class Leaderboard implements EventListListener {
+    private static final Comparator<Entry> RANKING = (a, b) -> {
+        if (a.score != b.score) {
+            return Integer.compare(b.score, a.score);
+        }
+        int byKey = a.key.compareTo(b.key);
+        if (byKey != 0) {
+            return byKey;
+        }
+        return Long.compare(a.event.getEventID(), b.event.getEventID());
+    };
+
+    private final TreeSet<Entry> ranking;
+    private final TreeMap<LocalDate, TreeSet<Entry>> rankingByDay;
+    private final IdentityHashMap<Event, Entry> entries;
+    private final UpdateCombiner<Event> rescores;
+
+    /**
+     * Creates a leaderboard that follows the given event list from now on,
+     * starting with the events already in it.
+     *
+     * @param events The event list to rank.
+     */
+    public Leaderboard(EventList events) {
+        ranking = new TreeSet<Entry>(RANKING);
+        rankingByDay = new TreeMap<LocalDate, TreeSet<Entry>>();
+        entries = new IdentityHashMap<Event, Entry>();
+        rescores = new UpdateCombiner<Event>(this::rescore);
+        // Listening before walking, with the lock held, so no event added meanwhile is missed.
+        events.addListener(this);
+        rescores.lock();
+        try {
+            for (Event e : events) {
+                add(e);
+            }
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    /**
+     * Fetches the highest scoring events.
+     *
+     * @param k The most events to return.
+     * @return Up to k events, highest score first.
+     */
+    public List<Event> topEvents(int k) {
+        rescores.lock();
+        try {
+            List<Event> top = new ArrayList<Event>(Math.min(k, ranking.size()));
+            Iterator<Entry> it = ranking.iterator();
+            while (top.size() < k && it.hasNext()) {
+                top.add(it.next().event);
+            }
+            return top;
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    /**
+     * Fetches the highest scoring events that start inside a window of time.
+     * The per-day rankings in the window are merged, so the cost depends on the
+     * number of days and k rather than on the number of events.
+     *
+     * @param k    The most events to return.
+     * @param from The start of the window (inclusive).
+     * @param to   The end of the window (exclusive).
+     * @return Up to k events in the window, highest score first.
+     */
+    public List<Event> topEvents(int k, LocalDateTime from, LocalDateTime to) {
+        List<Event> top = new ArrayList<Event>();
+        if (!from.isBefore(to)) {
+            return top;
+        }
+        rescores.lock();
+        try {
+            PriorityQueue<DayCursor> days = new PriorityQueue<DayCursor>();
+            for (TreeSet<Entry> day : rankingByDay
+                    .subMap(from.toLocalDate(), true, to.toLocalDate(), true).values()) {
+                DayCursor cursor = new DayCursor(day.iterator(), from, to);
+                if (cursor.advance()) {
+                    days.add(cursor);
+                }
+            }
+            while (top.size() < k && !days.isEmpty()) {
+                DayCursor best = days.poll();
+                top.add(best.head.event);
+                if (best.advance()) {
+                    days.add(best);
+                }
+            }
+            return top;
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    /**
+     * Fetches the score an event is currently ranked with.
+     *
+     * @param event The event to look up.
+     * @return The event's ranked score, or 0 if it is not on the leaderboard.
+     */
+    public int getRankedScore(Event event) {
+        rescores.lock();
+        try {
+            Entry entry = entries.get(event);
+            return entry == null ? 0 : entry.score;
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    @Override
+    public void eventAdded(Event added) {
+        rescores.lock();
+        try {
+            add(added);
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    @Override
+    public void eventRemoved(Event removed) {
+        rescores.lock();
+        try {
+            Entry entry = entries.get(removed);
+            if (entry != null) {
+                unindex(entry);
+            }
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    @Override
+    public void eventMoved(Event moved) {
+        rescores.lock();
+        try {
+            Entry entry = entries.get(moved);
+            if (entry != null && !entry.key.equals(moved.getKey())) {
+                unindex(entry);
+                index(new Entry(moved));
+            }
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    @Override
+    public void votesChanged(Event changed) {
+        rescores.offer(changed);
+    }
+
+    private void add(Event added) {
+        if (!entries.containsKey(added)) {
+            index(new Entry(added));
+        }
+    }
+
+    // Called with the lock held; a re-rank for an event since removed finds no entry.
+    private void rescore(Event changed) {
+        Entry entry = entries.get(changed);
+        if (entry == null || entry.score == changed.getScore()) {
+            return;
+        }
+        unindex(entry);
+        index(new Entry(changed));
+    }
+
+    private void index(Entry entry) {
+        entries.put(entry.event, entry);
+        ranking.add(entry);
+        rankingByDay.computeIfAbsent(entry.key.getTime().toLocalDate(), d -> new TreeSet<Entry>(RANKING))
+                .add(entry);
+    }
+
+    private void unindex(Entry entry) {
+        entries.remove(entry.event);
+        ranking.remove(entry);
+        LocalDate day = entry.key.getTime().toLocalDate();
+        TreeSet<Entry> dayRanking = rankingByDay.get(day);
+        dayRanking.remove(entry);
+        if (dayRanking.isEmpty()) {
+            rankingByDay.remove(day);
+        }
+    }
+
+    /**
+     * An event together with the score and key it was ranked under, so it can be
+     * found again after its votes change.
+     */
+    private static class Entry {
+        final Event event;
+        final EventKey key;
+        final int score;
+
+        Entry(Event event) {
+            this.event = event;
+            this.key = event.getKey();
+            this.score = event.getScore();
+        }
+    }
+
+    /**
+     * Walks one day's ranking, skipping events outside the query window. Only the
+     * first and last day of a window can have such events.
+     */
+    private static class DayCursor implements Comparable<DayCursor> {
+        private final Iterator<Entry> entries;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        Entry head;
+
+        DayCursor(Iterator<Entry> entries, LocalDateTime from, LocalDateTime to) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean advance() {
+            while (entries.hasNext()) {
+                Entry next = entries.next();
+                LocalDateTime time = next.key.getTime();
+                if (!time.isBefore(from) && time.isBefore(to)) {
+                    head = next;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int compareTo(DayCursor other) {
+            return RANKING.compare(head, other.head);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the best times for a group to meet, given every member's FreeHours.
+ *
+ * For each possible start slot the solver counts how many members are free for
+ * the whole meeting, then returns the start slots with the highest counts. The
+ * timeline is split into ranges of 64-slot words that are solved in parallel on
+ * a fork/join pool. Within a range each member's free-for-the-whole-meeting
+ * slots are worked out a word at a time and added into bit-sliced counters, so
+ * 64 start slots are counted at once.
+ */
+public class MeetingSolver {
+    // Roughly how many (member, word) pairs one task should handle.
+    private static final int WORK_PER_TASK = 1 << 14;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a solver that runs on the common fork/join pool.
+     */
+    public MeetingSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a solver that runs on the given pool.
+     *
+     * @param pool The pool to solve on.
+     */
+    public MeetingSolver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Ranks the best start times for a meeting. Ties go to the earlier time. A
+     * meeting may run past midnight into the next day of the timeline.
+     *
+     * @param members       Every member's free hours, all covering the same days.
+     * @param durationSlots How long the meeting is, in 15 minute slots.
+     * @param k             The most candidates to return.
+     * @return Up to k candidate times where at least one member is free, best
+     *         first.
+     */
+    public List<Candidate> bestTimes(List<FreeHours> members, int durationSlots, int k) {
+        if (durationSlots <= 0) {
+            throw new IllegalArgumentException("durationSlots must be positive: " + durationSlots);
+        }
+        List<Candidate> best = new ArrayList<Candidate>();
+        if (members.isEmpty() || k <= 0) {
+            return best;
+        }
+        int days = members.get(0).getDays();
+        long[][] words = new long[members.size()][];
+        for (int i = 0; i < words.length; i++) {
+            FreeHours member = members.get(i);
+            if (member.getDays() != days) {
+                throw new IllegalArgumentException("Every member's free hours must cover the same days");
+            }
+            words[i] = member.words();
+        }
+
+        int slots = days * FreeHours.SLOTS_PER_DAY;
+        int[] counts = new int[slots];
+        int wordCount = words[0].length;
+        int wordsPerTask = Math.max(1, WORK_PER_TASK / words.length);
+        pool.invoke(new CountTask(words, durationSlots, counts, 0, wordCount, wordsPerTask));
+
+        // Keep the k best seen so far, with the worst of them on top.
+        PriorityQueue<Candidate> top = new PriorityQueue<Candidate>(k + 1, (a, b) -> {
+            if (a.freeCount != b.freeCount) {
+                return Integer.compare(a.freeCount, b.freeCount);
+            }
+            return Integer.compare(b.slot, a.slot);
+        });
+        for (int slot = 0; slot + durationSlots <= slots; slot++) {
+            int count = counts[slot];
+            if (count == 0) {
+                continue;
+            }
+            if (top.size() < k) {
+                top.add(new Candidate(slot, count));
+            } else if (count > top.peek().freeCount) {
+                top.poll();
+                top.add(new Candidate(slot, count));
+            }
+        }
+        while (!top.isEmpty()) {
+            best.add(top.poll());
+        }
+        Collections.reverse(best);
+        return best;
+    }
+
+    /**
+     * Counts free members for every start slot in a range of words, splitting the
+     * range in half until it is small enough.
+     */
+    private static class CountTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[][] words;
+        private final int duration;
+        private final int[] counts;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        CountTask(long[][] words, int duration, int[] counts, int from, int to, int threshold) {
+            this.words = words;
+            this.duration = duration;
+            this.counts = counts;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > threshold) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new CountTask(words, duration, counts, from, mid, threshold),
+                        new CountTask(words, duration, counts, mid, to, threshold));
+                return;
+            }
+            int planeCount = 32 - Integer.numberOfLeadingZeros(words.length);
+            long[] planes = new long[planeCount];
+            for (int w = from; w < to; w++) {
+                Arrays.fill(planes, 0L);
+                for (long[] member : words) {
+                    long run = runStarts(member, w);
+                    // Ripple-carry add of one bit per slot into the counters.
+                    for (int p = 0; run != 0 && p < planeCount; p++) {
+                        long carry = planes[p] & run;
+                        planes[p] ^= run;
+                        run = carry;
+                    }
+                }
+                int base = w << 6;
+                int end = Math.min(64, counts.length - base);
+                for (int b = 0; b < end; b++) {
+                    int count = 0;
+                    for (int p = 0; p < planeCount; p++) {
+                        count |= (int) ((planes[p] >>> b) & 1L) << p;
+                    }
+                    counts[base + b] = count;
+                }
+            }
+        }
+
+        // Bit b is set if the member is free for every slot from (w * 64 + b) on.
+        private long runStarts(long[] member, int w) {
+            long run = member[w];
+            for (int i = 1; i < duration && run != 0; i++) {
+                run &= shiftedDown(member, w, i);
+            }
+            return run;
+        }
+
+        // The word at w of the bitset after shifting it down by the given bits.
+        private static long shiftedDown(long[] member, int w, int bits) {
+            int i = w + (bits >>> 6);
+            int r = bits & 63;
+            long low = i < member.length ? member[i] : 0L;
+            if (r == 0) {
+                return low;
+            }
+            long high = i + 1 < member.length ? member[i + 1] : 0L;
+            return (low >>> r) | (high << (64 - r));
+        }
+    }
+
+    /**
+     * A possible meeting start time and how many members are free for it.
+     */
+    public static class Candidate {
+        private final int slot;
+        private final int freeCount;
+
+        Candidate(int slot, int freeCount) {
+            this.slot = slot;
+            this.freeCount = freeCount;
+        }
+
+        /**
+         * Fetches the day the meeting would start on.
+         *
+         * @return The day index in the members' timelines.
+         */
+        public int getDay() {
+            return slot / FreeHours.SLOTS_PER_DAY;
+        }
+
+        /**
+         * Fetches the slot within the day the meeting would start at.
+         *
+         * @return The start slot, counting 15 minute slots from midnight.
+         */
+        public int getStartSlot() {
+            return slot % FreeHours.SLOTS_PER_DAY;
+        }
+
+        /**
+         * Fetches how many members are free for the whole meeting.
+         *
+         * @return The number of free members.
+         */
+        public int getFreeCount() {
+            return freeCount;
+        }
+
+        @Override
+        public String toString() {
+            int minutes = getStartSlot() * (60 / FreeHours.SLOTS_PER_HOUR);
+            return String.format("day %d %02d:%02d (%d free)", getDay(), minutes / 60, minutes % 60, freeCount);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+import java.util.Arrays;
+
+/**
+ * A compressed set of non-negative ints, such as the ordinals of the users who
+ * upvoted an event, laid out like a Roaring bitmap.
+ *
+ * Values are grouped into chunks by their top 16 bits. A chunk with few values
+ * keeps the bottom 16 bits of each in a sorted char array (2 bytes a value); a
+ * chunk with more than 4096 values switches to a plain 8 KB bitmap, which is
+ * smaller from then on. A set of a few votes therefore takes a few dozen bytes,
+ * and a set of millions about one bit a user.
+ *
+ * Not thread-safe.
+ */
+final class OrdinalBitmap {
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys;
+    // Each chunk is a char[] of sorted low bits or a long[] bitmap.
+    private Object[] chunks;
+    private int[] counts;
+    private int chunkCount;
+    private int size;
+
+    /**
+     * Creates an empty set.
+     */
+    OrdinalBitmap() {
+        keys = new char[1];
+        chunks = new Object[1];
+        counts = new int[1];
+    }
+
+    /**
+     * Fetches the number of values in the set.
+     *
+     * @return The number of values.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether a value is in the set.
+     *
+     * @param value The value to look for.
+     * @return Whether it is in the set.
+     */
+    boolean contains(int value) {
+        int c = chunkIndex((char) (value >>> 16));
+        if (c < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object chunk = chunks[c];
+        if (chunk instanceof long[]) {
+            return (((long[]) chunk)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) chunk, 0, counts[c], low) >= 0;
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value The value to add, not negative.
+     * @return Whether it was not already in the set.
+     */
+    boolean add(int value) {
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        int c = chunkIndex(high);
+        if (c < 0) {
+            c = -c - 1;
+            insertChunk(c, high);
+        }
+        Object chunk = chunks[c];
+        if (chunk instanceof long[]) {
+            long[] bits = (long[]) chunk;
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) != 0) {
+                return false;
+            }
+            bits[low >>> 6] |= mask;
+        } else {
+            char[] lows = (char[]) chunk;
+            int count = counts[c];
+            int at = Arrays.binarySearch(lows, 0, count, low);
+            if (at >= 0) {
+                return false;
+            }
+            at = -at - 1;
+            if (count == ARRAY_MAX) {
+                long[] bits = toBitmap(lows, count);
+                bits[low >>> 6] |= 1L << low;
+                chunks[c] = bits;
+            } else {
+                if (count == lows.length) {
+                    lows = Arrays.copyOf(lows, Math.min(ARRAY_MAX, count + (count >> 1) + 1));
+                    chunks[c] = lows;
+                }
+                System.arraycopy(lows, at, lows, at + 1, count - at);
+                lows[at] = low;
+            }
+        }
+        counts[c]++;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a value from the set.
+     *
+     * @param value The value to remove.
+     * @return Whether it was in the set.
+     */
+    boolean remove(int value) {
+        int c = chunkIndex((char) (value >>> 16));
+        if (c < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object chunk = chunks[c];
+        if (chunk instanceof long[]) {
+            long[] bits = (long[]) chunk;
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0) {
+                return false;
+            }
+            bits[low >>> 6] &= ~mask;
+            // Switches back well below the limit, so one value cannot flip it to and fro.
+            if (counts[c] - 1 == ARRAY_MAX / 2) {
+                chunks[c] = toArray(bits, ARRAY_MAX / 2);
+            }
+        } else {
+            char[] lows = (char[]) chunk;
+            int count = counts[c];
+            int at = Arrays.binarySearch(lows, 0, count, low);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(lows, at + 1, lows, at, count - at - 1);
+        }
+        size--;
+        if (--counts[c] == 0) {
+            removeChunk(c);
+        }
+        return true;
+    }
+
+    /**
+     * Fetches the value at a position in the set, counting from the smallest.
+     *
+     * @param index The position, from 0 to size() - 1.
+     * @return The value there.
+     */
+    int select(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int c = 0;
+        while (index >= counts[c]) {
+            index -= counts[c++];
+        }
+        int high = keys[c] << 16;
+        Object chunk = chunks[c];
+        if (chunk instanceof char[]) {
+            return high | ((char[]) chunk)[index];
+        }
+        long[] bits = (long[]) chunk;
+        for (int w = 0;; w++) {
+            int inWord = Long.bitCount(bits[w]);
+            if (index < inWord) {
+                long word = bits[w];
+                for (int i = 0; i < index; i++) {
+                    word &= word - 1;
+                }
+                return high | (w << 6) | Long.numberOfTrailingZeros(word);
+            }
+            index -= inWord;
+        }
+    }
+
+    /**
+     * Copies the values out.
+     *
+     * @return The values, smallest first.
+     */
+    int[] toArray() {
+        int[] values = new int[size];
+        int n = 0;
+        for (int c = 0; c < chunkCount; c++) {
+            int high = keys[c] << 16;
+            Object chunk = chunks[c];
+            if (chunk instanceof char[]) {
+                char[] lows = (char[]) chunk;
+                for (int i = 0; i < counts[c]; i++) {
+                    values[n++] = high | lows[i];
+                }
+            } else {
+                long[] bits = (long[]) chunk;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    for (long word = bits[w]; word != 0; word &= word - 1) {
+                        values[n++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Works out roughly how much heap the set takes, for comparing layouts.
+     *
+     * @return The estimated size in bytes.
+     */
+    long estimateBytes() {
+        long bytes = 32 + 16 + 2L * keys.length + 16 + 4L * chunks.length + 16 + 4L * counts.length;
+        for (int c = 0; c < chunkCount; c++) {
+            Object chunk = chunks[c];
+            bytes += chunk instanceof long[] ? 16 + 8L * BITMAP_WORDS : 16 + 2L * ((char[]) chunk).length;
+        }
+        return bytes;
+    }
+
+    private int chunkIndex(char high) {
+        return Arrays.binarySearch(keys, 0, chunkCount, high);
+    }
+
+    private void insertChunk(int at, char high) {
+        if (chunkCount == keys.length) {
+            int grown = chunkCount * 2;
+            keys = Arrays.copyOf(keys, grown);
+            chunks = Arrays.copyOf(chunks, grown);
+            counts = Arrays.copyOf(counts, grown);
+        }
+        System.arraycopy(keys, at, keys, at + 1, chunkCount - at);
+        System.arraycopy(chunks, at, chunks, at + 1, chunkCount - at);
+        System.arraycopy(counts, at, counts, at + 1, chunkCount - at);
+        keys[at] = high;
+        chunks[at] = new char[1];
+        counts[at] = 0;
+        chunkCount++;
+    }
+
+    private void removeChunk(int at) {
+        System.arraycopy(keys, at + 1, keys, at, chunkCount - at - 1);
+        System.arraycopy(chunks, at + 1, chunks, at, chunkCount - at - 1);
+        System.arraycopy(counts, at + 1, counts, at, chunkCount - at - 1);
+        chunkCount--;
+        chunks[chunkCount] = null;
+    }
+
+    private static long[] toBitmap(char[] lows, int count) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int i = 0; i < count; i++) {
+            bits[lows[i] >>> 6] |= 1L << lows[i];
+        }
+        return bits;
+    }
+
+    private static char[] toArray(long[] bits, int count) {
+        char[] lows = new char[count];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                lows[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+            }
+        }
+        return lows;
+    }
+}
@@ -0,0 +1,274 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Hashes passwords with scrypt (RFC 7914), a memory-hard key derivation
+ * function, so guessing passwords from a leaked hash needs a lot of memory as
+ * well as time for every guess.
+ *
+ * Hashes are stored as "scrypt$N$r$p$salt$key" with the salt and key in
+ * base64, so the cost can be raised later without breaking stored hashes.
+ */
+public final class PasswordHasher {
+    /** CPU and memory cost used for new hashes: 16 MiB per hash. */
+    public static final int DEFAULT_N = 1 << 14;
+    /** Block size used for new hashes. */
+    public static final int DEFAULT_R = 8;
+    /** Parallelism used for new hashes. */
+    public static final int DEFAULT_P = 1;
+
+    private static final String PREFIX = "scrypt";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int n;
+    private final int r;
+    private final int p;
+
+    /**
+     * Creates a hasher with the default cost.
+     */
+    public PasswordHasher() {
+        this(DEFAULT_N, DEFAULT_R, DEFAULT_P);
+    }
+
+    /**
+     * Creates a hasher with a given cost.
+     *
+     * @param n The CPU and memory cost, a power of two greater than 1.
+     * @param r The block size.
+     * @param p The parallelism.
+     */
+    public PasswordHasher(int n, int r, int p) {
+        if (n < 2 || (n & (n - 1)) != 0) {
+            throw new IllegalArgumentException("N must be a power of two greater than 1: " + n);
+        }
+        if (r < 1 || p < 1 || (long) r * p >= 1 << 30 || n > Integer.MAX_VALUE / 128 / r) {
+            throw new IllegalArgumentException("Bad scrypt parameters r=" + r + ", p=" + p);
+        }
+        this.n = n;
+        this.r = r;
+        this.p = p;
+    }
+
+    /**
+     * Hashes a password with a new random salt.
+     *
+     * @param password The password to hash.
+     * @return The encoded hash, ready to be stored.
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] key = scrypt(password.getBytes(StandardCharsets.UTF_8), salt, n, r, p, KEY_BYTES);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + '$' + n + '$' + r + '$' + p + '$' + b64.encodeToString(salt) + '$'
+                + b64.encodeToString(key);
+    }
+
+    /**
+     * Checks a password against a stored hash, using the cost the hash was made
+     * with.
+     *
+     * @param password The password to check.
+     * @param stored   The encoded hash from hash().
+     * @return Whether the password matches. A malformed hash never matches.
+     */
+    public static boolean verify(String password, String stored) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 6 || !parts[0].equals(PREFIX)) {
+            return false;
+        }
+        try {
+            int n = Integer.parseInt(parts[1]);
+            int r = Integer.parseInt(parts[2]);
+            int p = Integer.parseInt(parts[3]);
+            new PasswordHasher(n, r, p);
+            byte[] salt = Base64.getDecoder().decode(parts[4]);
+            byte[] expected = Base64.getDecoder().decode(parts[5]);
+            byte[] actual = scrypt(password.getBytes(StandardCharsets.UTF_8), salt, n, r, p, expected.length);
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Derives a key with scrypt.
+     *
+     * @param password The password bytes.
+     * @param salt     The salt bytes.
+     * @param n        The CPU and memory cost, a power of two.
+     * @param r        The block size.
+     * @param p        The parallelism.
+     * @param length   How many bytes of key to derive.
+     * @return The derived key.
+     */
+    static byte[] scrypt(byte[] password, byte[] salt, int n, int r, int p, int length) {
+        Mac mac = hmac(password);
+        int blockBytes = 128 * r;
+        byte[] b = pbkdf2(mac, salt, p * blockBytes);
+        int[] x = new int[32 * r];
+        int[] y = new int[32 * r];
+        int[] v = new int[32 * r * n];
+        int[] t = new int[16];
+        for (int i = 0; i < p; i++) {
+            romix(b, i * blockBytes, r, n, x, y, v, t);
+        }
+        return pbkdf2(mac, b, length);
+    }
+
+    private static Mac hmac(byte[] key) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            // An empty password is allowed, but SecretKeySpec rejects empty keys.
+            mac.init(key.length == 0 ? new EmptyKey() : new SecretKeySpec(key, "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    // PBKDF2-HMAC-SHA256 with one iteration, as scrypt uses it.
+    private static byte[] pbkdf2(Mac mac, byte[] salt, int length) {
+        byte[] out = new byte[length];
+        byte[] counter = new byte[4];
+        for (int block = 1, offset = 0; offset < length; block++, offset += 32) {
+            counter[0] = (byte) (block >>> 24);
+            counter[1] = (byte) (block >>> 16);
+            counter[2] = (byte) (block >>> 8);
+            counter[3] = (byte) block;
+            mac.update(salt);
+            byte[] u = mac.doFinal(counter);
+            System.arraycopy(u, 0, out, offset, Math.min(32, length - offset));
+        }
+        return out;
+    }
+
+    // Mixes one 128 * r byte block of b in place, through v (n blocks of memory).
+    private static void romix(byte[] b, int offset, int r, int n, int[] x, int[] y, int[] v,
+            int[] t) {
+        int words = 32 * r;
+        for (int i = 0; i < words; i++) {
+            int at = offset + i * 4;
+            x[i] = (b[at] & 0xFF) | (b[at + 1] & 0xFF) << 8 | (b[at + 2] & 0xFF) << 16 | (b[at + 3] & 0xFF) << 24;
+        }
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(x, 0, v, i * words, words);
+            blockMix(x, y, t, r);
+        }
+        for (int i = 0; i < n; i++) {
+            int j = x[(2 * r - 1) * 16] & (n - 1);
+            int base = j * words;
+            for (int k = 0; k < words; k++) {
+                x[k] ^= v[base + k];
+            }
+            blockMix(x, y, t, r);
+        }
+        for (int i = 0; i < words; i++) {
+            int at = offset + i * 4;
+            b[at] = (byte) x[i];
+            b[at + 1] = (byte) (x[i] >>> 8);
+            b[at + 2] = (byte) (x[i] >>> 16);
+            b[at + 3] = (byte) (x[i] >>> 24);
+        }
+    }
+
+    // scryptBlockMix: even output blocks go to the first half, odd ones to the second.
+    private static void blockMix(int[] b, int[] y, int[] t, int r) {
+        System.arraycopy(b, (2 * r - 1) * 16, t, 0, 16);
+        for (int i = 0; i < 2 * r; i++) {
+            for (int k = 0; k < 16; k++) {
+                t[k] ^= b[i * 16 + k];
+            }
+            salsa8(t);
+            int target = (i & 1) == 0 ? (i / 2) * 16 : (r + i / 2) * 16;
+            System.arraycopy(t, 0, y, target, 16);
+        }
+        System.arraycopy(y, 0, b, 0, 32 * r);
+    }
+
+    private static void salsa8(int[] b) {
+        int x0 = b[0], x1 = b[1], x2 = b[2], x3 = b[3], x4 = b[4], x5 = b[5], x6 = b[6], x7 = b[7];
+        int x8 = b[8], x9 = b[9], x10 = b[10], x11 = b[11], x12 = b[12], x13 = b[13], x14 = b[14], x15 = b[15];
+        for (int i = 0; i < 8; i += 2) {
+            x4 ^= Integer.rotateLeft(x0 + x12, 7);
+            x8 ^= Integer.rotateLeft(x4 + x0, 9);
+            x12 ^= Integer.rotateLeft(x8 + x4, 13);
+            x0 ^= Integer.rotateLeft(x12 + x8, 18);
+            x9 ^= Integer.rotateLeft(x5 + x1, 7);
+            x13 ^= Integer.rotateLeft(x9 + x5, 9);
+            x1 ^= Integer.rotateLeft(x13 + x9, 13);
+            x5 ^= Integer.rotateLeft(x1 + x13, 18);
+            x14 ^= Integer.rotateLeft(x10 + x6, 7);
+            x2 ^= Integer.rotateLeft(x14 + x10, 9);
+            x6 ^= Integer.rotateLeft(x2 + x14, 13);
+            x10 ^= Integer.rotateLeft(x6 + x2, 18);
+            x3 ^= Integer.rotateLeft(x15 + x11, 7);
+            x7 ^= Integer.rotateLeft(x3 + x15, 9);
+            x11 ^= Integer.rotateLeft(x7 + x3, 13);
+            x15 ^= Integer.rotateLeft(x11 + x7, 18);
+            x1 ^= Integer.rotateLeft(x0 + x3, 7);
+            x2 ^= Integer.rotateLeft(x1 + x0, 9);
+            x3 ^= Integer.rotateLeft(x2 + x1, 13);
+            x0 ^= Integer.rotateLeft(x3 + x2, 18);
+            x6 ^= Integer.rotateLeft(x5 + x4, 7);
+            x7 ^= Integer.rotateLeft(x6 + x5, 9);
+            x4 ^= Integer.rotateLeft(x7 + x6, 13);
+            x5 ^= Integer.rotateLeft(x4 + x7, 18);
+            x11 ^= Integer.rotateLeft(x10 + x9, 7);
+            x8 ^= Integer.rotateLeft(x11 + x10, 9);
+            x9 ^= Integer.rotateLeft(x8 + x11, 13);
+            x10 ^= Integer.rotateLeft(x9 + x8, 18);
+            x12 ^= Integer.rotateLeft(x15 + x14, 7);
+            x13 ^= Integer.rotateLeft(x12 + x15, 9);
+            x14 ^= Integer.rotateLeft(x13 + x12, 13);
+            x15 ^= Integer.rotateLeft(x14 + x13, 18);
+        }
+        b[0] += x0;
+        b[1] += x1;
+        b[2] += x2;
+        b[3] += x3;
+        b[4] += x4;
+        b[5] += x5;
+        b[6] += x6;
+        b[7] += x7;
+        b[8] += x8;
+        b[9] += x9;
+        b[10] += x10;
+        b[11] += x11;
+        b[12] += x12;
+        b[13] += x13;
+        b[14] += x14;
+        b[15] += x15;
+    }
+
+    /**
+     * An HMAC key with no bytes, which SecretKeySpec does not allow.
+     */
+    private static class EmptyKey implements javax.crypto.SecretKey {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String getAlgorithm() {
+            return "HmacSHA256";
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            return new byte[0];
+        }
+    }
+}
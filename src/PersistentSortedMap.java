@@ -0,0 +1,263 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * An immutable sorted map. put and remove leave the map they are called on as it
+ * was and return a new one, which shares every node off the changed path with
+ * the old one, so a change costs O(log n) new nodes rather than a copy.
+ *
+ * A map can therefore be handed to any number of readers, who can walk it with
+ * no locks while writers go on making newer versions. It is an AVL tree; values
+ * may not be null.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public final class PersistentSortedMap<K extends Comparable<? super K>, V> {
+    private static final PersistentSortedMap<?, ?> EMPTY = new PersistentSortedMap<>(null, 0);
+
+    private final Node<K, V> root;
+    private final int size;
+
+    private PersistentSortedMap(Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Fetches the empty map.
+     *
+     * @param <K> The key type.
+     * @param <V> The value type.
+     * @return The empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+        return (PersistentSortedMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Fetches the number of keys in the map.
+     *
+     * @return The number of keys.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the map has no keys.
+     *
+     * @return Whether the map is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Looks up the value for a key.
+     *
+     * @param key The key to look up.
+     * @return The value, or null if the key is not in the map.
+     */
+    public V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int c = key.compareTo(node.key);
+            if (c == 0) {
+                return node.value;
+            }
+            node = c < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Makes a map with a key set to a value.
+     *
+     * @param key   The key to set.
+     * @param value The value, not null.
+     * @return The new map.
+     */
+    public PersistentSortedMap<K, V> put(K key, V value) {
+        boolean added = get(key) == null;
+        return new PersistentSortedMap<K, V>(put(root, key, value), added ? size + 1 : size);
+    }
+
+    /**
+     * Makes a map without a key.
+     *
+     * @param key The key to take out.
+     * @return The new map, or this one if the key was not in it.
+     */
+    public PersistentSortedMap<K, V> remove(K key) {
+        if (get(key) == null) {
+            return this;
+        }
+        return new PersistentSortedMap<K, V>(remove(root, key), size - 1);
+    }
+
+    /**
+     * Walks the values whose keys lie in a range, in key order.
+     *
+     * @param from The lowest key wanted (inclusive), or null for no bound.
+     * @param to   The highest key wanted (exclusive), or null for no bound.
+     * @return The values in the range.
+     */
+    public Iterator<V> values(K from, K to) {
+        return new RangeIterator<K, V, V>(root, from, to, node -> node.value);
+    }
+
+    /**
+     * Walks the keys that lie in a range, in order.
+     *
+     * @param from The lowest key wanted (inclusive), or null for no bound.
+     * @param to   The highest key wanted (exclusive), or null for no bound.
+     * @return The keys in the range.
+     */
+    public Iterator<K> keys(K from, K to) {
+        return new RangeIterator<K, V, K>(root, from, to, node -> node.key);
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> put(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<K, V>(key, value, null, null);
+        }
+        int c = key.compareTo(node.key);
+        if (c == 0) {
+            return new Node<K, V>(key, value, node.left, node.right);
+        }
+        if (c < 0) {
+            return balance(node.key, node.value, put(node.left, key, value), node.right);
+        }
+        return balance(node.key, node.value, node.left, put(node.right, key, value));
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> remove(Node<K, V> node, K key) {
+        int c = key.compareTo(node.key);
+        if (c < 0) {
+            return balance(node.key, node.value, remove(node.left, key), node.right);
+        }
+        if (c > 0) {
+            return balance(node.key, node.value, node.left, remove(node.right, key));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<K, V> next = node.right;
+        while (next.left != null) {
+            next = next.left;
+        }
+        return balance(next.key, next.value, node.left, remove(node.right, next.key));
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int lean = height(left) - height(right);
+        if (lean > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.key, left.value, left.left, left.right);
+            }
+            return rotateRight(key, value, left, right);
+        }
+        if (lean < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.key, right.value, right.left, right.right);
+            }
+            return rotateLeft(key, value, left, right);
+        }
+        return new Node<K, V>(key, value, left, right);
+    }
+
+    private static <K, V> Node<K, V> rotateRight(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<K, V>(left.key, left.value, left.left, new Node<K, V>(key, value, left.right, right));
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<K, V>(right.key, right.value, new Node<K, V>(key, value, left, right.left), right.right);
+    }
+
+    /**
+     * One key and value with its subtrees. Never changed once made.
+     */
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+        }
+    }
+
+    /**
+     * Walks a range of the tree in order, keeping the path still to visit on a
+     * stack.
+     */
+    private static final class RangeIterator<K extends Comparable<? super K>, V, T> implements Iterator<T> {
+        private final ArrayDeque<Node<K, V>> path;
+        private final K to;
+        private final Function<Node<K, V>, T> part;
+        private Node<K, V> next;
+
+        RangeIterator(Node<K, V> root, K from, K to, Function<Node<K, V>, T> part) {
+            this.path = new ArrayDeque<Node<K, V>>();
+            this.to = to;
+            this.part = part;
+            Node<K, V> node = root;
+            while (node != null) {
+                if (from != null && node.key.compareTo(from) < 0) {
+                    node = node.right;
+                } else {
+                    path.push(node);
+                    node = node.left;
+                }
+            }
+            advance();
+        }
+
+        private void advance() {
+            next = path.poll();
+            if (next == null) {
+                return;
+            }
+            if (to != null && next.key.compareTo(to) >= 0) {
+                next = null;
+                path.clear();
+                return;
+            }
+            for (Node<K, V> node = next.right; node != null; node = node.left) {
+                path.push(node);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            T found = part.apply(next);
+            advance();
+            return found;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * How often a RecurringEvent repeats, along the lines of an iCalendar RRULE: every
+ * so many days, weeks (on one or more weekdays) or months, either forever, until
+ * a time or for a number of occurrences.
+ *
+ * Rules are immutable; every(), until() and times() return a changed copy, as in
+ * RecurrenceRule.weekly(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY).every(2).times(10).
+ */
+public final class RecurrenceRule {
+    /**
+     * The unit a rule repeats in.
+     */
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY
+    }
+
+    // A monthly rule on the 31st with a long interval can miss many months in a row.
+    private static final int MAX_EMPTY_PERIODS = 1000;
+
+    private final Frequency frequency;
+    private final int interval;
+    private final DayOfWeek[] days;
+    private final LocalDateTime until;
+    private final int count;
+
+    private RecurrenceRule(Frequency frequency, int interval, DayOfWeek[] days, LocalDateTime until, int count) {
+        this.frequency = frequency;
+        this.interval = interval;
+        this.days = days;
+        this.until = until;
+        this.count = count;
+    }
+
+    /**
+     * Creates a rule that repeats every day.
+     *
+     * @return The rule.
+     */
+    public static RecurrenceRule daily() {
+        return new RecurrenceRule(Frequency.DAILY, 1, new DayOfWeek[0], null, 0);
+    }
+
+    /**
+     * Creates a rule that repeats every week, on the given weekdays or, if none
+     * are given, on the weekday of the first occurrence.
+     *
+     * @param onDays The weekdays to repeat on.
+     * @return The rule.
+     */
+    public static RecurrenceRule weekly(DayOfWeek... onDays) {
+        DayOfWeek[] sorted = Arrays.stream(onDays).distinct().sorted().toArray(DayOfWeek[]::new);
+        return new RecurrenceRule(Frequency.WEEKLY, 1, sorted, null, 0);
+    }
+
+    /**
+     * Creates a rule that repeats every month on the day of the month of the
+     * first occurrence. Months without that day are skipped.
+     *
+     * @return The rule.
+     */
+    public static RecurrenceRule monthly() {
+        return new RecurrenceRule(Frequency.MONTHLY, 1, new DayOfWeek[0], null, 0);
+    }
+
+    /**
+     * Makes a copy of this rule that repeats every so many days, weeks or months.
+     *
+     * @param newInterval How many units apart occurrences are, at least 1.
+     * @return The changed rule.
+     */
+    public RecurrenceRule every(int newInterval) {
+        if (newInterval < 1) {
+            throw new IllegalArgumentException("interval must be positive: " + newInterval);
+        }
+        return new RecurrenceRule(frequency, newInterval, days, until, count);
+    }
+
+    /**
+     * Makes a copy of this rule that stops after a given time.
+     *
+     * @param last The latest time an occurrence may start (inclusive).
+     * @return The changed rule.
+     */
+    public RecurrenceRule until(LocalDateTime last) {
+        return new RecurrenceRule(frequency, interval, days, last, count);
+    }
+
+    /**
+     * Makes a copy of this rule that stops after a number of occurrences.
+     *
+     * @param occurrences How many occurrences there are, at least 1.
+     * @return The changed rule.
+     */
+    public RecurrenceRule times(int occurrences) {
+        if (occurrences < 1) {
+            throw new IllegalArgumentException("count must be positive: " + occurrences);
+        }
+        return new RecurrenceRule(frequency, interval, days, until, occurrences);
+    }
+
+    /**
+     * Fetches the unit the rule repeats in.
+     *
+     * @return The frequency.
+     */
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Fetches how many units apart occurrences are.
+     *
+     * @return The interval.
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Lists the start times of the occurrences at or after a given time, in order,
+     * working each one out only when it is asked for.
+     *
+     * @param start The start of the first occurrence.
+     * @param from  The earliest start time wanted.
+     * @return The occurrence start times, earliest first. It never ends if the
+     *         rule has no end.
+     */
+    public Iterator<LocalDateTime> occurrences(LocalDateTime start, LocalDateTime from) {
+        return new Occurrences(start, from);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("FREQ=").append(frequency).append(";INTERVAL=").append(interval);
+        if (days.length > 0) {
+            out.append(";BYDAY=");
+            for (int i = 0; i < days.length; i++) {
+                out.append(i == 0 ? "" : ",").append(days[i].name(), 0, 2);
+            }
+        }
+        if (until != null) {
+            out.append(";UNTIL=").append(until);
+        }
+        if (count > 0) {
+            out.append(";COUNT=").append(count);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Walks the periods (days, weeks or months) of a rule, producing the
+     * occurrences in each.
+     */
+    private class Occurrences implements Iterator<LocalDateTime> {
+        private final LocalDateTime start;
+        private final LocalDateTime from;
+        private final DayOfWeek[] weekDays;
+        private final LocalDate firstPeriod;
+        private long period;
+        private int dayIndex;
+        private int produced;
+        private LocalDateTime next;
+        private boolean done;
+
+        Occurrences(LocalDateTime start, LocalDateTime from) {
+            this.start = start;
+            this.from = from;
+            this.weekDays = days.length > 0 ? days : new DayOfWeek[] { start.getDayOfWeek() };
+            this.firstPeriod = frequency == Frequency.WEEKLY
+                    ? start.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                    : start.toLocalDate();
+            // With a count every occurrence has to be counted from the start, so only
+            // rules without one can jump straight to the period holding from.
+            if (count == 0 && from.isAfter(start)) {
+                long units = unitsBetween(firstPeriod, from.toLocalDate());
+                period = Math.max(0, units / interval - 1);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !done) {
+                next = advance();
+                if (next != null && next.isBefore(from)) {
+                    next = null;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public LocalDateTime next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LocalDateTime result = next;
+            next = null;
+            return result;
+        }
+
+        // Produces the next occurrence of the rule, even if it is before from.
+        private LocalDateTime advance() {
+            int emptyPeriods = 0;
+            while (true) {
+                if (count > 0 && produced >= count) {
+                    done = true;
+                    return null;
+                }
+                LocalDateTime candidate = candidate();
+                if (candidate != null && until != null && candidate.isAfter(until)) {
+                    done = true;
+                    return null;
+                }
+                if (candidate != null && !candidate.isBefore(start)) {
+                    produced++;
+                    return candidate;
+                }
+                if (candidate == null && ++emptyPeriods > MAX_EMPTY_PERIODS) {
+                    done = true;
+                    return null;
+                }
+            }
+        }
+
+        // The next candidate time in the current period, moving on a period when
+        // this one is used up; null when a period has no candidate at all.
+        private LocalDateTime candidate() {
+            long offset = period * interval;
+            switch (frequency) {
+            case DAILY:
+                period++;
+                return firstPeriod.plusDays(offset).atTime(start.toLocalTime());
+            case WEEKLY:
+                LocalDate monday = firstPeriod.plusWeeks(offset);
+                LocalDateTime time = monday.plusDays(weekDays[dayIndex].ordinal()).atTime(start.toLocalTime());
+                if (++dayIndex == weekDays.length) {
+                    dayIndex = 0;
+                    period++;
+                }
+                return time;
+            default:
+                period++;
+                LocalDate month = firstPeriod.withDayOfMonth(1).plusMonths(offset);
+                if (start.getDayOfMonth() > month.lengthOfMonth()) {
+                    return null;
+                }
+                return month.withDayOfMonth(start.getDayOfMonth()).atTime(start.toLocalTime());
+            }
+        }
+
+        private long unitsBetween(LocalDate first, LocalDate last) {
+            switch (frequency) {
+            case DAILY:
+                return ChronoUnit.DAYS.between(first, last);
+            case WEEKLY:
+                return ChronoUnit.WEEKS.between(first, last);
+            default:
+                return ChronoUnit.MONTHS.between(first.withDayOfMonth(1), last.withDayOfMonth(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An event that repeats by a RecurrenceRule, such as a weekly club meeting.
+ *
+ * Occurrences are not stored. They are worked out from the rule when a range of
+ * time is asked for, and each comes back as an ordinary Event. A single
+ * occurrence can be cancelled, or overridden by a different Event (to move or
+ * rename just that one). An occurrence that has been voted on is kept, so its
+ * votes are there the next time it is asked for. The rest are only held weakly:
+ * while anything still holds an occurrence, every walk hands back that same
+ * Event, with the same event ID, so two holders never vote on two copies; once
+ * nothing does, it is made afresh the next time.
+ *
+ * Occurrences are identified by the time they start according to the rule,
+ * even if they have been overridden to start at another time.
+ */
+public class RecurringEvent {
+    private final Event template;
+    private final RecurrenceRule rule;
+    private final ConcurrentHashMap<LocalDateTime, Event> voted;
+    // Occurrences handed out and not voted on; cleared ones are purged as new ones are made.
+    private final ConcurrentHashMap<LocalDateTime, OccurrenceRef> live;
+    private final ReferenceQueue<Event> collected;
+    private final ConcurrentSkipListMap<LocalDateTime, Event> overrides;
+    private final Set<LocalDateTime> cancelled;
+    private final CopyOnWriteArrayList<EventListListener> listeners;
+    private final VoteListener voteForwarder = this::fireVotesChanged;
+
+    /**
+     * Creates a recurring event.
+     *
+     * @param inputID       The user ID of the author.
+     * @param inputName     The name of every occurrence.
+     * @param inputLocation The location of every occurrence.
+     * @param firstTime     The start of the first occurrence.
+     * @param rule          How the event repeats.
+     */
+    public RecurringEvent(String inputID, String inputName, String inputLocation, LocalDateTime firstTime,
+            RecurrenceRule rule) {
+        this.template = new Event(inputID, inputName, inputLocation, firstTime);
+        this.rule = rule;
+        this.voted = new ConcurrentHashMap<LocalDateTime, Event>();
+        this.live = new ConcurrentHashMap<LocalDateTime, OccurrenceRef>();
+        this.collected = new ReferenceQueue<Event>();
+        this.overrides = new ConcurrentSkipListMap<LocalDateTime, Event>();
+        this.cancelled = ConcurrentHashMap.newKeySet();
+        this.listeners = new CopyOnWriteArrayList<EventListListener>();
+    }
+
+    /**
+     * Fetches the event the occurrences are copied from, which is also the first
+     * occurrence before any override.
+     *
+     * @return The template event.
+     */
+    public Event getTemplate() {
+        return template;
+    }
+
+    /**
+     * Fetches how the event repeats.
+     *
+     * @return The rule.
+     */
+    public RecurrenceRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Checks whether the rule has an occurrence starting at a time, whether or not
+     * it has been cancelled or overridden.
+     *
+     * @param originalTime The time to check.
+     * @return Whether an occurrence is scheduled then.
+     */
+    public boolean isScheduled(LocalDateTime originalTime) {
+        Iterator<LocalDateTime> times = rule.occurrences(template.getKey().getTime(), originalTime);
+        return times.hasNext() && times.next().equals(originalTime);
+    }
+
+    /**
+     * Fetches one occurrence, to vote on or show.
+     *
+     * @param originalTime The time the occurrence starts according to the rule.
+     * @return The occurrence, or null if there is none then or it was cancelled.
+     */
+    public Event getOccurrence(LocalDateTime originalTime) {
+        if (cancelled.contains(originalTime) || !isScheduled(originalTime)) {
+            return null;
+        }
+        Event override = overrides.get(originalTime);
+        return override != null ? override : occurrence(originalTime);
+    }
+
+    /**
+     * Cancels one occurrence.
+     *
+     * @param originalTime The time the occurrence starts according to the rule.
+     */
+    public void cancel(LocalDateTime originalTime) {
+        cancelled.add(originalTime);
+        detach(overrides.remove(originalTime));
+        voted.remove(originalTime);
+        live.remove(originalTime);
+        fireChanged();
+    }
+
+    /**
+     * Replaces one occurrence with a different event, such as the same meeting in
+     * another room or at another time.
+     *
+     * @param originalTime The time the occurrence starts according to the rule.
+     * @param replacement  The event to show instead.
+     */
+    public void override(LocalDateTime originalTime, Event replacement) {
+        cancelled.remove(originalTime);
+        voted.remove(originalTime);
+        live.remove(originalTime);
+        replacement.addVoteListener(voteForwarder);
+        detach(overrides.put(originalTime, replacement));
+        fireChanged();
+    }
+
+    /**
+     * Undoes a cancel or override, bringing back the occurrence the rule gives.
+     *
+     * @param originalTime The time the occurrence starts according to the rule.
+     */
+    public void restore(LocalDateTime originalTime) {
+        cancelled.remove(originalTime);
+        detach(overrides.remove(originalTime));
+        fireChanged();
+    }
+
+    /**
+     * Fetches the occurrences that start inside a window of time, in the order of
+     * Event.compareTo, working them out as they are walked.
+     *
+     * @param from The start of the window (inclusive).
+     * @param to   The end of the window (exclusive), or null for no end.
+     * @return The occurrences in the window, earliest first.
+     */
+    public Iterable<Event> occurrencesBetween(LocalDateTime from, LocalDateTime to) {
+        return () -> new OccurrenceIterator(from, to);
+    }
+
+    /**
+     * Registers a listener to hear about cancels, overrides and votes on
+     * occurrences. Only recurringChanged and votesChanged are called.
+     *
+     * @param listener The listener to add.
+     */
+    public void addListener(EventListListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops a listener from hearing about this recurring event.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeListener(EventListListener listener) {
+        listeners.remove(listener);
+    }
+
+    private Event occurrence(LocalDateTime time) {
+        Event kept = voted.get(time);
+        if (kept != null) {
+            return kept;
+        }
+        for (Reference<? extends Event> r; (r = collected.poll()) != null;) {
+            live.remove(((OccurrenceRef) r).time, r);
+        }
+        // Made inside compute, so two walks at once still agree on one Event.
+        Event[] found = new Event[1];
+        live.compute(time, (t, ref) -> {
+            Event e = ref == null ? null : ref.get();
+            if (e == null) {
+                e = newOccurrence(t);
+                ref = new OccurrenceRef(t, e, collected);
+            }
+            found[0] = e;
+            return ref;
+        });
+        return found[0];
+    }
+
+    private Event newOccurrence(LocalDateTime time) {
+        Event e = new Event(template.getAuthorID(), template.getName(), template.getLocation(), time,
+                template.getDuration());
+        e.addVoteListener(changed -> {
+            voted.putIfAbsent(time, changed);
+            fireVotesChanged(changed);
+        });
+        return e;
+    }
+
+    private void detach(Event replaced) {
+        if (replaced != null) {
+            replaced.removeVoteListener(voteForwarder);
+        }
+    }
+
+    private void fireVotesChanged(Event changed) {
+        for (EventListListener l : listeners) {
+            l.votesChanged(changed);
+        }
+    }
+
+    private void fireChanged() {
+        for (EventListListener l : listeners) {
+            l.recurringChanged(this);
+        }
+    }
+
+    /**
+     * A weak reference to an occurrence that remembers which time it was made
+     * for, so it can be taken out of the map once cleared.
+     */
+    private static final class OccurrenceRef extends WeakReference<Event> {
+        final LocalDateTime time;
+
+        OccurrenceRef(LocalDateTime time, Event occurrence, ReferenceQueue<Event> queue) {
+            super(occurrence, queue);
+            this.time = time;
+        }
+    }
+
+    /**
+     * Merges the occurrences the rule gives, minus cancelled and overridden ones,
+     * with the overrides that land in the window.
+     */
+    private class OccurrenceIterator implements Iterator<Event> {
+        private final LocalDateTime to;
+        private final Iterator<LocalDateTime> times;
+        private final Iterator<Event> moved;
+        private Event nextGenerated;
+        private Event nextMoved;
+        private boolean pastWindow;
+
+        OccurrenceIterator(LocalDateTime from, LocalDateTime to) {
+            this.to = to;
+            this.times = rule.occurrences(template.getKey().getTime(), from);
+            // Overrides are few, so the ones in the window are simply sorted up front.
+            List<Event> inWindow = new ArrayList<Event>();
+            for (Map.Entry<LocalDateTime, Event> o : overrides.entrySet()) {
+                LocalDateTime time = o.getValue().getKey().getTime();
+                if (!time.isBefore(from) && (to == null || time.isBefore(to)) && isScheduled(o.getKey())) {
+                    inWindow.add(o.getValue());
+                }
+            }
+            Collections.sort(inWindow);
+            this.moved = inWindow.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextGenerated == null && !pastWindow && times.hasNext()) {
+                LocalDateTime time = times.next();
+                if (to != null && !time.isBefore(to)) {
+                    pastWindow = true;
+                    break;
+                }
+                if (!cancelled.contains(time) && !overrides.containsKey(time)) {
+                    nextGenerated = occurrence(time);
+                }
+            }
+            if (nextMoved == null && moved.hasNext()) {
+                nextMoved = moved.next();
+            }
+            return nextGenerated != null || nextMoved != null;
+        }
+
+        @Override
+        public Event next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Event result;
+            if (nextMoved == null || (nextGenerated != null && nextGenerated.compareTo(nextMoved) <= 0)) {
+                result = nextGenerated;
+                nextGenerated = null;
+            } else {
+                result = nextMoved;
+                nextMoved = null;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tells subscribers which of the events they watch have had their votes
+ * change, at most once per event per interval, however many votes come in, and
+ * which have been removed from the list.
+ *
+ * A vote on a watched event is passed to a ChangeCoalescer that follows no
+ * list, and a vote on an event nobody watches costs one hash lookup, so voting
+ * never waits for a subscriber. Once an interval, the coalescer's timer thread
+ * hands the changed events to the subscriptions that watch them. Each
+ * subscription keeps a set of changes rather than a queue, so a slow
+ * subscriber falls behind by at most the events it watches and reads their
+ * latest counts when it catches up. A subscription whose events have all been
+ * removed ends once it has handed over the removals.
+ */
+public class ScoreFeed implements EventListListener, Closeable {
+    private final EventList events;
+    private final ConcurrentHashMap<Long, Set<Subscription>> watchers;
+    private final ChangeCoalescer coalescer;
+
+    /**
+     * Starts following an event list.
+     *
+     * @param events         The list to follow.
+     * @param intervalMillis The shortest time between two updates for an event.
+     */
+    public ScoreFeed(EventList events, long intervalMillis) {
+        this.events = events;
+        this.watchers = new ConcurrentHashMap<Long, Set<Subscription>>();
+        // Delivered on the coalescer's timer thread, which only hands changes over.
+        this.coalescer = new ChangeCoalescer(intervalMillis, Runnable::run, this::deliver);
+        events.addListener(this);
+    }
+
+    /**
+     * Starts watching some events.
+     *
+     * @param watched The events to watch.
+     * @return The subscription, to be closed when no longer wanted.
+     */
+    public Subscription subscribe(Collection<Event> watched) {
+        Subscription s = new Subscription(watched);
+        for (Event e : s.watched) {
+            watchers.compute(e.getEventID(), (id, subscribed) -> {
+                Set<Subscription> to = subscribed != null ? subscribed : ConcurrentHashMap.<Subscription>newKeySet();
+                to.add(s);
+                return to;
+            });
+        }
+        for (Event e : s.watched) {
+            // Removed before the watch began, so eventRemoved will not come.
+            if (!events.holds(e)) {
+                eventRemoved(e);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Stops following the event list and closes every subscription.
+     */
+    @Override
+    public void close() {
+        events.removeListener(this);
+        coalescer.close();
+        for (Set<Subscription> subscribed : watchers.values()) {
+            for (Subscription s : subscribed) {
+                s.close();
+            }
+        }
+    }
+
+    @Override
+    public void votesChanged(Event e) {
+        if (watchers.containsKey(e.getEventID())) {
+            coalescer.record(new EventChange(EventChange.Kind.VOTES_CHANGED, e));
+        }
+    }
+
+    @Override
+    public void eventRemoved(Event e) {
+        if (watchers.containsKey(e.getEventID())) {
+            coalescer.record(new EventChange(EventChange.Kind.REMOVED, e));
+        }
+    }
+
+    private void deliver(List<EventChange> batch) {
+        for (EventChange change : batch) {
+            long id = change.getEvent().getEventID();
+            // A removed event will not change again, so nobody is left watching it.
+            Set<Subscription> subscribed = change.getKind() == EventChange.Kind.REMOVED ? watchers.remove(id)
+                    : watchers.get(id);
+            if (subscribed != null) {
+                for (Subscription s : subscribed) {
+                    s.offer(change);
+                }
+            }
+        }
+    }
+
+    /**
+     * One subscriber's watch on some events. The subscriber takes the changes
+     * from it on its own thread, at its own pace.
+     */
+    public final class Subscription implements Closeable {
+        private final List<Event> watched;
+        private final ReentrantLock lock;
+        private final Condition ready;
+        // Guarded by lock; by event ID, in the order changes were offered.
+        private LinkedHashMap<Long, EventChange> pending;
+        private int remaining;
+        private boolean closed;
+
+        private Subscription(Collection<Event> watched) {
+            this.watched = new ArrayList<Event>(watched);
+            this.lock = new ReentrantLock();
+            this.ready = lock.newCondition();
+            this.pending = new LinkedHashMap<Long, EventChange>();
+            this.remaining = (int) this.watched.stream().mapToLong(Event::getEventID).distinct().count();
+        }
+
+        /**
+         * Fetches the events being watched.
+         *
+         * @return The watched events.
+         */
+        public List<Event> getWatched() {
+            return watched;
+        }
+
+        /**
+         * Waits for watched events to have their votes change or be removed.
+         *
+         * @param timeoutMillis The longest time to wait.
+         * @return The changes since the last call, VOTES_CHANGED or REMOVED,
+         *         one per event, which is empty if the wait timed out, or null
+         *         once the subscription is closed or every watched event has
+         *         been removed and said so.
+         * @throws InterruptedException If the thread is interrupted while waiting.
+         */
+        public List<EventChange> take(long timeoutMillis) throws InterruptedException {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed && remaining > 0 && nanos > 0) {
+                    nanos = ready.awaitNanos(nanos);
+                }
+                if (closed || (pending.isEmpty() && remaining == 0)) {
+                    return null;
+                }
+                List<EventChange> taken = new ArrayList<EventChange>(pending.values());
+                pending = new LinkedHashMap<Long, EventChange>();
+                return taken;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Stops watching, and wakes a subscriber waiting in take.
+         */
+        @Override
+        public void close() {
+            for (Event e : watched) {
+                watchers.computeIfPresent(e.getEventID(), (id, subscribed) -> {
+                    subscribed.remove(this);
+                    return subscribed.isEmpty() ? null : subscribed;
+                });
+            }
+            lock.lock();
+            try {
+                closed = true;
+                ready.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void offer(EventChange change) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (change.getKind() == EventChange.Kind.REMOVED) {
+                    remaining--;
+                }
+                if (pending.put(change.getEvent().getEventID(), change) == null) {
+                    ready.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,356 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Finds the events of an EventList by the words in their names and locations,
+ * for search and typeahead. A query is one or more words, each matching any
+ * word that starts with it, and an event has to match all of them, so "ap ga"
+ * finds "Party" at "Apple Gate". Results are ranked by net vote score or by
+ * time.
+ *
+ * Each event gets a small int ordinal, and every prefix of every word (up to
+ * PREFIX_LENGTH characters) maps to the OrdinalBitmap of the events that have
+ * it, so a prefix of any length is one hash lookup away. A query that narrows
+ * things down scans its rarest word's events and ranks what matches; a query
+ * whose every word is common, as typeahead's first letters are, walks the
+ * ranking from the top and stops after enough matches. The index is updated
+ * as events are added, removed, renamed and voted on, in O(words) map and
+ * bitmap changes plus an O(log n) re-rank. A vote's re-rank is handed to an
+ * UpdateCombiner rather than waiting for the lock, as in Leaderboard.
+ *
+ * Events let go by a compressed bucket are no longer indexed.
+ */
+public class SearchIndex implements EventListListener {
+    /**
+     * How to order search results.
+     */
+    public enum Order {
+        /** Highest net vote score first, like Leaderboard. */
+        SCORE,
+        /** Earliest first, like EventList. */
+        TIME
+    }
+
+    // Longer prefixes share the bitmap of their first PREFIX_LENGTH characters.
+    private static final int PREFIX_LENGTH = 8;
+    // A rarest word with more events than this sends the query down the ranking instead.
+    private static final int SCAN_LIMIT = 16384;
+    private static final Comparator<Doc> BY_TIME = (a, b) -> {
+        int byKey = a.key.compareTo(b.key);
+        return byKey != 0 ? byKey : Long.compare(a.event.getEventID(), b.event.getEventID());
+    };
+    private static final Comparator<Doc> BY_SCORE = (a, b) -> {
+        if (a.score != b.score) {
+            return Integer.compare(b.score, a.score);
+        }
+        return BY_TIME.compare(a, b);
+    };
+
+    private final HashMap<String, OrdinalBitmap> postings;
+    private final IdentityHashMap<Event, Doc> docs;
+    private final ArrayList<Doc> byOrdinal;
+    private final ArrayList<Integer> freeOrdinals;
+    private final TreeSet<Doc> byScore;
+    private final TreeSet<Doc> byTime;
+    private final UpdateCombiner<Event> rescores;
+
+    /**
+     * Creates an index that follows the given event list from now on, starting
+     * with the events already in it.
+     *
+     * @param events The event list to index.
+     */
+    public SearchIndex(EventList events) {
+        postings = new HashMap<String, OrdinalBitmap>();
+        docs = new IdentityHashMap<Event, Doc>();
+        byOrdinal = new ArrayList<Doc>();
+        freeOrdinals = new ArrayList<Integer>();
+        byScore = new TreeSet<Doc>(BY_SCORE);
+        byTime = new TreeSet<Doc>(BY_TIME);
+        rescores = new UpdateCombiner<Event>(this::rescore);
+        // Listening before walking, with the lock held, so no event added meanwhile is missed.
+        events.addListener(this);
+        rescores.lock();
+        try {
+            for (Event e : events) {
+                add(e);
+            }
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    /**
+     * Finds the events that match every word of a query.
+     *
+     * @param query The words to look for, in any case. Each matches any word
+     *              of an event's name or location that starts with it.
+     * @param order How to rank the results.
+     * @param k     The most events to return.
+     * @return Up to k matching events, best first.
+     */
+    public List<Event> search(String query, Order order, int k) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || k <= 0) {
+            return new ArrayList<Event>();
+        }
+        rescores.lock();
+        try {
+            return find(terms, order, k);
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    /**
+     * Fetches the number of events in the index.
+     *
+     * @return The number of events indexed.
+     */
+    public int size() {
+        rescores.lock();
+        try {
+            return docs.size();
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    @Override
+    public void eventAdded(Event added) {
+        rescores.lock();
+        try {
+            add(added);
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    @Override
+    public void eventRemoved(Event removed) {
+        rescores.lock();
+        try {
+            Doc doc = docs.get(removed);
+            if (doc != null) {
+                unindex(doc);
+            }
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    @Override
+    public void eventMoved(Event moved) {
+        rescores.lock();
+        try {
+            Doc doc = docs.get(moved);
+            // The key holds the name and location, so an unchanged key means unchanged words.
+            if (doc != null && !doc.key.equals(moved.getKey())) {
+                unindex(doc);
+                index(moved);
+            }
+        } finally {
+            rescores.unlock();
+        }
+    }
+
+    @Override
+    public void votesChanged(Event changed) {
+        rescores.offer(changed);
+    }
+
+    // Called with the lock held.
+    private List<Event> find(List<String> terms, Order order, int k) {
+        List<Event> found = new ArrayList<Event>();
+        OrdinalBitmap[] sets = new OrdinalBitmap[terms.size()];
+        boolean exact = true;
+        for (int i = 0; i < sets.length; i++) {
+            String term = terms.get(i);
+            exact &= term.length() <= PREFIX_LENGTH;
+            sets[i] = postings.get(term.length() <= PREFIX_LENGTH ? term : term.substring(0, PREFIX_LENGTH));
+            if (sets[i] == null) {
+                return found;
+            }
+        }
+        OrdinalBitmap rarest = sets[0];
+        for (OrdinalBitmap set : sets) {
+            if (set.size() < rarest.size()) {
+                rarest = set;
+            }
+        }
+        Comparator<Doc> ranking = order == Order.SCORE ? BY_SCORE : BY_TIME;
+        if (rarest.size() > SCAN_LIMIT) {
+            // Every word is common, so matches are likely near the top of the ranking.
+            int walked = 0;
+            for (Doc doc : order == Order.SCORE ? byScore : byTime) {
+                if (matches(doc, terms)) {
+                    found.add(doc.event);
+                    if (found.size() == k) {
+                        return found;
+                    }
+                }
+                if (++walked == SCAN_LIMIT) {
+                    break;
+                }
+            }
+            if (walked < SCAN_LIMIT) {
+                return found;
+            }
+            found.clear();
+        }
+        PriorityQueue<Doc> top = new PriorityQueue<Doc>(Math.min(k, rarest.size()) + 1, ranking.reversed());
+        for (int ordinal : rarest.toArray()) {
+            Doc doc = byOrdinal.get(ordinal);
+            if (inAll(ordinal, sets) && (exact || matches(doc, terms))) {
+                top.add(doc);
+                if (top.size() > k) {
+                    top.poll();
+                }
+            }
+        }
+        while (!top.isEmpty()) {
+            found.add(top.poll().event);
+        }
+        Collections.reverse(found);
+        return found;
+    }
+
+    private void add(Event added) {
+        if (!docs.containsKey(added)) {
+            index(added);
+        }
+    }
+
+    // Called with the lock held; a re-rank for an event since removed finds no doc.
+    private void rescore(Event changed) {
+        Doc doc = docs.get(changed);
+        if (doc == null || doc.score == changed.getScore()) {
+            return;
+        }
+        byScore.remove(doc);
+        doc.score = changed.getScore();
+        byScore.add(doc);
+    }
+
+    /**
+     * Splits text into lower-case words at anything that is not a letter or
+     * digit, dropping repeats.
+     */
+    static List<String> tokenize(String text) {
+        Set<String> words = new LinkedHashSet<String>();
+        if (text == null) {
+            return new ArrayList<String>();
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return new ArrayList<String>(words);
+    }
+
+    private void index(Event event) {
+        int ordinal;
+        if (freeOrdinals.isEmpty()) {
+            ordinal = byOrdinal.size();
+            byOrdinal.add(null);
+        } else {
+            ordinal = freeOrdinals.remove(freeOrdinals.size() - 1);
+        }
+        Doc doc = new Doc(event, ordinal);
+        byOrdinal.set(ordinal, doc);
+        docs.put(event, doc);
+        byScore.add(doc);
+        byTime.add(doc);
+        for (String prefix : prefixes(doc.words)) {
+            postings.computeIfAbsent(prefix, p -> new OrdinalBitmap()).add(ordinal);
+        }
+    }
+
+    private void unindex(Doc doc) {
+        for (String prefix : prefixes(doc.words)) {
+            OrdinalBitmap set = postings.get(prefix);
+            set.remove(doc.ordinal);
+            if (set.size() == 0) {
+                postings.remove(prefix);
+            }
+        }
+        byScore.remove(doc);
+        byTime.remove(doc);
+        docs.remove(doc.event);
+        byOrdinal.set(doc.ordinal, null);
+        freeOrdinals.add(doc.ordinal);
+    }
+
+    // Every distinct prefix of the words, up to PREFIX_LENGTH characters.
+    private static Set<String> prefixes(String[] words) {
+        Set<String> all = new LinkedHashSet<String>();
+        for (String word : words) {
+            for (int length = 1; length <= Math.min(word.length(), PREFIX_LENGTH); length++) {
+                all.add(word.substring(0, length));
+            }
+        }
+        return all;
+    }
+
+    private static boolean inAll(int ordinal, OrdinalBitmap[] sets) {
+        for (OrdinalBitmap set : sets) {
+            if (!set.contains(ordinal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(Doc doc, List<String> terms) {
+        for (String term : terms) {
+            boolean any = false;
+            for (String word : doc.words) {
+                if (word.startsWith(term)) {
+                    any = true;
+                    break;
+                }
+            }
+            if (!any) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An indexed event, with the words, key and score it was indexed under, so
+     * it can be found again after they change.
+     */
+    private static class Doc {
+        final Event event;
+        final int ordinal;
+        final EventKey key;
+        final String[] words;
+        int score;
+
+        Doc(Event event, int ordinal) {
+            this.event = event;
+            this.ordinal = ordinal;
+            this.key = event.getKey();
+            Set<String> words = new LinkedHashSet<String>(tokenize(key.getName()));
+            words.addAll(tokenize(key.getLocation()));
+            this.words = words.toArray(new String[0]);
+            this.score = event.getScore();
+        }
+    }
+}
@@ -0,0 +1,371 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Compact binary format for saving users, events and votes, used by EventStore
+ * snapshots.
+ *
+ * Author IDs, voter IDs and locations repeat a lot, so each one is written in
+ * full the first time it appears and as a small ordinal after that, and an
+ * event with no author takes a single zero byte. Events are
+ * written in order, so each start time is stored as the difference in seconds
+ * from the one before, followed by the event's duration. A vote takes a voter
+ * ordinal plus one bit for up or down. Numbers are variable-length, so small
+ * values take one byte. Encoding streams through a single reused buffer, and
+ * decoding reads straight from a (usually memory-mapped) buffer.
+ *
+ * An image can also hold copies of live events, as a compressed EventBucket
+ * does. Each event then starts with the difference between its ID and the one
+ * before, and is read back as a read-only copy with the same ID.
+ */
+public final class SnapshotCodec {
+    private static final int MAGIC = 0xD4745A90;
+    private static final int VERSION = 6;
+    private static final byte COPIES = 1;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Writes a snapshot to a channel.
+     *
+     * @param out        The channel to write to.
+     * @param seq        The log sequence number the snapshot covers.
+     * @param users      The users to save.
+     * @param events     The events, with their votes, to save, in order.
+     * @param eventCount How many events there are.
+     * @throws IOException If the channel cannot be written.
+     */
+    public static void encode(WritableByteChannel out, long seq, Collection<User> users, Iterable<Event> events,
+            int eventCount) throws IOException {
+        write(out, seq, users, events, null, false, eventCount);
+    }
+
+    /**
+     * Writes a snapshot to a channel, saving each event under a given key rather
+     * than its own, such as the key it had when an EventList.Snapshot was taken.
+     *
+     * @param out        The channel to write to.
+     * @param seq        The log sequence number the snapshot covers.
+     * @param users      The users to save.
+     * @param events     The events, with their votes, to save, in order.
+     * @param keys       The key to save each event under, in step with events,
+     *                   or null to use the events' own keys.
+     * @param eventCount How many events there are.
+     * @throws IOException If the channel cannot be written.
+     */
+    static void encode(WritableByteChannel out, long seq, Collection<User> users, Iterable<Event> events,
+            Iterable<EventKey> keys, int eventCount) throws IOException {
+        write(out, seq, users, events, keys, false, eventCount);
+    }
+
+    /**
+     * Writes an image of events, with their IDs, to be read back as read-only
+     * copies of them.
+     *
+     * @param out        The channel to write to.
+     * @param events     The events, with their votes, to save, in order.
+     * @param eventCount How many events there are.
+     * @throws IOException If the channel cannot be written.
+     */
+    static void encodeCopies(WritableByteChannel out, Iterable<Event> events, int eventCount) throws IOException {
+        write(out, 0, Collections.<User>emptyList(), events, null, true, eventCount);
+    }
+
+    private static void write(WritableByteChannel out, long seq, Collection<User> users, Iterable<Event> events,
+            Iterable<EventKey> keys, boolean copies, int eventCount) throws IOException {
+        Iterator<EventKey> filed = keys == null ? null : keys.iterator();
+        Writer w = new Writer(out);
+        w.ensure(17);
+        w.buf.putInt(MAGIC).putInt(VERSION).putLong(seq).put(copies ? COPIES : 0);
+        w.varint(users.size());
+        for (User u : users) {
+            w.ref(u.getUserID());
+            w.string(u.getEmail());
+            w.string(u.getHashedPassword());
+        }
+        w.varint(eventCount);
+        long previousSecond = 0;
+        long previousID = 0;
+        ArrayList<Vote> snapshot = new ArrayList<Vote>();
+        for (Event e : events) {
+            EventKey key = filed == null ? e.getKey() : filed.next();
+            if (copies) {
+                w.varlong(zigzag(e.getEventID() - previousID));
+                previousID = e.getEventID();
+            }
+            long second = key.getTime().toEpochSecond(ZoneOffset.UTC);
+            w.ref(e.getAuthorID());
+            w.string(key.getName());
+            w.ref(key.getLocation());
+            w.varlong(zigzag(second - previousSecond));
+            w.varint(key.getTime().getNano());
+            previousSecond = second;
+            w.varlong(e.getDuration().getSeconds());
+            w.varint(e.getDuration().getNano());
+
+            // Copied once so the count, the voters and the bits all agree.
+            snapshot.clear();
+            snapshot.addAll(e.getVotes());
+            w.varint(snapshot.size());
+            for (Vote v : snapshot) {
+                w.ref(v.getAuthorID());
+            }
+            int bits = 0;
+            int filled = 0;
+            for (Vote v : snapshot) {
+                if (v.getValue()) {
+                    bits |= 1 << filled;
+                }
+                if (++filled == 8) {
+                    w.ensure(1);
+                    w.buf.put((byte) bits);
+                    bits = 0;
+                    filled = 0;
+                }
+            }
+            if (filled > 0) {
+                w.ensure(1);
+                w.buf.put((byte) bits);
+            }
+        }
+        w.flush();
+    }
+
+    /**
+     * Reads a snapshot back into memory. An image written by encodeCopies comes
+     * back as read-only copies that keep the IDs of the events copied.
+     *
+     * @param in     The buffer holding the snapshot.
+     * @param users  Where to put the loaded users, keyed by user ID.
+     * @param events Where to put the loaded events.
+     * @return The log sequence number the snapshot covers.
+     * @throws IOException If the buffer does not hold a snapshot.
+     */
+    public static long decode(ByteBuffer in, Map<String, User> users, EventList events) throws IOException {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException("Not a Down4That snapshot");
+        }
+        Reader r = new Reader(in);
+        long seq = in.getLong();
+        boolean copies = in.get() == COPIES;
+        int userCount = r.varint();
+        for (int i = 0; i < userCount; i++) {
+            String id = r.ref();
+            String email = r.string();
+            users.put(id, User.withStoredPassword(email, id, r.string()));
+        }
+        int eventCount = r.varint();
+        long second = 0;
+        long id = 0;
+        String[] voters = new String[16];
+        for (int i = 0; i < eventCount; i++) {
+            if (copies) {
+                id += unzigzag(r.varlong());
+            }
+            String author = r.ref();
+            String name = r.string();
+            String location = r.ref();
+            second += unzigzag(r.varlong());
+            LocalDateTime time = LocalDateTime.ofEpochSecond(second, r.varint(), ZoneOffset.UTC);
+            Duration duration = Duration.ofSeconds(r.varlong(), r.varint());
+            Event e = copies ? new Event(id, author, name, location, time, duration)
+                    : new Event(author, name, location, time, duration);
+
+            int voteCount = r.varint();
+            if (voters.length < voteCount) {
+                voters = new String[voteCount];
+            }
+            for (int j = 0; j < voteCount; j++) {
+                voters[j] = r.ref();
+            }
+            int bits = 0;
+            for (int j = 0; j < voteCount; j++) {
+                if ((j & 7) == 0) {
+                    bits = in.get();
+                }
+                e.addVote(new Vote(voters[j], (bits & (1 << (j & 7))) != 0));
+            }
+            if (copies) {
+                e.makeReadOnly();
+            }
+            events.addEvent(e);
+        }
+        return seq;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Streams values into a reused buffer, writing it out whenever it fills.
+     */
+    private static class Writer {
+        final ByteBuffer buf;
+        private final WritableByteChannel out;
+        private final HashMap<String, Integer> dictionary;
+
+        Writer(WritableByteChannel out) {
+            this.out = out;
+            this.buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            this.dictionary = new HashMap<String, Integer>();
+        }
+
+        void ensure(int needed) throws IOException {
+            if (buf.remaining() < needed) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+            buf.clear();
+        }
+
+        void varint(int v) throws IOException {
+            varlong(v & 0xFFFFFFFFL);
+        }
+
+        void varlong(long v) throws IOException {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf.put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            buf.put((byte) v);
+        }
+
+        // 0 is null, 1 introduces a new dictionary string, n refers to the (n-2)th one.
+        void ref(String s) throws IOException {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            Integer ordinal = dictionary.get(s);
+            if (ordinal != null) {
+                varint(ordinal + 2);
+                return;
+            }
+            dictionary.put(s, dictionary.size());
+            varint(1);
+            string(s);
+        }
+
+        // Encodes UTF-8 straight into the buffer to avoid a byte[] per string.
+        void string(String s) throws IOException {
+            int length = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    length += 1;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else {
+                    length += 3;
+                }
+            }
+            varint(length);
+            for (int i = 0; i < s.length(); i++) {
+                ensure(4);
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    buf.put((byte) c);
+                } else if (c < 0x800) {
+                    buf.put((byte) (0xC0 | (c >> 6)));
+                    buf.put((byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf.put((byte) (0xF0 | (cp >> 18)));
+                    buf.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    buf.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    buf.put((byte) (0x80 | (cp & 0x3F)));
+                } else {
+                    if (Character.isSurrogate(c)) {
+                        c = '?';
+                    }
+                    buf.put((byte) (0xE0 | (c >> 12)));
+                    buf.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    buf.put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads values back out of a snapshot buffer.
+     */
+    private static class Reader {
+        private final ByteBuffer in;
+        private final ArrayList<String> dictionary;
+        private byte[] scratch;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+            this.dictionary = new ArrayList<String>();
+            this.scratch = new byte[256];
+        }
+
+        int varint() {
+            return (int) varlong();
+        }
+
+        long varlong() {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = in.get();
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return v;
+        }
+
+        String ref() {
+            int ordinal = varint();
+            if (ordinal == 0) {
+                return null;
+            }
+            if (ordinal > 1) {
+                return dictionary.get(ordinal - 2);
+            }
+            String s = string();
+            dictionary.add(s);
+            return s;
+        }
+
+        String string() {
+            int length = varint();
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            in.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
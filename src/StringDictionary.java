@@ -0,0 +1,95 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out a small int ordinal for every distinct string it is given, and
+ * gives the string back for an ordinal, so that votes can be kept as sets of
+ * ints and the same user ID is kept in memory once however many events it has
+ * voted on. Null gets an ordinal of its own, for votes cast without a user.
+ *
+ * Ordinals start at 0 and are never reused or taken back, since any event's
+ * votes may still hold one, so a dictionary only grows: USER_IDS takes one
+ * string and one array slot for every distinct voter the process has seen.
+ * Event authors and locations are not kept here, and are let go with their
+ * events. Looking up an ordinal is an array read; adding a new string takes a
+ * short lock. Safe to use from many threads at once.
+ */
+final class StringDictionary {
+    /** The user IDs of voters. */
+    static final StringDictionary USER_IDS = new StringDictionary();
+
+    private final ConcurrentHashMap<String, Integer> ordinals;
+    private volatile String[] strings;
+    private int size;
+    // Handed out the first time null is added; -1 until then.
+    private volatile int nullOrdinal;
+
+    StringDictionary() {
+        ordinals = new ConcurrentHashMap<String, Integer>();
+        strings = new String[64];
+        nullOrdinal = -1;
+    }
+
+    /**
+     * Fetches the ordinal of a string, adding it if it is new.
+     *
+     * @param s The string, or null.
+     * @return Its ordinal.
+     */
+    int ordinal(String s) {
+        int known = find(s);
+        if (known >= 0) {
+            return known;
+        }
+        synchronized (this) {
+            known = find(s);
+            if (known >= 0) {
+                return known;
+            }
+            if (size == strings.length) {
+                strings = Arrays.copyOf(strings, size * 2);
+            }
+            // Stored before it is published, so anyone holding the ordinal can read it.
+            strings[size] = s;
+            if (s == null) {
+                nullOrdinal = size;
+            } else {
+                ordinals.put(s, size);
+            }
+            return size++;
+        }
+    }
+
+    /**
+     * Fetches the ordinal of a string without adding it.
+     *
+     * @param s The string to look up, or null.
+     * @return Its ordinal, or -1 if it has never been added.
+     */
+    int find(String s) {
+        if (s == null) {
+            return nullOrdinal;
+        }
+        Integer known = ordinals.get(s);
+        return known == null ? -1 : known;
+    }
+
+    /**
+     * Fetches the string behind an ordinal.
+     *
+     * @param ordinal An ordinal handed out by this dictionary.
+     * @return The string, which is null for null's ordinal.
+     */
+    String get(int ordinal) {
+        return strings[ordinal];
+    }
+
+    /**
+     * Fetches the number of strings in the dictionary.
+     *
+     * @return The number of ordinals handed out.
+     */
+    int size() {
+        return ordinals.size() + (nullOrdinal < 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,53 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for ChangeCoalescer class.
+ */
+public class TestChangeCoalescer {
+        @Test
+        public void testBurstBecomesOneChange() throws InterruptedException {
+                Event eventOne = new Event("User_1", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                Event eventTwo = new Event("User_2", "Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                Event eventThree = new Event("User_3", "Afterparty", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 23:00", Event.eventFormatter));
+                EventList main = new EventList();
+                main.addEvent(eventOne);
+
+                LinkedBlockingQueue<List<EventChange>> batches = new LinkedBlockingQueue<List<EventChange>>();
+                new ChangeCoalescer(main, 50, Runnable::run, batches::add);
+
+                for (int i = 0; i < 1000; i++) {
+                        eventOne.addVote(new Vote("User_" + i, i % 2 == 0));
+                }
+                main.addEvent(eventTwo);
+                eventTwo.addVote(new Vote("User_1", true));
+                main.addEvent(eventThree);
+                main.deleteEvent(eventThree);
+
+                List<EventChange> batch = new ArrayList<EventChange>(batches.poll(5, TimeUnit.SECONDS));
+                while (!batches.isEmpty()) {
+                        batch.addAll(batches.poll());
+                }
+
+                assertEquals(2, batch.size());
+                for (EventChange change : batch) {
+                        if (change.getEvent() == eventOne) {
+                                assertEquals(EventChange.Kind.VOTES_CHANGED, change.getKind());
+                        } else {
+                                assertTrue(change.getEvent() == eventTwo);
+                                assertEquals(EventChange.Kind.ADDED, change.getKind());
+                        }
+                }
+        }
+}
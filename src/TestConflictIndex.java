@@ -0,0 +1,104 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for ConflictIndex and IntervalTree classes.
+ */
+public class TestConflictIndex {
+        private static LocalDateTime time(String text) {
+                return LocalDateTime.parse(text, Event.eventFormatter);
+        }
+
+        @Test
+        public void testOverlappingMatchesBruteForce() {
+                Random random = new Random(18);
+                LocalDateTime base = time("01-04-2021 00:00");
+                IntervalTree tree = new IntervalTree();
+                List<Event> events = new ArrayList<Event>();
+                for (int i = 0; i < 500; i++) {
+                        Event e = new Event("User_" + i, "Event " + i, "Room", base.plusMinutes(random.nextInt(20000)),
+                                        Duration.ofMinutes(1 + random.nextInt(600)));
+                        events.add(e);
+                        tree.add(e);
+                }
+                for (int i = 0; i < 100; i++) {
+                        tree.remove(events.remove(random.nextInt(events.size())));
+                }
+                assertEquals(events.size(), tree.size());
+
+                for (int i = 0; i < 200; i++) {
+                        LocalDateTime from = base.plusMinutes(random.nextInt(21000));
+                        LocalDateTime to = from.plusMinutes(random.nextInt(300));
+                        List<Event> expected = new ArrayList<Event>();
+                        for (Event e : events) {
+                                if (e.getKey().getTime().isBefore(to) && e.getEndTime().isAfter(from)) {
+                                        expected.add(e);
+                                }
+                        }
+                        List<Event> found = tree.overlapping(from, to);
+                        assertEquals(expected.size(), found.size());
+                        assertTrue(found.containsAll(expected));
+                }
+        }
+
+        @Test
+        public void testConflictingUpvoteIsReported() {
+                EventList events = new EventList();
+                Event party = new Event("User_1", "Party", "Apple Gate", time("01-04-2021 15:00"), Duration.ofHours(3));
+                Event dinner = new Event("User_2", "Dinner", "Juan's House", time("01-04-2021 17:00"));
+                Event breakfast = new Event("User_3", "Breakfast", "Cafe", time("02-04-2021 08:00"));
+                events.addEvent(party);
+                events.addEvent(dinner);
+                events.addEvent(breakfast);
+                ConflictIndex index = new ConflictIndex(events);
+                final List<String> reported = new ArrayList<String>();
+                index.addConflictListener((userID, upvoted, conflicts) -> reported
+                                .add(userID + " " + upvoted.getName() + " " + conflicts.get(0).getName()));
+
+                party.addVote(new Vote("User_4", true));
+                breakfast.addVote(new Vote("User_4", true));
+                dinner.addVote(new Vote("User_5", true));
+                assertTrue(reported.isEmpty());
+
+                dinner.addVote(new Vote("User_4", true));
+                assertEquals(List.of("User_4 Dinner Party"), reported);
+                assertEquals(List.of(party), index.conflictsWith("User_4", dinner));
+                assertEquals(List.of(party, dinner), index.conflictsFor("User_4"));
+                assertEquals(List.of(party, dinner),
+                                index.overlapping(time("01-04-2021 17:30"), time("01-04-2021 18:00")));
+
+                dinner.switchVote("User_4");
+                assertTrue(index.conflictsFor("User_4").isEmpty());
+                assertFalse(index.conflictsWith("User_5", party).isEmpty());
+        }
+
+        @Test
+        public void testIndexFollowsChanges() {
+                EventList events = new EventList();
+                Event party = new Event("User_1", "Party", "Apple Gate", time("01-04-2021 15:00"));
+                Event dinner = new Event("User_2", "Dinner", "Juan's House", time("01-04-2021 17:00"));
+                events.addEvent(party);
+                events.addEvent(dinner);
+                party.addVote(new Vote("User_4", true));
+                dinner.addVote(new Vote("User_4", true));
+                ConflictIndex index = new ConflictIndex(events);
+                assertTrue(index.conflictsFor("User_4").isEmpty());
+
+                party.setDuration(Duration.ofHours(2).plusMinutes(30));
+                index.update(party);
+                assertEquals(List.of(party, dinner), index.conflictsFor("User_4"));
+
+                events.deleteEvent(dinner);
+                assertTrue(index.conflictsFor("User_4").isEmpty());
+                assertEquals(List.of(party), index.overlapping(time("01-04-2021 17:00"), time("01-04-2021 18:00")));
+        }
+}
@@ -1,8 +1,14 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -194,4 +200,160 @@ public class TestEvent {
                 assertEquals(true, testEventHash == testEventCloneHash);
                 assertEquals(false, testEventHash == testEvent2Hash);
         }
-}
\ No newline at end of file
+
+        @Test
+        public void testVoteTallies() {
+                Event testEvent = new Event("DJ Doggo", "DJ Set 004", "Stream",
+                                LocalDateTime.parse("12-06-2021 15:00", Event.eventFormatter));
+
+                testEvent.addVote(new Vote("DJ Monke", true));
+                testEvent.addVote(new Vote("DJ Edgy Reggie", false));
+                testEvent.addVote(new Vote("DJ Oogway", true));
+                testEvent.addVote(new Vote("DJ Oogway", false));
+
+                assertEquals(3, testEvent.getTotalVotes());
+                assertEquals(1, testEvent.getUpvotes());
+                assertEquals(2, testEvent.getDownvotes());
+
+                testEvent.switchVote("DJ Edgy Reggie");
+                testEvent.removeVoteByID("DJ Oogway");
+
+                assertEquals(2, testEvent.getUpvotes());
+                assertEquals(0, testEvent.getDownvotes());
+                assertEquals(2, testEvent.getScore());
+        }
+
+        @Test
+        public void testConcurrentVoting() throws InterruptedException {
+                Event testEvent = new Event("DJ Doggo", "DJ Set 004", "Stream",
+                                LocalDateTime.parse("12-06-2021 15:00", Event.eventFormatter));
+
+                Thread[] voters = new Thread[8];
+                for (int t = 0; t < voters.length; t++) {
+                        voters[t] = new Thread(() -> {
+                                for (int i = 0; i < 1000; i++) {
+                                        testEvent.addVote(new Vote("User_" + i, i % 2 == 0));
+                                        testEvent.switchVote("User_" + i);
+                                }
+                        });
+                        voters[t].start();
+                }
+                for (Thread t : voters) {
+                        t.join();
+                }
+
+                assertEquals(1000, testEvent.getTotalVotes());
+                assertEquals(testEvent.getTotalVotes(), testEvent.getUpvotes() + testEvent.getDownvotes());
+        }
+
+        @Test
+        public void testVoteViews() {
+                Event testEvent = new Event("DJ Doggo", "DJ Set 004", "Stream",
+                                LocalDateTime.parse("12-06-2021 15:00", Event.eventFormatter));
+
+                testEvent.addVote(new Vote("DJ Monke", false));
+                testEvent.addVote(new Vote("DJ Oogway", true));
+                testEvent.addVote(new Vote("DJ Edgy Reggie", true));
+
+                int ups = 0;
+                for (Vote v : testEvent.getVotes()) {
+                        assertTrue(testEvent.hasVoted(v.getAuthorID()));
+                        assertEquals(v.getValue(), testEvent.hasUpvoted(v.getAuthorID()));
+                        ups += v.getValue() ? 1 : 0;
+                }
+                assertEquals(3, testEvent.getVotes().size());
+                assertEquals(2, ups);
+
+                // Upvotes come first, so the last vote is the downvote.
+                testEvent.removeVoteByIndex(2);
+                assertFalse(testEvent.hasVoted("DJ Monke"));
+                assertEquals(0, testEvent.getDownvotes());
+                assertFalse(testEvent.hasVoted("Nobody"));
+        }
+
+        @Test
+        public void testManyVoters() {
+                Event testEvent = new Event("DJ Doggo", "DJ Set 004", "Stream",
+                                LocalDateTime.parse("12-06-2021 15:00", Event.eventFormatter));
+                for (int i = 0; i < 100; i++) {
+                        testEvent.addVote(new Vote("Voter_" + i, i % 3 != 0));
+                }
+                testEvent.switchVote("Voter_0");
+                testEvent.removeVoteByID("Voter_1");
+
+                Set<String> seen = new HashSet<String>();
+                boolean downvotesStarted = false;
+                for (Vote v : testEvent.getVotes()) {
+                        assertTrue(seen.add(v.getAuthorID()));
+                        assertEquals(v.getValue(), testEvent.hasUpvoted(v.getAuthorID()));
+                        int i = Integer.parseInt(v.getAuthorID().substring("Voter_".length()));
+                        assertEquals(i % 3 != 0 || i == 0, v.getValue());
+                        downvotesStarted |= !v.getValue();
+                        assertFalse(downvotesStarted && v.getValue());
+                }
+                assertEquals(99, seen.size());
+                assertFalse(seen.contains("Voter_1"));
+                assertEquals(66, testEvent.getUpvotes());
+                assertEquals(33, testEvent.getDownvotes());
+
+                while (testEvent.getTotalVotes() > 0) {
+                        testEvent.removeVoteByIndex(0);
+                }
+                assertFalse(testEvent.getVotes().iterator().hasNext());
+        }
+
+        @Test
+        public void testNullLocationAndVoter() {
+                Event nowhere = new Event("DJ Doggo", "DJ Set 004", null,
+                                LocalDateTime.parse("12-06-2021 15:00", Event.eventFormatter));
+                Event stream = new Event("DJ Doggo", "DJ Set 004", "Stream",
+                                LocalDateTime.parse("12-06-2021 15:00", Event.eventFormatter));
+                EventList main = new EventList();
+                main.addEvent(stream);
+                main.addEvent(nowhere);
+
+                assertNull(nowhere.getLocation());
+                assertTrue(nowhere.compareTo(stream) < 0);
+                assertEquals(nowhere, main.getEvent(nowhere.getKey()));
+                stream.setLocation(null);
+                assertNull(stream.getLocation());
+                assertEquals(2, main.getSize());
+
+                nowhere.addVote(new Vote(null, true));
+                assertTrue(nowhere.hasUpvoted(null));
+                assertNull(nowhere.getVotes().iterator().next().getAuthorID());
+                nowhere.switchVote(null);
+                assertEquals(1, nowhere.getDownvotes());
+                nowhere.removeVoteByID(null);
+                assertFalse(nowhere.hasVoted(null));
+        }
+
+        @Test
+        public void testKeyIsConsistentWhileEdited() throws InterruptedException {
+                LocalDateTime start = LocalDateTime.parse("12-06-2021 15:00", Event.eventFormatter);
+                Event testEvent = new Event("DJ Doggo", "Set 0", "Stage 0", start);
+
+                Thread editor = new Thread(() -> {
+                        for (int i = 1; i <= 10000; i++) {
+                                testEvent.setName("Set " + i);
+                                testEvent.setLocation("Stage " + i);
+                                testEvent.setEventDateTime(start.plusMinutes(i));
+                        }
+                });
+                editor.start();
+                while (editor.isAlive()) {
+                        EventKey key = testEvent.getKey();
+                        int name = Integer.parseInt(key.getName().substring(4));
+                        int location = Integer.parseInt(key.getLocation().substring(6));
+                        long minutes = Duration.between(start, key.getTime()).toMinutes();
+                        // Each setter makes a whole new key, so the three fields trail each other by one edit at most.
+                        assertTrue(name == location || name == location + 1);
+                        assertTrue(minutes == location || minutes == location - 1);
+                }
+                editor.join();
+
+                assertEquals("Set 10000", testEvent.getName());
+                assertEquals("Stage 10000", testEvent.getLocation());
+                assertEquals(testEvent.getKey(), new EventKey(start.plusMinutes(10000), "Set 10000", "Stage 10000"));
+        }
+}
@@ -0,0 +1,114 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * JUnit test class for EventExporter class.
+ */
+public class TestEventExporter {
+        @Rule
+        public TemporaryFolder folder = new TemporaryFolder();
+
+        private EventList sample() {
+                Event eventOne = new Event("User_1", "Fiesta en la caf\u00e9 \u2615, \"bring\" a mug", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                Event eventTwo = new Event("User_2", "Party", "Apple Gate; back door",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                Event eventThree = new Event("User_3",
+                                "A very long event name that goes well past the seventy five bytes an iCalendar line may hold",
+                                "Library", LocalDateTime.parse("01-04-2021 09:05", Event.eventFormatter),
+                                Duration.ofMinutes(90));
+                Event anonymous = new Event(null, "Open Mic", "Library",
+                                LocalDateTime.parse("09-05-2021 20:00", Event.eventFormatter));
+                eventTwo.addVote(new Vote("User_1", true));
+                eventTwo.addVote(new Vote("User_3", false));
+                eventTwo.addVote(new Vote("User_4", true));
+                EventList main = new EventList();
+                main.addEvent(eventOne);
+                main.addEvent(eventTwo);
+                main.addEvent(eventThree);
+                main.addEvent(anonymous);
+                return main;
+        }
+
+        @Test
+        public void testCsvAndIcsRoundTrip() throws IOException {
+                EventList main = sample();
+                EventExporter exporter = new EventExporter(Locale.US);
+                for (EventExporter.Format format : new EventExporter.Format[] { EventExporter.Format.CSV,
+                                EventExporter.Format.ICS }) {
+                        Path file = folder.newFile("export." + format.name().toLowerCase()).toPath();
+                        assertEquals(4, exporter.export(main, format, file));
+
+                        EventList imported = new EventList();
+                        EventImporter importer = new EventImporter();
+                        EventImporter.Report report = format == EventExporter.Format.CSV
+                                        ? importer.importCsv(file, imported)
+                                        : importer.importIcs(file, imported);
+                        assertEquals(4, report.getImported());
+                        assertEquals(0, report.getRejected());
+
+                        Iterator<Event> expected = main.iterator();
+                        for (Event e : imported) {
+                                Event original = expected.next();
+                                assertEquals(original.getKey(), e.getKey());
+                                assertEquals(original.getDuration(), e.getDuration());
+                                // iCalendar has no way to say "no organizer" but to leave it out.
+                                String author = original.getAuthorID() == null && format == EventExporter.Format.ICS
+                                                ? "imported" : original.getAuthorID();
+                                assertEquals(author, e.getAuthorID());
+                        }
+                }
+        }
+
+        @Test
+        public void testIcsLinesAreFolded() throws IOException {
+                Path file = folder.newFile("export.ics").toPath();
+                new EventExporter(Locale.US).export(sample(), EventExporter.Format.ICS, file);
+
+                for (String line : new String(Files.readAllBytes(file), StandardCharsets.UTF_8).split("\r\n")) {
+                        assertTrue(line, line.getBytes(StandardCharsets.UTF_8).length <= 75);
+                }
+        }
+
+        @Test
+        public void testJson() throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                EventList main = sample();
+                new EventExporter(Locale.US).exportJson(main, Channels.newChannel(bytes));
+                String json = bytes.toString("UTF-8");
+
+                Event party = null;
+                for (Event e : main) {
+                        if (e.getName().equals("Party")) {
+                                party = e;
+                        }
+                }
+                assertTrue(json.startsWith("[\n{\"id\":"));
+                assertTrue(json.endsWith("}\n]\n"));
+                assertTrue(json.contains("\"id\":" + party.getEventID() + ",\"author\":\"User_2\",\"name\":\"Party\","
+                                + "\"location\":\"Apple Gate; back door\",\"time\":\"2021-04-01T15:00:00\",\"minutes\":60,"
+                                + "\"display\":\"" + party.getKey().getTime().format(Event.displayFormatter(Locale.US))
+                                + "\",\"upvotes\":2,\"downvotes\":1}"));
+                assertTrue(json.contains("\"author\":null,\"name\":\"Open Mic\""));
+                assertTrue(json.contains("\"name\":\"Fiesta en la caf\u00e9 \u2615, \\\"bring\\\" a mug\""));
+
+                bytes.reset();
+                new EventExporter().exportJson(new EventList(), Channels.newChannel(bytes));
+                assertEquals("[]\n", bytes.toString("UTF-8"));
+        }
+}
@@ -0,0 +1,123 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * JUnit test class for EventImporter class.
+ */
+public class TestEventImporter {
+        @Rule
+        public TemporaryFolder folder = new TemporaryFolder();
+
+        @Test
+        public void testImportCsv() throws IOException {
+                Path csv = folder.newFile("events.csv").toPath();
+                Files.write(csv, Arrays.asList(
+                                "authorID,name,location,time",
+                                "User_1,Event Juan,Juan's House,08-05-2021 14:00",
+                                "User_2,\"Party, with \"\"friends\"\"\",Apple Gate,01-04-2021 15:00",
+                                "User_3,Broken,Nowhere,not a time",
+                                "User_4,Too,Few",
+                                "User_5,Long talk,Hall,02-04-2021 10:00,150",
+                                "User_6,Empty length,Hall,03-04-2021 10:00,",
+                                "User_7,No length,Hall,04-04-2021 10:00,0"), StandardCharsets.UTF_8);
+
+                EventList main = new EventList();
+                EventImporter.Report report = new EventImporter().importCsv(csv, main);
+
+                assertEquals(4, report.getImported());
+                assertEquals(3, report.getRejected());
+                Iterator<Event> it = main.iterator();
+                assertEquals("Party, with \"friends\"", it.next().getName());
+                Event longTalk = it.next();
+                assertEquals("Long talk", longTalk.getName());
+                assertEquals(Duration.ofMinutes(150), longTalk.getDuration());
+                assertEquals(Event.DEFAULT_DURATION, it.next().getDuration());
+                assertEquals("Event Juan", it.next().getName());
+        }
+
+        @Test
+        public void testFirstRowIsOnlySkippedIfItIsAHeader() throws IOException {
+                Path csv = folder.newFile("headerless.csv").toPath();
+                Files.write(csv, Arrays.asList(
+                                "authority42,Event Juan,Juan's House,08-05-2021 14:00",
+                                "User_2,Party,Apple Gate,01-04-2021 15:00"), StandardCharsets.UTF_8);
+
+                EventList main = new EventList();
+                EventImporter.Report report = new EventImporter().importCsv(csv, main);
+
+                assertEquals(2, report.getImported());
+                Iterator<Event> it = main.iterator();
+                assertEquals("User_2", it.next().getAuthorID());
+                assertEquals("authority42", it.next().getAuthorID());
+
+                Path withHeader = folder.newFile("header.csv").toPath();
+                Files.write(withHeader, Arrays.asList(
+                                "Author, Name, Location, Time, Minutes",
+                                "User_2,Party,Apple Gate,01-04-2021 15:00,30"), StandardCharsets.UTF_8);
+                report = new EventImporter().importCsv(withHeader, new EventList());
+
+                assertEquals(1, report.getImported());
+                assertEquals(0, report.getRejected());
+        }
+
+        @Test
+        public void testImportIcs() throws IOException {
+                Path ics = folder.newFile("events.ics").toPath();
+                Files.write(ics, Arrays.asList(
+                                "BEGIN:VCALENDAR",
+                                "BEGIN:VEVENT",
+                                "SUMMARY:Study group\\, week 1",
+                                "LOCATION:Library",
+                                "ORGANIZER;CN=\"Dylan\":mailto:dylan@example.com",
+                                "DTSTART;TZID=America/Los_Angeles:20210401T150000",
+                                "END:VEVENT",
+                                "BEGIN:VEVENT",
+                                "SUMMARY:Long name that",
+                                "  wraps",
+                                "DTSTART;VALUE=DATE:20210402",
+                                "END:VEVENT",
+                                "BEGIN:VEVENT",
+                                "SUMMARY:No start",
+                                "END:VEVENT",
+                                "BEGIN:VEVENT",
+                                "SUMMARY:Own time zone",
+                                "DTSTART;TZID=\"Pacific Standard Time\":20210403T150000",
+                                "END:VEVENT",
+                                "END:VCALENDAR"), StandardCharsets.UTF_8);
+
+                EventList main = new EventList();
+                EventImporter.Report report = new EventImporter().importIcs(ics, main);
+
+                assertEquals(2, report.getImported());
+                assertEquals(2, report.getRejected());
+                // The first event moves to the local zone, so it may sort after the second.
+                Iterator<Event> it = main.iterator();
+                Event first = it.next();
+                Event second = it.next();
+                if (!first.getName().startsWith("Study")) {
+                        Event swap = first;
+                        first = second;
+                        second = swap;
+                }
+                assertEquals("Study group, week 1", first.getName());
+                assertEquals("Library", first.getLocation());
+                assertEquals("Dylan", first.getAuthorID());
+                ZonedDateTime losAngeles = ZonedDateTime.of(2021, 4, 1, 15, 0, 0, 0, ZoneId.of("America/Los_Angeles"));
+                assertEquals(losAngeles.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime(),
+                                first.getKey().getTime());
+                assertEquals("Long name that wraps", second.getName());
+        }
+}
@@ -1,7 +1,17 @@
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -58,4 +68,319 @@ public class TestEventList {
 
                 assertEquals(test, main);
         }
-}
\ No newline at end of file
+
+        @Test
+        public void testIterationOrder() {
+                Event eventOne = new Event("User_1", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                Event eventTwo = new Event("User_2", "Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                Event eventThree = new Event("User_3", "Afterparty", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+
+                EventList main = new EventList();
+                main.addEvent(eventOne);
+                main.addEvent(eventTwo);
+                main.addEvent(eventThree);
+
+                Iterator<Event> order = main.iterator();
+                assertSame(eventThree, order.next());
+                assertSame(eventTwo, order.next());
+                assertSame(eventOne, order.next());
+                assertFalse(order.hasNext());
+        }
+
+        @Test
+        public void testRangeQueries() {
+                Event eventOne = new Event("User_1", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                Event eventTwo = new Event("User_2", "Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                Event eventThree = new Event("User_3", "Afterparty", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 23:00", Event.eventFormatter));
+
+                EventList main = new EventList();
+                main.addEvent(eventOne);
+                main.addEvent(eventTwo);
+                main.addEvent(eventThree);
+
+                Iterator<Event> onDay = main.eventsOnDay(LocalDate.of(2021, 4, 1)).iterator();
+                assertSame(eventTwo, onDay.next());
+                assertSame(eventThree, onDay.next());
+                assertFalse(onDay.hasNext());
+
+                Iterator<Event> between = main.eventsBetween(
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter),
+                                LocalDateTime.parse("01-04-2021 23:00", Event.eventFormatter)).iterator();
+                assertSame(eventTwo, between.next());
+                assertFalse(between.hasNext());
+
+                Iterator<Event> next = main.nextEvents(
+                                LocalDateTime.parse("01-04-2021 16:00", Event.eventFormatter), 1).iterator();
+                assertSame(eventThree, next.next());
+                assertFalse(next.hasNext());
+        }
+
+        @Test
+        public void testLookupByKey() {
+                Event eventOne = new Event("User_1", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                Event eventClone = new Event("User_2", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+
+                EventList main = new EventList();
+                main.addEvent(eventOne);
+                main.addEvent(eventClone);
+
+                assertTrue(main.contains(eventClone));
+                assertSame(eventOne, main.getEvent(eventClone.getKey()));
+
+                main.deleteEvent(eventClone);
+                assertSame(eventOne, main.getEvent(eventOne.getKey()));
+
+                main.deleteEvent(eventOne);
+                assertFalse(main.contains(eventOne));
+                assertEquals(0, main.getSize());
+        }
+
+        @Test
+        public void testBuckets() {
+                EventList main = new EventList(ChronoUnit.MONTHS);
+                List<Event> all = new ArrayList<Event>();
+                LocalDateTime start = LocalDateTime.parse("01-01-2021 09:00", Event.eventFormatter);
+                for (int i = 0; i < 60; i++) {
+                        all.add(new Event("User_" + (i % 5), "Event " + i, "Room " + (i % 3), start.plusDays(i * 6)));
+                }
+                main.addEvents(all);
+                final List<Event> dropped = new ArrayList<Event>();
+                main.addListener(new EventListListener() {
+                        @Override
+                        public void eventsDropped(Collection<Event> gone) {
+                                dropped.addAll(gone);
+                        }
+                });
+
+                LocalDateTime from = LocalDateTime.parse("15-02-2021 00:00", Event.eventFormatter);
+                LocalDateTime to = LocalDateTime.parse("10-07-2021 00:00", Event.eventFormatter);
+                List<Event> between = new ArrayList<Event>();
+                for (Event e : main.eventsBetween(from, to)) {
+                        if (e.getLocation().equals("Room 1")) {
+                                between.add(e);
+                        }
+                }
+                assertEquals(between, main.findBetween(from, to, e -> e.getLocation().equals("Room 1")));
+
+                // January and February 2021 end before 1 March.
+                LocalDateTime march = LocalDateTime.parse("01-03-2021 00:00", Event.eventFormatter);
+                assertEquals(2, main.sealBefore(march));
+                Event january = all.get(0);
+                try {
+                        main.deleteEvent(january);
+                        fail("deleted from a sealed bucket");
+                } catch (IllegalStateException expected) {
+                }
+                Event late = new Event("User_1", "Late", "Room 0", march);
+                main.addEvent(late);
+
+                LocalDateTime april = LocalDateTime.parse("01-04-2021 00:00", Event.eventFormatter);
+                assertEquals(3, main.compressBefore(april));
+                assertEquals(61, main.getSize());
+                assertEquals(all.get(1).getName(), main.getEvent(all.get(1).getKey()).getName());
+                Event copy = main.getEvent(all.get(1).getKey());
+                assertEquals(all.get(1).getEventID(), copy.getEventID());
+                assertTrue(copy.isReadOnly());
+                try {
+                        copy.addVote(new Vote("User_2", true));
+                        fail("voted on a compressed copy");
+                } catch (IllegalStateException expected) {
+                }
+                try {
+                        copy.setName("Renamed");
+                        fail("renamed a compressed copy");
+                } catch (IllegalStateException expected) {
+                }
+                assertEquals(all.get(1).getName(), copy.getName());
+                List<Event> archived = new ArrayList<Event>(all.subList(0, 15));
+                archived.add(10, late);
+                int before = 0;
+                for (Event e : main.eventsBetween(start, april)) {
+                        assertEquals(archived.get(before++).getKey(), e.getKey());
+                }
+                assertEquals(16, before);
+                assertEquals(16, dropped.size());
+
+                // Votes on events let go no longer reach the list's listeners.
+                main.addListener(new EventListListener() {
+                        @Override
+                        public void votesChanged(Event changed) {
+                                fail("vote forwarded from a compressed bucket");
+                        }
+                });
+                january.addVote(new Vote("User_2", true));
+
+                dropped.clear();
+                assertEquals(5, main.dropBefore(LocalDateTime.parse("01-06-2021 00:00", Event.eventFormatter)));
+                assertEquals(11, dropped.size());
+                assertEquals(34, main.getSize());
+                assertFalse(main.contains(january));
+                assertSame(all.get(26), main.iterator().next());
+        }
+
+        @Test
+        public void testBatchAcrossSealedBucket() {
+                LocalDateTime january = LocalDateTime.parse("10-01-2021 09:00", Event.eventFormatter);
+                EventList main = new EventList(ChronoUnit.MONTHS);
+                main.addEvent(new Event("User_1", "Early", "Room 0", january));
+                main.sealBefore(LocalDateTime.parse("01-02-2021 00:00", Event.eventFormatter));
+                final List<Event> added = new ArrayList<Event>();
+                main.addListener(new EventListListener() {
+                        @Override
+                        public void eventAdded(Event e) {
+                                added.add(e);
+                        }
+                });
+
+                Event late = new Event("User_2", "Late", "Room 1", january.plusDays(1));
+                Event march = new Event("User_2", "March", "Room 1", january.plusMonths(2));
+                Event april = new Event("User_3", "April", "Room 2", january.plusMonths(3));
+                assertEquals(List.of(late), main.addEvents(List.of(april, late, march)));
+                assertEquals(List.of(march, april), added);
+                assertEquals(3, main.getSize());
+                assertFalse(main.contains(late));
+        }
+
+        @Test
+        public void testEditsMoveEvents() {
+                Event eventOne = new Event("User_1", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                Event eventTwo = new Event("User_2", "Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                Event eventThree = new Event("User_3", "Brunch", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 11:00", Event.eventFormatter));
+
+                EventList main = new EventList();
+                main.addEvent(eventOne);
+                main.addEvent(eventTwo);
+                main.addEvent(eventThree);
+                Leaderboard board = new Leaderboard(main);
+                final List<Event> moved = new ArrayList<Event>();
+                main.addListener(new EventListListener() {
+                        @Override
+                        public void eventMoved(Event e) {
+                                moved.add(e);
+                        }
+                });
+
+                EventKey oldKey = eventOne.getKey();
+                eventOne.setEventDateTime(LocalDateTime.parse("01-04-2021 09:00", Event.eventFormatter));
+                Iterator<Event> order = main.iterator();
+                assertSame(eventOne, order.next());
+                assertSame(eventThree, order.next());
+                assertSame(eventTwo, order.next());
+                assertSame(eventOne, main.getEvent(eventOne.getKey()));
+                assertEquals(null, main.getEvent(oldKey));
+                assertEquals(List.of(eventOne), board.topEvents(5,
+                                LocalDateTime.parse("01-04-2021 08:00", Event.eventFormatter),
+                                LocalDateTime.parse("01-04-2021 10:00", Event.eventFormatter)));
+
+                eventTwo.setName("Afterparty");
+                eventTwo.setLocation("Back Gate");
+                assertSame(eventTwo, main.getEvent(eventTwo.getKey()));
+                assertEquals(3, main.getSize());
+                assertEquals(List.of(eventOne, eventTwo, eventTwo), moved);
+
+                main.deleteEvent(eventTwo);
+                assertFalse(main.contains(eventTwo));
+                assertEquals(2, main.getSize());
+        }
+
+        @Test
+        public void testEditsIntoCompressedBucketAreRefused() {
+                LocalDateTime january = LocalDateTime.parse("10-01-2021 09:00", Event.eventFormatter);
+                EventList main = new EventList(ChronoUnit.MONTHS);
+                Event old = new Event("User_1", "Old", "Room 0", january);
+                Event sealed = new Event("User_1", "Sealed", "Room 0", january.plusMonths(1));
+                Event live = new Event("User_2", "Live", "Room 1", january.plusMonths(3));
+                main.addEvents(List.of(old, sealed, live));
+                main.compressBefore(LocalDateTime.parse("01-02-2021 00:00", Event.eventFormatter));
+                main.sealBefore(LocalDateTime.parse("01-03-2021 00:00", Event.eventFormatter));
+                final List<Event> changed = new ArrayList<Event>();
+                main.addListener(new EventListListener() {
+                        @Override
+                        public void eventMoved(Event e) {
+                                changed.add(e);
+                        }
+
+                        @Override
+                        public void eventRemoved(Event e) {
+                                changed.add(e);
+                        }
+                });
+
+                EventKey liveKey = live.getKey();
+                try {
+                        live.setEventDateTime(january.plusDays(1));
+                        fail("moved into a compressed bucket");
+                } catch (IllegalStateException expected) {
+                }
+                assertEquals(liveKey, live.getKey());
+                assertSame(live, main.getEvent(liveKey));
+                assertEquals(3, main.getSize());
+                assertTrue(changed.isEmpty());
+
+                // Sealed buckets take edits, just not adds or deletes.
+                live.setEventDateTime(january.plusMonths(1).plusDays(1));
+                assertSame(live, main.getEvent(live.getKey()));
+                assertEquals(List.of(live), changed);
+        }
+
+        @Test
+        public void testSnapshots() throws InterruptedException {
+                final LocalDateTime start = LocalDateTime.parse("01-01-2021 09:00", Event.eventFormatter);
+                final EventList main = new EventList(ChronoUnit.WEEKS);
+                for (int i = 0; i < 500; i++) {
+                        main.addEvent(new Event("User_" + i, "Event " + i, "Room", start.plusHours(i * 7)));
+                }
+                Event first = main.iterator().next();
+                EventList.Snapshot before = main.snapshot();
+
+                // Keeps changing the list while the snapshot is read.
+                Thread writer = new Thread(() -> {
+                        for (int i = 0; i < 2000; i++) {
+                                main.addEvent(new Event("User_w", "Write " + i, "Hall", start.plusMinutes(i * 97)));
+                        }
+                });
+                writer.start();
+                main.deleteEvent(first);
+                int walks = 0;
+                while (writer.isAlive() || walks == 0) {
+                        int count = 0;
+                        LocalDateTime last = LocalDateTime.MIN;
+                        for (Event e : before) {
+                                assertFalse(e.getKey().getTime().isBefore(last));
+                                assertFalse(e.getName().startsWith("Write"));
+                                last = e.getKey().getTime();
+                                count++;
+                        }
+                        assertEquals(500, count);
+                        walks++;
+                }
+                writer.join();
+
+                assertEquals(500, before.getSize());
+                assertSame(first, before.iterator().next());
+                assertEquals(2499, main.getSize());
+                EventList.Snapshot after = main.snapshot();
+                assertEquals(2499, sizeOf(after));
+                assertEquals(24, sizeOf(before.eventsBetween(start, start.plusWeeks(1))));
+                assertEquals(24 - 1 + 104, sizeOf(after.eventsBetween(start, start.plusWeeks(1))));
+        }
+
+        private static int sizeOf(Iterable<Event> events) {
+                int n = 0;
+                for (Iterator<Event> it = events.iterator(); it.hasNext(); it.next()) {
+                        n++;
+                }
+                return n;
+        }
+}
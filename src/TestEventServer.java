@@ -0,0 +1,145 @@
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * JUnit test class for EventServer class.
+ */
+public class TestEventServer {
+        @Rule
+        public TemporaryFolder folder = new TemporaryFolder();
+
+        private final HttpClient client = HttpClient.newHttpClient();
+
+        @Test
+        public void testEventsAndVotes() throws IOException, InterruptedException {
+                try (EventStore store = new EventStore(folder.getRoot().toPath(), 1000);
+                                EventServer server = new EventServer(store,
+                                                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+                        Event party = new Event("User_1", "Party", "Apple Gate",
+                                        LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                        store.addEvent(party);
+                        server.start();
+                        String base = "http://localhost:" + server.getPort() + "/events";
+
+                        HttpResponse<String> created = send("POST", base, "{\"author\": \"User_2\", "
+                                        + "\"name\": \"Event \\\"Juan\\\"\", \"location\": \"Juan's House\", "
+                                        + "\"time\": \"2021-05-08T14:00\", \"minutes\": 90}");
+                        assertEquals(201, created.statusCode());
+                        assertTrue(created.body().contains("\"name\":\"Event \\\"Juan\\\"\""));
+                        assertTrue(created.body().contains("\"minutes\":90"));
+                        String id = idOf(created.body());
+                        assertEquals(409, send("POST", base, "{\"author\": \"User_3\", "
+                                        + "\"name\": \"Event \\\"Juan\\\"\", \"location\": \"Juan's House\", "
+                                        + "\"time\": \"2021-05-08T14:00\"}").statusCode());
+                        assertEquals(400, send("POST", base, "{\"name\": \"No time\"}").statusCode());
+                        assertEquals(400, send("POST", base, "{\"author\": \"User_3\", \"name\": \"Odd\", "
+                                        + "\"location\": \"Lab\", \"time\": \"2021-05-09T14:00\", "
+                                        + "\"minutes\": \"ninety\"}").statusCode());
+
+                        HttpResponse<String> all = send("GET", base, null);
+                        assertEquals(200, all.statusCode());
+                        assertTrue(all.body().indexOf("Party") < all.body().indexOf("Juan"));
+                        HttpResponse<String> may = send("GET",
+                                        base + "?from=2021-05-01T00:00&to=2021-06-01T00:00", null);
+                        assertTrue(may.body().contains("Juan") && !may.body().contains("Party"));
+                        assertEquals("[]\n", send("GET", base + "?limit=0", null).body());
+
+                        HttpResponse<String> voted = send("POST", base + "/" + id + "/votes",
+                                        "{\"user\": \"User_1\", \"up\": true}");
+                        assertTrue(voted.body().contains("\"upvotes\":1,\"downvotes\":0"));
+                        HttpResponse<String> switched = send("POST", base + "/" + id + "/votes/User_1/switch", "");
+                        assertTrue(switched.body().contains("\"upvotes\":0,\"downvotes\":1"));
+                        assertEquals(404, send("DELETE", base + "/" + id + "/votes/User_9", null).statusCode());
+                        assertEquals(200, send("DELETE", base + "/" + id + "/votes/User_1", null).statusCode());
+                        Event juan = store.getEvents().getEvent(new EventKey(LocalDateTime.parse("2021-05-08T14:00"),
+                                        "Event \"Juan\"", "Juan's House"));
+                        assertEquals(0, juan.getTotalVotes());
+
+                        assertEquals(204, send("DELETE", base + "/" + id, null).statusCode());
+                        assertEquals(404, send("GET", base + "/" + id, null).statusCode());
+                        assertEquals(1, store.getEvents().getSize());
+
+                        store.getEvents().sealBefore(LocalDateTime.parse("2021-05-01T00:00"));
+                        assertEquals(409, send("DELETE", base + "/" + party.getEventID(), null).statusCode());
+                        assertEquals(409, send("POST", base, "{\"author\": \"User_3\", \"name\": \"Late\", "
+                                        + "\"location\": \"Lab\", \"time\": \"2021-04-09T14:00\"}").statusCode());
+                        assertEquals(1, store.getEvents().getSize());
+                }
+        }
+
+        @Test
+        public void testScoreStream() throws IOException, InterruptedException {
+                try (EventStore store = new EventStore(folder.getRoot().toPath(), 1000);
+                                EventServer server = new EventServer(store,
+                                                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+                        Event party = new Event("User_1", "Party", "Apple Gate",
+                                        LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                        store.addEvent(party);
+                        server.start();
+                        String base = "http://localhost:" + server.getPort() + "/events";
+                        assertEquals(404, send("GET", base + "/stream?ids=12345678", null).statusCode());
+
+                        HttpRequest request = HttpRequest.newBuilder(
+                                        URI.create(base + "/stream?ids=" + party.getEventID())).build();
+                        HttpResponse<Stream<String>> stream = client.send(request, HttpResponse.BodyHandlers.ofLines());
+                        assertEquals("text/event-stream; charset=utf-8",
+                                        stream.headers().firstValue("Content-Type").orElse(null));
+                        Iterator<String> lines = stream.body().filter(line -> line.startsWith("data:")).iterator();
+                        assertEquals("data: {\"id\":" + party.getEventID()
+                                        + ",\"upvotes\":0,\"downvotes\":0,\"score\":0}", lines.next());
+                        for (int i = 0; i < 500; i++) {
+                                store.castVote(party, new Vote("User_" + i, i % 5 != 0));
+                        }
+                        String latest = lines.next();
+                        int messages = 1;
+                        while (!latest.contains("\"upvotes\":400,")) {
+                                latest = lines.next();
+                                messages++;
+                        }
+                        // Coalesced, rather than one message a vote.
+                        assertTrue(messages < 500);
+                        assertTrue(latest.endsWith("\"downvotes\":100,\"score\":300}"));
+
+                        store.deleteEvent(party);
+                        while (!latest.equals("data: {\"id\":" + party.getEventID() + "}")) {
+                                latest = lines.next();
+                        }
+                        // Nothing left to watch, so the server ends the stream.
+                        assertFalse(lines.hasNext());
+                        stream.body().close();
+                }
+        }
+
+        private HttpResponse<String> send(String method, String url, String body)
+                        throws IOException, InterruptedException {
+                HttpRequest.BodyPublisher publisher = body == null ? HttpRequest.BodyPublishers.noBody()
+                                : HttpRequest.BodyPublishers.ofString(body);
+                HttpRequest request = HttpRequest.newBuilder(URI.create(url)).method(method, publisher).build();
+                return client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+
+        private static String idOf(String json) {
+                Matcher m = Pattern.compile("\"id\":(\\d+)").matcher(json);
+                assertTrue(m.find());
+                return m.group(1);
+        }
+}
@@ -0,0 +1,241 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * JUnit test class for EventStore class.
+ */
+public class TestEventStore {
+        @Rule
+        public TemporaryFolder folder = new TemporaryFolder();
+
+        @Test
+        public void testRecoverFromLog() throws IOException {
+                Path dir = folder.getRoot().toPath();
+                Event eventOne = new Event("User_1", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter), Duration.ofMinutes(90));
+                Event eventTwo = new Event("User_2", "Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        store.putUser(new User("test@gmail.com", "User_1", "testpassword"));
+                        store.addEvent(eventOne);
+                        store.addEvent(eventTwo);
+                        store.addEvent(new Event(null, "Open Mic", "Apple Gate",
+                                        LocalDateTime.parse("02-04-2021 20:00", Event.eventFormatter)));
+                        assertFalse(store.addEvent(new Event("User_3", "Party", "Apple Gate",
+                                        LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter))));
+                        store.castVote(eventOne, new Vote("User_2", true));
+                        store.castVote(eventOne, new Vote("User_3", true));
+                        store.switchVote(eventOne, "User_3");
+                        store.castVote(eventTwo, new Vote("User_1", true));
+                        store.deleteEvent(eventTwo);
+                }
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        assertEquals(2, store.getEvents().getSize());
+                        assertNull(store.getEvents().iterator().next().getAuthorID());
+                        Event recovered = store.getEvents().getEvent(eventOne.getKey());
+                        assertEquals("User_1", recovered.getAuthorID());
+                        assertEquals(Duration.ofMinutes(90), recovered.getDuration());
+                        assertEquals(1, recovered.getUpvotes());
+                        assertEquals(1, recovered.getDownvotes());
+                        assertTrue(store.getUser("User_1").checkPassword("testpassword"));
+                }
+        }
+
+        @Test
+        public void testRecoverEdits() throws IOException {
+                Path dir = folder.getRoot().toPath();
+                Event lunch = new Event("User_1", "Lunch", "Cafe",
+                                LocalDateTime.parse("08-05-2021 12:00", Event.eventFormatter));
+                LocalDateTime later = LocalDateTime.parse("09-05-2021 11:00", Event.eventFormatter);
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        store.addEvent(lunch);
+                        store.addEvent(new Event("User_2", "Party", "Apple Gate", later));
+                        assertFalse(store.editEvent(lunch, "Party", "Apple Gate", later, lunch.getDuration()));
+                        assertTrue(store.editEvent(lunch, "Brunch", "Cafe", later, Duration.ofMinutes(45)));
+                        store.castVote(lunch, new Vote("User_2", true));
+                        store.addEvent(new Event("User_2", "Quiz", "Cafe", later.minusMonths(1)));
+                        store.getEvents().compressBefore(LocalDateTime.parse("01-05-2021 00:00", Event.eventFormatter));
+                        try {
+                                store.editEvent(lunch, "Brunch", "Cafe", later.minusMonths(1), Duration.ofMinutes(45));
+                                fail("edited into a compressed bucket");
+                        } catch (IllegalStateException expected) {
+                        }
+                        assertEquals(later, lunch.getKey().getTime());
+                }
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        assertEquals(3, store.getEvents().getSize());
+                        Event recovered = store.getEvents().getEvent(new EventKey(later, "Brunch", "Cafe"));
+                        assertNotNull(recovered);
+                        assertEquals(Duration.ofMinutes(45), recovered.getDuration());
+                        assertEquals(1, recovered.getUpvotes());
+                }
+        }
+
+        @Test
+        public void testRecoverFromSnapshotAndTail() throws IOException {
+                Path dir = folder.getRoot().toPath();
+                Event eventOne = new Event("User_1", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter), Duration.ofHours(3));
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        store.putUser(new User("test@gmail.com", "User_1", "testpassword"));
+                        store.putUser(new User("test2@gmail.com", "User_2", "testpassword"));
+                        store.addEvent(eventOne);
+                        store.castVote(eventOne, new Vote("User_2", false));
+                        store.snapshot();
+                        store.removeUser("User_2");
+                        store.removeVote(eventOne, "User_2");
+                }
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        Event recovered = store.getEvents().getEvent(eventOne.getKey());
+                        assertNotNull(recovered);
+                        assertEquals(Duration.ofHours(3), recovered.getDuration());
+                        assertEquals(0, recovered.getTotalVotes());
+                        assertNotNull(store.getUser("User_1"));
+                        assertNull(store.getUser("User_2"));
+                }
+        }
+
+        @Test
+        public void testClosedStoreRefusesChanges() throws IOException {
+                Event lunch = new Event("User_1", "Lunch", "Cafe",
+                                LocalDateTime.parse("08-05-2021 12:00", Event.eventFormatter));
+                EventStore store = new EventStore(folder.getRoot().toPath(), 1000);
+                store.addEvent(lunch);
+                store.close();
+
+                try {
+                        store.castVote(lunch, new Vote("User_2", true));
+                        fail("voted in a closed store");
+                } catch (IOException expected) {
+                }
+                assertFalse(lunch.hasVoted("User_2"));
+        }
+
+        @Test
+        public void testRecoverAfterFailedSnapshot() throws IOException {
+                Path dir = folder.getRoot().toPath();
+                LocalDateTime start = LocalDateTime.parse("08-05-2021 12:00", Event.eventFormatter);
+                Path tmp = dir.resolve("snapshot.tmp");
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        store.addEvent(new Event("User_1", "Lunch", "Cafe", start));
+                        // A directory in its way makes the snapshot fail after the log has been switched.
+                        Files.createDirectory(tmp);
+                        try {
+                                store.snapshot();
+                                fail("snapshot written over a directory");
+                        } catch (IOException expected) {
+                        }
+                        store.addEvent(new Event("User_2", "Dinner", "Cafe", start.plusHours(7)));
+                }
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        assertEquals(2, store.getEvents().getSize());
+                        Files.delete(tmp);
+                        store.snapshot();
+                        store.addEvent(new Event("User_3", "Supper", "Cafe", start.plusHours(10)));
+                }
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        assertEquals(3, store.getEvents().getSize());
+                }
+                try (Stream<Path> files = Files.list(dir)) {
+                        assertEquals(2, files.count());
+                }
+        }
+
+        @Test
+        public void testSnapshotWhileWriting() throws Exception {
+                Path dir = folder.getRoot().toPath();
+                LocalDateTime start = LocalDateTime.parse("08-05-2021 12:00", Event.eventFormatter);
+                List<Event> live = new ArrayList<Event>();
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        for (int i = 0; i < 20; i++) {
+                                Event e = new Event("User_1", "Event " + i, "Room", start.plusHours(i));
+                                live.add(e);
+                                store.addEvent(e);
+                        }
+                        Thread writer = new Thread(() -> {
+                                try {
+                                        for (int i = 0; i < 2000; i++) {
+                                                Event e = live.get(i % live.size());
+                                                store.castVote(e, new Vote("User_" + (i % 7), i % 3 == 0));
+                                                store.switchVote(e, "User_" + (i % 5));
+                                                if (i % 10 == 0) {
+                                                        EventKey key = e.getKey();
+                                                        store.editEvent(e, key.getName(), "Room " + i, key.getTime(),
+                                                                        e.getDuration());
+                                                }
+                                        }
+                                } catch (IOException e) {
+                                        throw new UncheckedIOException(e);
+                                }
+                        });
+                        writer.start();
+                        while (writer.isAlive()) {
+                                store.snapshot();
+                        }
+                        writer.join();
+                }
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        assertEquals(live.size(), store.getEvents().getSize());
+                        for (Event e : live) {
+                                Event recovered = store.getEvents().getEvent(e.getKey());
+                                assertNotNull(recovered);
+                                assertEquals(e.getUpvotes(), recovered.getUpvotes());
+                                assertEquals(e.getDownvotes(), recovered.getDownvotes());
+                        }
+                }
+        }
+
+        @Test
+        public void testRecoverNullLocationAndVoter() throws IOException {
+                Path dir = folder.getRoot().toPath();
+                Event nowhere = new Event("User_1", "Lunch", null,
+                                LocalDateTime.parse("08-05-2021 12:00", Event.eventFormatter));
+
+                try (EventStore store = new EventStore(dir, 1000)) {
+                        store.addEvent(nowhere);
+                        store.castVote(nowhere, new Vote(null, true));
+                        store.castVote(nowhere, new Vote("User_2", false));
+                }
+
+                for (int reopen = 0; reopen < 2; reopen++) {
+                        try (EventStore store = new EventStore(dir, 1000)) {
+                                Event recovered = store.getEvents().getEvent(nowhere.getKey());
+                                assertNotNull(recovered);
+                                assertNull(recovered.getLocation());
+                                assertTrue(recovered.hasUpvoted(null));
+                                assertEquals(1, recovered.getDownvotes());
+                                // The second time round, from the snapshot rather than the log.
+                                store.snapshot();
+                        }
+                }
+        }
+}
@@ -0,0 +1,45 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for FreeHours class.
+ */
+public class TestFreeHours {
+    @Test
+    public void testUpdateTime() {
+        FreeHours hours = new FreeHours();
+        hours.updateTime(2, 13);
+
+        assertTrue(hours.isFreeBetween(2, 13 * 4, 14 * 4));
+        assertFalse(hours.isFree(2, 14 * 4));
+        assertEquals(4, hours.getFreeSlotCount());
+        assertEquals("Wed 13:00-14:00", hours.getAvailableHours());
+    }
+
+    @Test
+    public void testRangesAcrossWords() {
+        FreeHours hours = new FreeHours();
+        hours.markFree(0, 10, 96);
+        hours.markFree(1, 0, 20);
+        hours.markBusy(0, 50, 70);
+
+        assertTrue(hours.isFreeBetween(0, 10, 50));
+        assertFalse(hours.isFreeBetween(0, 10, 51));
+        assertTrue(hours.isFreeBetween(0, 70, 96));
+        assertEquals("Mon 02:30-12:30, Mon 17:30-24:00, Tue 00:00-05:00", hours.getAvailableHours());
+    }
+
+    @Test
+    public void testClearDay() {
+        FreeHours hours = new FreeHours(31);
+        hours.markFree(29, 0, 96);
+        hours.markFree(30, 0, 96);
+        hours.clearDay(29);
+
+        assertEquals(96, hours.getFreeSlotCount());
+        assertEquals("Day 30 00:00-24:00", hours.getAvailableHours());
+    }
+}
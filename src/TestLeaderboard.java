@@ -0,0 +1,109 @@
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for Leaderboard class.
+ */
+public class TestLeaderboard {
+        @Test
+        public void testTopEvents() {
+                Event eventOne = new Event("User_1", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                Event eventTwo = new Event("User_2", "Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                Event eventThree = new Event("User_3", "Afterparty", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 23:00", Event.eventFormatter));
+
+                EventList main = new EventList();
+                main.addEvent(eventOne);
+                main.addEvent(eventTwo);
+                Leaderboard board = new Leaderboard(main);
+                main.addEvent(eventThree);
+
+                eventOne.addVote(new Vote("User_2", true));
+                eventThree.addVote(new Vote("User_1", true));
+                eventThree.addVote(new Vote("User_2", true));
+
+                assertEquals(Arrays.asList(eventThree, eventOne, eventTwo), board.topEvents(5));
+
+                eventThree.switchVote("User_1");
+                eventThree.switchVote("User_2");
+
+                assertEquals(Arrays.asList(eventOne, eventTwo), board.topEvents(2));
+
+                main.deleteEvent(eventOne);
+
+                assertEquals(Arrays.asList(eventTwo, eventThree), board.topEvents(5));
+        }
+
+        @Test
+        public void testTopEventsInWindow() {
+                Event eventOne = new Event("User_1", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                Event eventTwo = new Event("User_2", "Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                Event eventThree = new Event("User_3", "Afterparty", "Apple Gate",
+                                LocalDateTime.parse("02-04-2021 23:00", Event.eventFormatter));
+
+                EventList main = new EventList();
+                Leaderboard board = new Leaderboard(main);
+                main.addEvent(eventOne);
+                main.addEvent(eventTwo);
+                main.addEvent(eventThree);
+
+                eventOne.addVote(new Vote("User_2", true));
+                eventOne.addVote(new Vote("User_3", true));
+                eventThree.addVote(new Vote("User_1", true));
+
+                assertEquals(Arrays.asList(eventThree, eventTwo), board.topEvents(5,
+                                LocalDateTime.parse("01-04-2021 00:00", Event.eventFormatter),
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter)));
+                assertEquals(Arrays.asList(eventThree), board.topEvents(1,
+                                LocalDateTime.parse("01-04-2021 00:00", Event.eventFormatter),
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter)));
+        }
+
+        @Test
+        public void testConcurrentVotes() throws InterruptedException {
+                EventList main = new EventList();
+                Leaderboard board = new Leaderboard(main);
+                List<Event> events = new ArrayList<Event>();
+                for (int i = 0; i < 20; i++) {
+                        Event e = new Event("User_1", "Meetup " + i, "Room " + i,
+                                        LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter).plusHours(i));
+                        main.addEvent(e);
+                        events.add(e);
+                }
+
+                // Event i ends up with i upvotes, cast by several threads at once.
+                Thread[] voters = new Thread[4];
+                for (int t = 0; t < voters.length; t++) {
+                        int first = t;
+                        voters[t] = new Thread(() -> {
+                                for (int i = 0; i < events.size(); i++) {
+                                        for (int v = first; v < i; v += voters.length) {
+                                                events.get(i).addVote(new Vote("Voter_" + v, true));
+                                        }
+                                }
+                        });
+                        voters[t].start();
+                }
+                for (Thread voter : voters) {
+                        voter.join();
+                }
+
+                List<Event> expected = new ArrayList<Event>(events);
+                Collections.reverse(expected);
+                assertEquals(expected, board.topEvents(events.size()));
+                for (Event e : events) {
+                        assertEquals(e.getScore(), board.getRankedScore(e));
+                }
+        }
+}
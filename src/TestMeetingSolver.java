@@ -0,0 +1,70 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for MeetingSolver class.
+ */
+public class TestMeetingSolver {
+    @Test
+    public void testBestTimes() {
+        FreeHours alice = new FreeHours();
+        FreeHours bob = new FreeHours();
+        FreeHours carol = new FreeHours();
+        alice.markFree(0, 36, 48);
+        bob.markFree(0, 40, 52);
+        carol.markFree(0, 40, 44);
+        carol.markFree(3, 0, 8);
+
+        List<MeetingSolver.Candidate> best = new MeetingSolver().bestTimes(Arrays.asList(alice, bob, carol), 4, 3);
+
+        assertEquals(3, best.size());
+        assertEquals(0, best.get(0).getDay());
+        assertEquals(40, best.get(0).getStartSlot());
+        assertEquals(3, best.get(0).getFreeCount());
+        assertEquals(41, best.get(1).getStartSlot());
+        assertEquals(2, best.get(1).getFreeCount());
+        assertEquals(42, best.get(2).getStartSlot());
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(151);
+        List<FreeHours> members = new ArrayList<FreeHours>();
+        for (int i = 0; i < 300; i++) {
+            FreeHours hours = new FreeHours(30);
+            for (int j = 0; j < 20; j++) {
+                int start = random.nextInt(90);
+                hours.markFree(random.nextInt(30), start, start + 1 + random.nextInt(96 - start));
+            }
+            members.add(hours);
+        }
+        int duration = 7;
+
+        List<MeetingSolver.Candidate> best = new MeetingSolver().bestTimes(members, duration, 5);
+
+        int bestCount = 0;
+        int bestSlot = -1;
+        for (int slot = 0; slot + duration <= 30 * 96; slot++) {
+            int count = 0;
+            for (FreeHours hours : members) {
+                boolean free = true;
+                for (int s = slot; s < slot + duration && free; s++) {
+                    free = hours.isFree(s / 96, s % 96);
+                }
+                count += free ? 1 : 0;
+            }
+            if (count > bestCount) {
+                bestCount = count;
+                bestSlot = slot;
+            }
+        }
+        assertEquals(bestCount, best.get(0).getFreeCount());
+        assertEquals(bestSlot, best.get(0).getDay() * 96 + best.get(0).getStartSlot());
+    }
+}
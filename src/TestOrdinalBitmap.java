@@ -0,0 +1,85 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for OrdinalBitmap and StringDictionary classes.
+ */
+public class TestOrdinalBitmap {
+        @Test
+        public void testMatchesTreeSet() {
+                Random random = new Random(20);
+                OrdinalBitmap bitmap = new OrdinalBitmap();
+                TreeSet<Integer> expected = new TreeSet<Integer>();
+                // Mostly one dense chunk, so it turns into a bitmap and back.
+                for (int round = 0; round < 40000; round++) {
+                        int value = random.nextInt(10) == 0 ? random.nextInt(1 << 20) : random.nextInt(9000);
+                        if (random.nextInt(3) == 0) {
+                                assertEquals(expected.remove(value), bitmap.remove(value));
+                        } else {
+                                assertEquals(expected.add(value), bitmap.add(value));
+                        }
+                        assertEquals(expected.size(), bitmap.size());
+                }
+                int[] values = expected.stream().mapToInt(Integer::intValue).toArray();
+                assertArrayEquals(values, bitmap.toArray());
+                for (int i = 0; i < values.length; i += 97) {
+                        assertEquals(values[i], bitmap.select(i));
+                        assertTrue(bitmap.contains(values[i]));
+                }
+
+                for (int v : values) {
+                        bitmap.remove(v);
+                }
+                assertEquals(0, bitmap.size());
+                assertEquals(0, bitmap.toArray().length);
+        }
+
+        @Test
+        public void testDictionary() {
+                StringDictionary dictionary = new StringDictionary();
+                List<Integer> ordinals = new ArrayList<Integer>();
+                for (int i = 0; i < 200; i++) {
+                        ordinals.add(dictionary.ordinal("User_" + i));
+                }
+                assertEquals(Integer.valueOf(0), ordinals.get(0));
+                assertEquals(Integer.valueOf(199), ordinals.get(199));
+                assertEquals(17, dictionary.ordinal(new String("User_17")));
+                assertEquals("User_42", dictionary.get(42));
+                assertEquals(-1, dictionary.find("User_200"));
+                assertEquals(200, dictionary.size());
+
+                assertEquals(-1, dictionary.find(null));
+                assertEquals(200, dictionary.ordinal(null));
+                assertEquals(200, dictionary.find(null));
+                assertNull(dictionary.get(200));
+                assertEquals(201, dictionary.size());
+        }
+
+        @Test
+        public void testVotesAreCompact() {
+                Random random = new Random(20);
+                LocalDateTime time = LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter);
+                long bytes = 0;
+                long votes = 0;
+                for (int i = 0; i < 100; i++) {
+                        Event e = new Event("User_" + i, "Event " + i, "Room", time.plusHours(i));
+                        for (int j = 0; j < 1000; j++) {
+                                e.addVote(new Vote("User_" + random.nextInt(50000), random.nextBoolean()));
+                        }
+                        bytes += e.estimateVoteBytes();
+                        votes += e.getTotalVotes();
+                }
+                // A Vote object in a hash map took over 60 bytes.
+                assertTrue(bytes / (double) votes < 4);
+        }
+}
@@ -0,0 +1,62 @@
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for PersistentSortedMap class.
+ */
+public class TestPersistentSortedMap {
+        @Test
+        public void testMatchesTreeMap() {
+                Random random = new Random(22);
+                PersistentSortedMap<Integer, String> map = PersistentSortedMap.empty();
+                TreeMap<Integer, String> expected = new TreeMap<Integer, String>();
+                for (int round = 0; round < 20000; round++) {
+                        int key = random.nextInt(2000);
+                        if (random.nextInt(3) == 0) {
+                                map = map.remove(key);
+                                expected.remove(key);
+                        } else {
+                                map = map.put(key, "v" + round);
+                                expected.put(key, "v" + round);
+                        }
+                        assertEquals(expected.size(), map.size());
+                        assertEquals(expected.get(key), map.get(key));
+                }
+                assertEquals(new ArrayList<String>(expected.values()), toList(map.values(null, null)));
+                assertEquals(new ArrayList<Integer>(expected.keySet()), toList(map.keys(null, null)));
+                assertEquals(new ArrayList<String>(expected.subMap(500, 1500).values()), toList(map.values(500, 1500)));
+                assertEquals(new ArrayList<String>(expected.tailMap(1999).values()), toList(map.values(1999, null)));
+                assertFalse(map.values(700, 700).hasNext());
+        }
+
+        @Test
+        public void testOldVersionsStay() {
+                PersistentSortedMap<Integer, String> empty = PersistentSortedMap.empty();
+                PersistentSortedMap<Integer, String> one = empty.put(1, "one");
+                PersistentSortedMap<Integer, String> two = one.put(2, "two");
+                PersistentSortedMap<Integer, String> changed = two.put(1, "uno").remove(2);
+
+                assertEquals(0, empty.size());
+                assertEquals(null, empty.get(1));
+                assertEquals(List.of("one"), toList(one.values(null, null)));
+                assertEquals(List.of("one", "two"), toList(two.values(null, null)));
+                assertEquals(List.of("uno"), toList(changed.values(null, null)));
+                assertSame(two, two.remove(3));
+        }
+
+        private static <T> List<T> toList(Iterator<T> it) {
+                List<T> all = new ArrayList<T>();
+                it.forEachRemaining(all::add);
+                return all;
+        }
+}
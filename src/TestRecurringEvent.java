@@ -0,0 +1,168 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for RecurringEvent and RecurrenceRule classes.
+ */
+public class TestRecurringEvent {
+        private static LocalDateTime time(String text) {
+                return LocalDateTime.parse(text, Event.eventFormatter);
+        }
+
+        private static List<LocalDateTime> times(Iterable<Event> events) {
+                List<LocalDateTime> out = new ArrayList<LocalDateTime>();
+                for (Event e : events) {
+                        out.add(e.getKey().getTime());
+                }
+                return out;
+        }
+
+        private static List<LocalDateTime> take(Iterator<LocalDateTime> it, int n) {
+                List<LocalDateTime> out = new ArrayList<LocalDateTime>();
+                while (out.size() < n && it.hasNext()) {
+                        out.add(it.next());
+                }
+                return out;
+        }
+
+        @Test
+        public void testRules() {
+                // 07-04-2021 is a Wednesday.
+                LocalDateTime start = time("07-04-2021 18:00");
+
+                assertEquals(List.of(time("07-04-2021 18:00"), time("09-04-2021 18:00"), time("12-04-2021 18:00"),
+                                time("14-04-2021 18:00")),
+                                take(RecurrenceRule.weekly(DayOfWeek.FRIDAY, DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY)
+                                                .occurrences(start, start), 4));
+                assertEquals(List.of(time("21-04-2021 18:00"), time("05-05-2021 18:00")),
+                                take(RecurrenceRule.weekly().every(2).occurrences(start, time("08-04-2021 00:00")), 2));
+                assertEquals(List.of(time("07-04-2021 18:00"), time("08-04-2021 18:00"), time("09-04-2021 18:00")),
+                                take(RecurrenceRule.daily().times(3).occurrences(start, start), 10));
+                assertEquals(List.of(time("09-04-2021 18:00")),
+                                take(RecurrenceRule.daily().times(3).occurrences(start, time("09-04-2021 00:00")), 10));
+                assertEquals(List.of(time("07-04-2021 18:00"), time("08-04-2021 18:00")),
+                                take(RecurrenceRule.daily().until(time("08-04-2021 18:00")).occurrences(start, start),
+                                                10));
+
+                // Months without a 31st are skipped.
+                LocalDateTime endOfMonth = time("31-01-2021 09:00");
+                assertEquals(List.of(time("31-03-2021 09:00"), time("31-05-2021 09:00"), time("31-07-2021 09:00")),
+                                take(RecurrenceRule.monthly().occurrences(endOfMonth, time("01-02-2021 00:00")), 3));
+
+                // Jumping far ahead gives the same answer as walking there.
+                RecurrenceRule weekly = RecurrenceRule.weekly(DayOfWeek.TUESDAY, DayOfWeek.THURSDAY).every(3);
+                LocalDateTime far = time("01-06-2030 00:00");
+                Iterator<LocalDateTime> walked = weekly.occurrences(start, start);
+                LocalDateTime expected = walked.next();
+                while (expected.isBefore(far)) {
+                        expected = walked.next();
+                }
+                assertEquals(expected, weekly.occurrences(start, far).next());
+        }
+
+        @Test
+        public void testOverridesAndCancels() {
+                RecurringEvent club = new RecurringEvent("User_1", "Chess Club", "Library", time("05-04-2021 17:00"),
+                                RecurrenceRule.weekly().times(4));
+                Event moved = new Event("User_1", "Chess Club", "Gym", time("14-04-2021 17:00"));
+
+                club.cancel(time("19-04-2021 17:00"));
+                club.override(time("12-04-2021 17:00"), moved);
+
+                assertEquals(List.of(time("05-04-2021 17:00"), time("14-04-2021 17:00"), time("26-04-2021 17:00")),
+                                times(club.occurrencesBetween(time("01-04-2021 00:00"), null)));
+                assertNull(club.getOccurrence(time("19-04-2021 17:00")));
+                assertNull(club.getOccurrence(time("03-05-2021 17:00")));
+                assertSame(moved, club.getOccurrence(time("12-04-2021 17:00")));
+                assertFalse(club.isScheduled(time("06-04-2021 17:00")));
+
+                club.restore(time("19-04-2021 17:00"));
+                assertEquals(4, times(club.occurrencesBetween(time("01-04-2021 00:00"), null)).size());
+        }
+
+        @Test
+        public void testVotedOccurrencesAreKept() {
+                RecurringEvent club = new RecurringEvent("User_1", "Chess Club", "Library", time("05-04-2021 17:00"),
+                                RecurrenceRule.daily());
+                LocalDateTime second = time("06-04-2021 17:00");
+                Event occurrence = club.getOccurrence(second);
+                occurrence.addVote(new Vote("User_2", true));
+
+                Event again = club.occurrencesBetween(second, second.plusDays(1)).iterator().next();
+                assertSame(occurrence, again);
+                assertEquals(1, again.getUpvotes());
+        }
+
+        @Test
+        public void testWalksShareOccurrences() throws InterruptedException {
+                RecurringEvent club = new RecurringEvent("User_1", "Chess Club", "Library", time("05-04-2021 17:00"),
+                                RecurrenceRule.daily());
+                LocalDateTime third = time("07-04-2021 17:00");
+                Event first = club.occurrencesBetween(third, third.plusDays(1)).iterator().next();
+                Event second = club.occurrencesBetween(third, third.plusDays(1)).iterator().next();
+                assertSame(first, second);
+                assertEquals(first.getEventID(), club.getOccurrence(third).getEventID());
+
+                // Two voters on one unvoted occurrence, from two walks at once: neither vote is lost.
+                LocalDateTime fourth = third.plusDays(1);
+                Thread[] voters = new Thread[2];
+                for (int i = 0; i < voters.length; i++) {
+                        String user = "User_" + (i + 2);
+                        voters[i] = new Thread(() -> club.getOccurrence(fourth).addVote(new Vote(user, true)));
+                        voters[i].start();
+                }
+                for (Thread t : voters) {
+                        t.join();
+                }
+                assertEquals(2, club.getOccurrence(fourth).getUpvotes());
+        }
+
+        @Test
+        public void testMergedIntoEventList() {
+                EventList main = new EventList();
+                main.addEvent(new Event("User_2", "Party", "Apple Gate", time("06-04-2021 12:00")));
+                main.addEvent(new Event("User_3", "Afterparty", "Apple Gate", time("09-04-2021 23:00")));
+                RecurringEvent club = new RecurringEvent("User_1", "Chess Club", "Library", time("05-04-2021 17:00"),
+                                RecurrenceRule.daily());
+                final List<Event> votes = new ArrayList<Event>();
+                main.addListener(new EventListListener() {
+                        @Override
+                        public void votesChanged(Event changed) {
+                                votes.add(changed);
+                        }
+                });
+                main.addRecurring(club);
+
+                List<String> names = new ArrayList<String>();
+                for (Event e : main.eventsBetween(time("06-04-2021 00:00"), time("08-04-2021 00:00"))) {
+                        names.add(e.getName());
+                }
+                assertEquals(List.of("Party", "Chess Club", "Chess Club"), names);
+
+                names.clear();
+                for (Event e : main.nextEvents(time("09-04-2021 18:00"), 3)) {
+                        names.add(e.getName() + " " + e.getKey().getTime().getDayOfMonth());
+                }
+                assertEquals(List.of("Afterparty 9", "Chess Club 10", "Chess Club 11"), names);
+
+                Event first = main.eventsOnDay(time("05-04-2021 00:00").toLocalDate()).iterator().next();
+                first.addVote(new Vote("User_2", false));
+                assertEquals(List.of(first), votes);
+                assertEquals(4, times(main.withOccurrencesBefore(time("07-04-2021 00:00"))).size());
+
+                main.removeRecurring(club);
+                assertTrue(main.getRecurring().isEmpty());
+                assertEquals(1, times(main.eventsBetween(time("06-04-2021 00:00"), time("08-04-2021 00:00"))).size());
+        }
+}
@@ -0,0 +1,119 @@
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for ScoreFeed class.
+ */
+public class TestScoreFeed {
+        @Test
+        public void testVotesAreCoalesced() throws InterruptedException {
+                Event hot = new Event("User_1", "Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                Event cold = new Event("User_2", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                EventList main = new EventList();
+                main.addEvent(hot);
+                main.addEvent(cold);
+
+                try (ScoreFeed feed = new ScoreFeed(main, 50)) {
+                        ScoreFeed.Subscription watcher = feed.subscribe(List.of(hot));
+                        // Never reads, and must not hold anything up.
+                        ScoreFeed.Subscription stalled = feed.subscribe(List.of(hot, cold));
+                        int updates = 0;
+                        long start = System.nanoTime();
+                        for (int i = 0; i < 20000; i++) {
+                                hot.addVote(new Vote("User_" + i, true));
+                                cold.addVote(new Vote("User_" + i, false));
+                                if (i % 1000 == 0) {
+                                        List<Event> changed = eventsOf(watcher.take(0));
+                                        updates += changed.size();
+                                        assertTrue(changed.isEmpty() || changed.equals(List.of(hot)));
+                                }
+                        }
+                        long millis = (System.nanoTime() - start) / 1000000;
+                        // Long enough for the flush after the last vote, so nothing is still on its way.
+                        Thread.sleep(200);
+                        List<Event> last = eventsOf(watcher.take(0));
+                        assertEquals(List.of(hot), last);
+                        updates++;
+                        // At most one update per interval, give or take the first and last.
+                        assertTrue(updates <= millis / 50 + 2);
+                        assertEquals(20000, hot.getUpvotes());
+
+                        assertEquals(2, stalled.take(0).size());
+                        assertTrue(watcher.take(100).isEmpty());
+                        watcher.close();
+                        assertNull(watcher.take(1000));
+                        hot.addVote(new Vote("User_x", true));
+                }
+        }
+
+        @Test
+        public void testRemovalEndsSubscription() throws InterruptedException {
+                Event party = new Event("User_1", "Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                Event juan = new Event("User_2", "Event Juan", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                Event gone = new Event("User_3", "Gone", "Nowhere",
+                                LocalDateTime.parse("09-05-2021 14:00", Event.eventFormatter));
+                EventList main = new EventList();
+                main.addEvent(party);
+                main.addEvent(juan);
+
+                try (ScoreFeed feed = new ScoreFeed(main, 20)) {
+                        ScoreFeed.Subscription watcher = feed.subscribe(List.of(party, juan));
+                        party.addVote(new Vote("User_2", true));
+                        main.deleteEvent(party);
+                        List<EventChange> changes = watcher.take(1000);
+                        assertEquals(1, changes.size());
+                        assertEquals(EventChange.Kind.REMOVED, changes.get(0).getKind());
+                        assertSame(party, changes.get(0).getEvent());
+
+                        juan.addVote(new Vote("User_1", true));
+                        assertEquals(EventChange.Kind.VOTES_CHANGED, watcher.take(1000).get(0).getKind());
+                        main.deleteEvent(juan);
+                        assertEquals(EventChange.Kind.REMOVED, watcher.take(1000).get(0).getKind());
+                        assertNull(watcher.take(1000));
+
+                        // Never in the list, so removed as soon as it is watched.
+                        ScoreFeed.Subscription late = feed.subscribe(List.of(gone));
+                        assertEquals(EventChange.Kind.REMOVED, late.take(1000).get(0).getKind());
+                        assertNull(late.take(1000));
+                }
+        }
+
+        @Test
+        public void testWatchEventSharingAKey() throws InterruptedException {
+                LocalDateTime time = LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter);
+                Event first = new Event("User_1", "Party", "Apple Gate", time);
+                Event second = new Event("User_2", "Party", "Apple Gate", time);
+                EventList main = new EventList();
+                main.addEvent(first);
+                main.addEvent(second);
+
+                try (ScoreFeed feed = new ScoreFeed(main, 20)) {
+                        // Not the first event with its key, but still in the list.
+                        ScoreFeed.Subscription watcher = feed.subscribe(List.of(second));
+                        second.addVote(new Vote("User_3", true));
+                        assertEquals(List.of(second), eventsOf(watcher.take(1000)));
+                }
+        }
+
+        private static List<Event> eventsOf(List<EventChange> changes) {
+                List<Event> events = new ArrayList<Event>();
+                for (EventChange c : changes) {
+                        assertEquals(EventChange.Kind.VOTES_CHANGED, c.getKind());
+                        events.add(c.getEvent());
+                }
+                return events;
+        }
+}
@@ -0,0 +1,81 @@
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for SearchIndex class.
+ */
+public class TestSearchIndex {
+        @Test
+        public void testPrefixAndRanking() {
+                Event party = new Event("User_1", "Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                Event brunch = new Event("User_2", "Brunch Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 11:00", Event.eventFormatter));
+                Event juan = new Event("User_3", "Event Juan", "Juan's Gate",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                EventList main = new EventList();
+                main.addEvent(party);
+                main.addEvent(brunch);
+                SearchIndex index = new SearchIndex(main);
+                main.addEvent(juan);
+
+                assertEquals(List.of(brunch, party), index.search("ap", SearchIndex.Order.TIME, 10));
+                assertEquals(List.of(brunch), index.search("GATE bru", SearchIndex.Order.TIME, 10));
+                assertEquals(List.of(juan), index.search("juan's", SearchIndex.Order.TIME, 10));
+                assertEquals(List.of(), index.search("apple juan", SearchIndex.Order.TIME, 10));
+                assertEquals(List.of(), index.search("  ", SearchIndex.Order.TIME, 10));
+                assertEquals(List.of(brunch), index.search("p", SearchIndex.Order.TIME, 1));
+
+                party.addVote(new Vote("User_2", true));
+                juan.addVote(new Vote("User_1", false));
+                assertEquals(List.of(party, brunch, juan), index.search("ga", SearchIndex.Order.SCORE, 10));
+                juan.addVote(new Vote("User_2", true));
+                juan.addVote(new Vote("User_1", true));
+                assertEquals(List.of(juan, party, brunch), index.search("ga", SearchIndex.Order.SCORE, 10));
+        }
+
+        @Test
+        public void testFollowsEdits() {
+                Event party = new Event("User_1", "Party", "Apple Gate",
+                                LocalDateTime.parse("01-04-2021 15:00", Event.eventFormatter));
+                EventList main = new EventList();
+                SearchIndex index = new SearchIndex(main);
+                main.addEvent(party);
+
+                party.setName("Housewarming Celebration");
+                assertEquals(List.of(), index.search("party", SearchIndex.Order.TIME, 10));
+                // Past the indexed prefix length, so checked against the whole word.
+                assertEquals(List.of(party), index.search("housewarm", SearchIndex.Order.TIME, 10));
+                assertEquals(List.of(), index.search("housewarmers", SearchIndex.Order.TIME, 10));
+                party.setLocation("Back Gate");
+                assertEquals(List.of(party), index.search("cel back", SearchIndex.Order.TIME, 10));
+
+                main.deleteEvent(party);
+                assertEquals(List.of(), index.search("cel", SearchIndex.Order.TIME, 10));
+                assertEquals(0, index.size());
+        }
+
+        @Test
+        public void testCommonWords() {
+                LocalDateTime start = LocalDateTime.parse("01-01-2021 09:00", Event.eventFormatter);
+                EventList main = new EventList();
+                for (int i = 0; i < 40000; i++) {
+                        String room = "Room " + (char) ('A' + i % 7);
+                        main.addEvent(new Event("User_1", "Meetup " + i, room, start.plusMinutes(i)));
+                }
+                SearchIndex index = new SearchIndex(main);
+
+                List<Event> first = index.search("meet r", SearchIndex.Order.TIME, 3);
+                assertEquals(3, first.size());
+                assertEquals("Meetup 0", first.get(0).getName());
+                // Common words that rarely meet: the walk gives up and the scan finds it.
+                List<Event> rare = index.search("meetup 39999", SearchIndex.Order.TIME, 3);
+                assertEquals(1, rare.size());
+                assertEquals(40000 / 7, index.search("room d", SearchIndex.Order.TIME, 100000).size());
+        }
+}
@@ -0,0 +1,63 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for SnapshotCodec class.
+ */
+public class TestSnapshotCodec {
+        @Test
+        public void testRoundTrip() throws IOException {
+                Event eventOne = new Event("User_1", "Fiesta en la caf\u00e9 \u2615", "Juan's House",
+                                LocalDateTime.parse("08-05-2021 14:00", Event.eventFormatter));
+                Event eventTwo = new Event("User_2", "Party", "Juan's House",
+                                LocalDateTime.parse("01-04-1969 15:00", Event.eventFormatter));
+                for (int i = 0; i < 20; i++) {
+                        eventOne.addVote(new Vote("User_" + i, i % 3 == 0));
+                }
+                eventTwo.addVote(new Vote("User_1", false));
+                Event anonymous = new Event(null, "Open Mic", "Juan's House",
+                                LocalDateTime.parse("09-05-2021 20:00", Event.eventFormatter));
+
+                EventList main = new EventList();
+                main.addEvent(eventOne);
+                main.addEvent(eventTwo);
+                main.addEvent(anonymous);
+                User user = new User("test@gmail.com", "User_1", "testpassword");
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                SnapshotCodec.encode(Channels.newChannel(bytes), 42, Arrays.asList(user), main, main.getSize());
+
+                HashMap<String, User> users = new HashMap<String, User>();
+                EventList loaded = new EventList();
+                long seq = SnapshotCodec.decode(ByteBuffer.wrap(bytes.toByteArray()), users, loaded);
+
+                assertEquals(42, seq);
+                assertEquals("test@gmail.com", users.get("User_1").getEmail());
+                assertEquals(user.getHashedPassword(), users.get("User_1").getHashedPassword());
+
+                Iterator<Event> it = loaded.iterator();
+                Event first = it.next();
+                assertEquals(eventTwo, first);
+                assertEquals("User_2", first.getAuthorID());
+                assertEquals(0, first.getUpvotes());
+                assertEquals(1, first.getDownvotes());
+                Event second = it.next();
+                assertEquals("Fiesta en la caf\u00e9 \u2615", second.getName());
+                assertEquals(7, second.getUpvotes());
+                assertEquals(13, second.getDownvotes());
+                Event third = it.next();
+                assertEquals("Open Mic", third.getName());
+                assertNull(third.getAuthorID());
+        }
+}
@@ -1,4 +1,6 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -26,7 +28,10 @@ public class TestUser {
     public void testGetHashedPassword() {
         User testUser = new User("test@gmail.com", "test_user", "testpassword");
 
-        assertEquals("testpassword".hashCode(), testUser.getHashedPassword());
+        assertTrue(testUser.getHashedPassword().startsWith("scrypt$"));
+        assertFalse(testUser.getHashedPassword().contains("testpassword"));
+        assertTrue(testUser.checkPassword("testpassword"));
+        assertFalse(testUser.checkPassword("testpassword2"));
     }
 
     @Test
@@ -44,6 +49,7 @@ public class TestUser {
 
         testUser.setHashedPassword("test_password_2_electric_boogaloo");
 
-        assertEquals("test_password_2_electric_boogaloo".hashCode(), testUser.getHashedPassword());
+        assertTrue(testUser.checkPassword("test_password_2_electric_boogaloo"));
+        assertFalse(testUser.checkPassword("testpassword"));
     }
 }
\ No newline at end of file
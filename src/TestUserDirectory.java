@@ -0,0 +1,100 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+/**
+ * JUnit test class for UserDirectory and PasswordHasher classes.
+ */
+public class TestUserDirectory {
+        // Cheap enough for tests, still a real scrypt hash.
+        private static final PasswordHasher FAST = new PasswordHasher(1024, 8, 1);
+
+        @Test
+        public void testScryptMatchesRfc7914() {
+                byte[] key = PasswordHasher.scrypt("password".getBytes(), "NaCl".getBytes(), 1024, 8, 16, 64);
+
+                assertEquals("fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b3731622eaf30d9"
+                                + "2e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640", hex(key));
+        }
+
+        @Test
+        public void testRegisterAndLookUp() {
+                try (UserDirectory directory = new UserDirectory(FAST, 2, 16)) {
+                        User user = directory.register("Test@Gmail.com", "test_user", "testpassword").join();
+
+                        assertSame(user, directory.getUser("test_user"));
+                        assertSame(user, directory.findByEmail(" test@gmail.com"));
+                        assertSame(user, directory.authenticate("test_user", "testpassword").join());
+                        assertSame(user, directory.authenticate("TEST@gmail.com", "testpassword").join());
+                        assertNull(directory.authenticate("test_user", "wrong").join());
+                        assertNull(directory.authenticate("nobody", "testpassword").join());
+
+                        assertTrue(directory.changeEmail("test_user", "new@gmail.com"));
+                        assertNull(directory.findByEmail("test@gmail.com"));
+                        assertSame(user, directory.findByEmail("new@gmail.com"));
+
+                        assertTrue(directory.changePassword("test_user", "second").join());
+                        assertTrue(user.checkPassword("second"));
+                        assertEquals(1, directory.getSize());
+                }
+        }
+
+        @Test
+        public void testDuplicatesAreRefused() {
+                try (UserDirectory directory = new UserDirectory(FAST, 2, 16)) {
+                        directory.register("test@gmail.com", "test_user", "testpassword").join();
+
+                        assertTrue(directory.register("other@gmail.com", "test_user", "x").isCompletedExceptionally());
+                        assertTrue(directory.register("TEST@gmail.com", "other", "x").isCompletedExceptionally());
+                        directory.register("other@gmail.com", "other", "x").join();
+                        assertFalse(directory.changeEmail("other", "test@gmail.com"));
+
+                        directory.remove("test_user");
+                        assertNull(directory.findByEmail("test@gmail.com"));
+                        assertTrue(directory.changeEmail("other", "test@gmail.com"));
+                }
+        }
+
+        @Test
+        public void testFullQueueRejects() {
+                try (UserDirectory directory = new UserDirectory(FAST, 1, 2)) {
+                        List<CompletableFuture<User>> logins = new ArrayList<CompletableFuture<User>>();
+                        for (int i = 0; i < 50; i++) {
+                                logins.add(directory.authenticate("nobody", "x"));
+                        }
+                        int rejected = 0;
+                        for (CompletableFuture<User> login : logins) {
+                                try {
+                                        login.join();
+                                } catch (CompletionException e) {
+                                        assertTrue(e.getCause() instanceof RejectedExecutionException);
+                                        rejected++;
+                                }
+                        }
+
+                        UserDirectory.Metrics metrics = directory.getMetrics();
+                        assertTrue(rejected > 0);
+                        assertEquals(rejected, metrics.getRejected());
+                        assertEquals(50 - rejected, metrics.getCompleted());
+                        assertEquals(0, metrics.getQueueDepth());
+                }
+        }
+
+        private static String hex(byte[] bytes) {
+                StringBuilder out = new StringBuilder();
+                for (byte b : bytes) {
+                        out.append(String.format("%02x", b));
+                }
+                return out.toString();
+        }
+}
@@ -17,6 +17,7 @@ public class TestVote {
     }
 
     @Test
+    @SuppressWarnings("deprecation")
     public void testSwitchValue() {
         Vote testVote = new Vote("test_user", false);
         testVote.switchValue();
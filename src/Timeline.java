@@ -1,32 +1,283 @@
+import java.awt.Color;
+import java.awt.Component;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import javax.swing.JComponent;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+
 /**
  * This class is meant to keep the timeline GUI component updated all the time
- * while it is running on the website.
- * 
- * @deprecated Legacy code when attempting to set up web app implemenation with
- *             browser-based GUI. May be updated to be better suited for a local
- *             java swing GUI implementation.
- * 
+ * while it is running.
+ *
+ * The timeline is a table whose rows come straight from an EventList, so Swing
+ * only creates and paints the rows that are on screen no matter how many events
+ * there are. Changes to the list are coalesced off the event dispatch thread and
+ * applied at most once per frame, each added, removed or moved event as a row
+ * inserted or deleted in place, and vote changes repaint only the rows between
+ * the first and last changed event. Recurring events show
+ * their occurrences for the next few weeks.
+ *
  * @author Akela Do-Ho
  */
 public class Timeline {
+    private static final String[] COLUMNS = { "Event", "Location", "Time", "Up", "Down" };
+    private static final long FRAME_MILLIS = 16;
+    // How far ahead occurrences of recurring events are shown.
+    private static final int OCCURRENCE_DAYS = 90;
+
+    private EventTableModel model;
+    private JTable table;
+    private JScrollPane component;
 
+    /**
+     * Builds the table and its scroll pane. Must be called on the event dispatch
+     * thread before anything else.
+     */
     public void init() {
-        // we'll figure this out
+        model = new EventTableModel();
+        table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setFillsViewportHeight(true);
+        VoteRenderer votes = new VoteRenderer();
+        table.getColumnModel().getColumn(3).setCellRenderer(votes);
+        table.getColumnModel().getColumn(4).setCellRenderer(votes);
+        table.getColumnModel().getColumn(3).setPreferredWidth(40);
+        table.getColumnModel().getColumn(4).setPreferredWidth(40);
+        component = new JScrollPane(table);
     }
 
     /**
      * This will allow all the events on eventList to be displayed onto the
-     * timeline.
+     * timeline, and keeps the timeline following that list from then on.
+     *
+     * @param eventsToDisplay The event list to show.
      */
     public void displayEvents(EventList eventsToDisplay) {
-        // we'll work this together
+        model.setEventList(eventsToDisplay);
+    }
+
+    /**
+     * This will get the event list currently on the timeline.
+     *
+     * @return The event list being displayed, or null if there is none yet.
+     */
+    public EventList getEventList() {
+        return model.events;
     }
 
     /**
-     * This will get the specific getEventlists
+     * Fetches the Swing component to add to a window.
+     *
+     * @return The scrollable timeline.
      */
-    public void getEventList() {
-        // Dylan had an idea for this one, don't specifically remember our intentions
-        // behind this one.
+    public JComponent getComponent() {
+        return component;
+    }
+
+    /**
+     * Fetches the event on the row the user has selected.
+     *
+     * @return The selected event, or null if no row is selected.
+     */
+    public Event getSelectedEvent() {
+        int row = table.getSelectedRow();
+        return row < 0 ? null : model.eventAt(table.convertRowIndexToModel(row));
+    }
+
+    /**
+     * Serves table rows from an EventList. The rows are a copy of the list, built
+     * in full only when the list or a recurring series changes, and otherwise
+     * kept in step one change at a time: an added, removed or moved event is
+     * put in or taken out of its place by binary search, and Swing is told
+     * which rows were inserted or deleted. Painting and scrolling never walk the
+     * list or work out occurrences.
+     */
+    private static class EventTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+
+        private EventList events;
+        private ChangeCoalescer changes;
+        private final ArrayList<Event> rows = new ArrayList<Event>();
+        // The key each row was placed by, since an edit changes the event's own key before the move arrives.
+        private final IdentityHashMap<Event, EventKey> filed = new IdentityHashMap<Event, EventKey>();
+        private boolean stale;
+
+        void setEventList(EventList newEvents) {
+            if (changes != null) {
+                changes.close();
+            }
+            events = newEvents;
+            stale = true;
+            changes = new ChangeCoalescer(events, FRAME_MILLIS, SwingUtilities::invokeLater, this::apply);
+            fireTableDataChanged();
+        }
+
+        Event eventAt(int row) {
+            refresh();
+            return rows.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            refresh();
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column >= 3 ? Integer.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Event e = eventAt(row);
+            switch (column) {
+            case 0:
+                return e.getName();
+            case 1:
+                return e.getLocation();
+            case 2:
+                return e.getEventDateTime();
+            case 3:
+                return e.getUpvotes();
+            default:
+                return e.getDownvotes();
+            }
+        }
+
+        // Runs on the event dispatch thread, once per frame at most.
+        private void apply(List<EventChange> batch) {
+            if (stale) {
+                // Rebuilt from the list as it is when next painted, which already has these changes.
+                return;
+            }
+            for (EventChange change : batch) {
+                if (change.getKind() == EventChange.Kind.RECURRENCE_CHANGED) {
+                    stale = true;
+                    fireTableDataChanged();
+                    return;
+                }
+            }
+            int first = Integer.MAX_VALUE;
+            int last = -1;
+            for (EventChange change : batch) {
+                if (change.isStructural()) {
+                    place(change.getEvent());
+                }
+            }
+            for (EventChange change : batch) {
+                if (!change.isStructural()) {
+                    int row = rowOf(change.getEvent());
+                    if (row >= 0) {
+                        first = Math.min(first, row);
+                        last = Math.max(last, row);
+                    }
+                }
+            }
+            if (last >= 0) {
+                fireTableRowsUpdated(first, last);
+            }
+        }
+
+        /**
+         * Takes an added, removed or moved event out of its old row, if it has
+         * one, and puts it in the row for its key if the list still holds it. The
+         * list is asked rather than the kind of change trusted, since a batch can
+         * arrive after a rebuild that already saw it.
+         */
+        private void place(Event event) {
+            int row = rowOf(event);
+            if (row >= 0) {
+                rows.remove(row);
+                filed.remove(event);
+                fireTableRowsDeleted(row, row);
+            }
+            if (events.holds(event)) {
+                EventKey key = event.getKey();
+                int at = insertionPoint(key);
+                rows.add(at, event);
+                filed.put(event, key);
+                fireTableRowsInserted(at, at);
+            }
+        }
+
+        private void refresh() {
+            if (stale) {
+                rows.clear();
+                filed.clear();
+                rows.ensureCapacity(events.getSize());
+                for (Event e : events.withOccurrencesBefore(LocalDate.now().plusDays(OCCURRENCE_DAYS).atStartOfDay())) {
+                    rows.add(e);
+                    filed.put(e, e.getKey());
+                }
+                stale = false;
+            }
+        }
+
+        // Rows are in key order, so the row is found by binary search on the key it was placed by.
+        private int rowOf(Event event) {
+            refresh();
+            EventKey key = filed.get(event);
+            if (key == null) {
+                return -1;
+            }
+            for (int row = insertionPoint(key) - 1; row >= 0 && filed.get(rows.get(row)).equals(key); row--) {
+                if (rows.get(row) == event) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+
+        // The row after the last one placed at or before the key.
+        private int insertionPoint(EventKey key) {
+            int low = 0;
+            int high = rows.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (filed.get(rows.get(mid)).compareTo(key) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Shows upvotes in green and downvotes in red, as the old vote buttons did.
+     */
+    private static class VoteRenderer extends DefaultTableCellRenderer {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                boolean hasFocus, int row, int column) {
+            Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            if (!isSelected) {
+                c.setForeground(table.convertColumnIndexToModel(column) == 3 ? new Color(0, 140, 0) : Color.RED);
+            }
+            setHorizontalAlignment(RIGHT);
+            return c;
+        }
     }
-}
\ No newline at end of file
+}
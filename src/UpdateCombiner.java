@@ -0,0 +1,80 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * The lock of an index that every vote updates, such as Leaderboard, that
+ * keeps voters from queueing up on it.
+ *
+ * An update is queued, and applied by whichever thread holds the lock: the
+ * updating thread itself if the lock is free, or else the thread that has it,
+ * before it lets go. Readers and other writers take the lock as usual, and
+ * apply whatever is queued first, so they always see every update that came
+ * in before them. A voter therefore never waits for another thread, and many
+ * votes arriving at once are applied in one go by one thread.
+ *
+ * The lock is not meant to be taken again by a thread that holds it.
+ *
+ * @param <T> The type of update.
+ */
+final class UpdateCombiner<T> {
+    private final ReentrantLock lock;
+    private final ConcurrentLinkedQueue<T> queued;
+    private final Consumer<T> apply;
+
+    /**
+     * Creates a combiner.
+     *
+     * @param apply Applies one update, with the lock held.
+     */
+    UpdateCombiner(Consumer<T> apply) {
+        this.lock = new ReentrantLock();
+        this.queued = new ConcurrentLinkedQueue<T>();
+        this.apply = apply;
+    }
+
+    /**
+     * Queues an update, and applies the queue if no other thread holds the
+     * lock. Never waits.
+     *
+     * @param update The update to apply.
+     */
+    void offer(T update) {
+        queued.add(update);
+        drain();
+    }
+
+    /**
+     * Takes the lock, waiting if needed, and applies every queued update.
+     */
+    void lock() {
+        lock.lock();
+        applyQueued();
+    }
+
+    /**
+     * Lets go of the lock, first applying any updates queued while it was
+     * held, since their threads did not wait to apply them.
+     */
+    void unlock() {
+        lock.unlock();
+        drain();
+    }
+
+    private void drain() {
+        // Checked again after letting go, for an update queued just as the lock was released.
+        while (!queued.isEmpty() && lock.tryLock()) {
+            try {
+                applyQueued();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void applyQueued() {
+        for (T update; (update = queued.poll()) != null;) {
+            apply.accept(update);
+        }
+    }
+}
@@ -7,10 +7,12 @@
 public class User {
     private String userID;
     private String email;
-    private int hashedPassword;
+    private volatile String hashedPassword;
 
     /**
      * Creates a User object with a given input email, username, and password.
+     * The password is hashed with scrypt on the calling thread; UserDirectory
+     * does this on its own hashing threads instead.
      * 
      * @param inputEmail    The given email to be used.
      * @param inputUsername The given username to be used.
@@ -18,13 +20,41 @@ public class User {
      *                      security reasons.
      */
     public User(String inputEmail, String inputUsername, String inputPassword) {
+        this(inputEmail, inputUsername, inputPassword, new PasswordHasher());
+    }
+
+    /**
+     * Creates a User object whose password is hashed with a given hasher.
+     * 
+     * @param inputEmail    The given email to be used.
+     * @param inputUsername The given username to be used.
+     * @param inputPassword The given password to hash.
+     * @param hasher        The hasher to use.
+     */
+    public User(String inputEmail, String inputUsername, String inputPassword, PasswordHasher hasher) {
         email = inputEmail;
         userID = inputUsername;
+        hashedPassword = hasher.hash(inputPassword);
+    }
 
-        // need to find some hashing algo that we can use to input the password and
-        // avoid it being used as a plaintext, hashCode() is a placeholder for this
-        // prototype.
-        hashedPassword = inputPassword.hashCode();
+    private User(String inputEmail, String inputUsername) {
+        email = inputEmail;
+        userID = inputUsername;
+    }
+
+    /**
+     * Recreates a User object whose password has already been hashed, such as one
+     * loaded back from storage.
+     * 
+     * @param inputEmail     The email of the user.
+     * @param inputUsername  The username of the user.
+     * @param storedPassword The already hashed password.
+     * @return The user.
+     */
+    static User withStoredPassword(String inputEmail, String inputUsername, String storedPassword) {
+        User user = new User(inputEmail, inputUsername);
+        user.hashedPassword = storedPassword;
+        return user;
     }
 
     /**
@@ -48,12 +78,23 @@ public class User {
     /**
      * Fetches the hashed password associated with a user.
      *
-     * @return The hashed password associate with this user.
+     * @return The hashed password associate with this user, in the form
+     *         PasswordHasher stores it.
      */
-    public int getHashedPassword() {
+    public String getHashedPassword() {
         return hashedPassword;
     }
 
+    /**
+     * Checks whether a password is this user's password.
+     *
+     * @param password The password to check.
+     * @return Whether it matches the hashed password.
+     */
+    public boolean checkPassword(String password) {
+        return PasswordHasher.verify(password, hashedPassword);
+    }
+
     /**
      * Sets user email to a new email address
      *
@@ -70,7 +111,15 @@ public class User {
      *                    hashed.
      */
     public void setHashedPassword(String newPassword) {
-        this.hashedPassword = newPassword.hashCode();
-        // Note: hashCode used as placeholder for hashing algorithm
+        this.hashedPassword = new PasswordHasher().hash(newPassword);
+    }
+
+    /**
+     * Replaces the hashed password with one that has already been hashed.
+     *
+     * @param storedPassword The new hashed password.
+     */
+    void setStoredPassword(String storedPassword) {
+        this.hashedPassword = storedPassword;
     }
 }
\ No newline at end of file
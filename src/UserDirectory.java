@@ -0,0 +1,372 @@
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Registry of users, looked up by user ID or by email address.
+ *
+ * Both lookups are concurrent hash indexes, so they never block. Emails are
+ * indexed in a normalized form (trimmed and lower case), so "Me@Example.com "
+ * and "me@example.com" are the same address.
+ *
+ * Hashing a password with scrypt takes tens of milliseconds and 16 MiB, so it
+ * runs on a small pool of its own with a bounded queue. When the queue is full
+ * new hashing work is turned away straight away, with the returned future
+ * failing with a RejectedExecutionException, rather than piling up or taking
+ * over the caller's thread. That way a burst of logins cannot hold up votes and
+ * events. getMetrics() shows how busy the pool is.
+ */
+public class UserDirectory implements Closeable {
+    private final ConcurrentHashMap<String, User> byId;
+    private final ConcurrentHashMap<String, User> byEmail;
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor hashers;
+    private final String dummyHash;
+
+    private final LongAdder completed;
+    private final LongAdder rejected;
+    private final LongAdder hashNanos;
+    private final long createdNanos;
+
+    /**
+     * Creates an empty directory with the default hashing cost, using half the
+     * processors for hashing and queueing up to 64 hashes.
+     */
+    public UserDirectory() {
+        this(new PasswordHasher(), Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 64);
+    }
+
+    /**
+     * Creates an empty directory.
+     *
+     * @param hasher        The hasher for new passwords.
+     * @param threads       How many passwords may be hashed at once.
+     * @param queueCapacity How many hashes may wait for a thread before new ones
+     *                      are turned away.
+     */
+    public UserDirectory(PasswordHasher hasher, int threads, int queueCapacity) {
+        this.byId = new ConcurrentHashMap<String, User>();
+        this.byEmail = new ConcurrentHashMap<String, User>();
+        this.hasher = hasher;
+        this.completed = new LongAdder();
+        this.rejected = new LongAdder();
+        this.hashNanos = new LongAdder();
+        this.createdNanos = System.nanoTime();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.hashers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "UserDirectory-hasher-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        // Checked when a login names no user, so that case takes as long as a wrong password.
+        this.dummyHash = hasher.hash("");
+    }
+
+    /**
+     * Registers a new user. The password is hashed on the hashing pool.
+     *
+     * @param email    The user's email.
+     * @param userID   The user's ID.
+     * @param password The user's password.
+     * @return The new user once it is registered. Fails with an
+     *         IllegalArgumentException if the ID or email is taken, or a
+     *         RejectedExecutionException if the hashing pool is full.
+     */
+    public CompletableFuture<User> register(String email, String userID, String password) {
+        if (byId.containsKey(userID) || byEmail.containsKey(normalizeEmail(email))) {
+            return failed(new IllegalArgumentException("User ID or email already registered: " + userID));
+        }
+        return hash(() -> new User(email, userID, password, hasher)).thenApply(user -> {
+            if (!add(user)) {
+                throw new IllegalArgumentException("User ID or email already registered: " + userID);
+            }
+            return user;
+        });
+    }
+
+    /**
+     * Adds a user whose password is already hashed, such as one loaded from an
+     * EventStore.
+     *
+     * @param user The user to add.
+     * @return Whether it was added, which it is not if the ID or email is taken.
+     */
+    public boolean add(User user) {
+        if (byId.putIfAbsent(user.getUserID(), user) != null) {
+            return false;
+        }
+        if (byEmail.putIfAbsent(normalizeEmail(user.getEmail()), user) != null) {
+            byId.remove(user.getUserID(), user);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks a login on the hashing pool.
+     *
+     * @param login    The user's ID or email.
+     * @param password The password given.
+     * @return The user if the password is right, otherwise null. Fails with a
+     *         RejectedExecutionException if the hashing pool is full.
+     */
+    public CompletableFuture<User> authenticate(String login, String password) {
+        User found = byId.get(login);
+        if (found == null) {
+            found = findByEmail(login);
+        }
+        final User user = found;
+        return hash(() -> {
+            if (user == null) {
+                PasswordHasher.verify(password, dummyHash);
+                return null;
+            }
+            return user.checkPassword(password) ? user : null;
+        });
+    }
+
+    /**
+     * Changes a user's password, hashing it on the hashing pool.
+     *
+     * @param userID      The ID of the user.
+     * @param newPassword The new password.
+     * @return Whether there was such a user, once the new password is set. Fails
+     *         with a RejectedExecutionException if the hashing pool is full.
+     */
+    public CompletableFuture<Boolean> changePassword(String userID, String newPassword) {
+        User user = byId.get(userID);
+        if (user == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return hash(() -> {
+            user.setStoredPassword(hasher.hash(newPassword));
+            return true;
+        });
+    }
+
+    /**
+     * Changes a user's email, keeping the email index up to date. Users in a
+     * directory should have their email changed here rather than on the User.
+     *
+     * @param userID   The ID of the user.
+     * @param newEmail The new email.
+     * @return Whether it was changed, which it is not if there is no such user or
+     *         another user has that email.
+     */
+    public boolean changeEmail(String userID, String newEmail) {
+        User user = byId.get(userID);
+        if (user == null) {
+            return false;
+        }
+        synchronized (user) {
+            String oldKey = normalizeEmail(user.getEmail());
+            String newKey = normalizeEmail(newEmail);
+            if (!oldKey.equals(newKey)) {
+                if (byEmail.putIfAbsent(newKey, user) != null) {
+                    return false;
+                }
+                byEmail.remove(oldKey, user);
+            }
+            user.setEmail(newEmail);
+            return true;
+        }
+    }
+
+    /**
+     * Removes a user.
+     *
+     * @param userID The ID of the user.
+     * @return The removed user, or null if there was none.
+     */
+    public User remove(String userID) {
+        User user = byId.remove(userID);
+        if (user != null) {
+            synchronized (user) {
+                byEmail.remove(normalizeEmail(user.getEmail()), user);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Looks up a user by ID.
+     *
+     * @param userID The ID of the user.
+     * @return The user, or null if there is none.
+     */
+    public User getUser(String userID) {
+        return byId.get(userID);
+    }
+
+    /**
+     * Looks up a user by email, ignoring case and surrounding spaces.
+     *
+     * @param email The email of the user.
+     * @return The user, or null if there is none.
+     */
+    public User findByEmail(String email) {
+        return byEmail.get(normalizeEmail(email));
+    }
+
+    /**
+     * Fetches every user in the directory.
+     *
+     * @return A read-only view of the users.
+     */
+    public Collection<User> getUsers() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+    /**
+     * Fetches the number of users in the directory.
+     *
+     * @return The number of users.
+     */
+    public int getSize() {
+        return byId.size();
+    }
+
+    /**
+     * Fetches how busy the hashing pool is.
+     *
+     * @return The current metrics.
+     */
+    public Metrics getMetrics() {
+        return new Metrics(hashers.getQueue().size(), hashers.getActiveCount(), completed.sum(), rejected.sum(),
+                hashNanos.sum(), System.nanoTime() - createdNanos);
+    }
+
+    /**
+     * Stops the hashing pool. Hashes already queued are still run.
+     */
+    @Override
+    public void close() {
+        hashers.shutdown();
+    }
+
+    /**
+     * Puts an email in the form it is indexed by.
+     *
+     * @param email The email.
+     * @return The email, trimmed and in lower case.
+     */
+    static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private <T> CompletableFuture<T> hash(Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    return work.get();
+                } finally {
+                    hashNanos.add(System.nanoTime() - start);
+                    completed.increment();
+                }
+            }, hashers);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return failed(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable t) {
+        CompletableFuture<T> f = new CompletableFuture<T>();
+        f.completeExceptionally(t);
+        return f;
+    }
+
+    /**
+     * A snapshot of how busy the hashing pool is.
+     */
+    public static class Metrics {
+        private final int queueDepth;
+        private final int active;
+        private final long completed;
+        private final long rejected;
+        private final long hashNanos;
+        private final long uptimeNanos;
+
+        Metrics(int queueDepth, int active, long completed, long rejected, long hashNanos, long uptimeNanos) {
+            this.queueDepth = queueDepth;
+            this.active = active;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.hashNanos = hashNanos;
+            this.uptimeNanos = uptimeNanos;
+        }
+
+        /**
+         * Fetches how many hashes are waiting for a thread.
+         *
+         * @return The queue depth.
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        /**
+         * Fetches how many hashes are running.
+         *
+         * @return The number of busy hashing threads.
+         */
+        public int getActive() {
+            return active;
+        }
+
+        /**
+         * Fetches how many hashes have finished.
+         *
+         * @return The number of finished hashes.
+         */
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * Fetches how many hashes were turned away because the queue was full.
+         *
+         * @return The number of rejected hashes.
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Fetches the average time one hash took to run.
+         *
+         * @return Milliseconds per hash, or 0 if none have finished.
+         */
+        public double getAverageHashMillis() {
+            return completed == 0 ? 0 : hashNanos / 1e6 / completed;
+        }
+
+        /**
+         * Fetches how many hashes finished per second since the directory was
+         * created.
+         *
+         * @return Hashes per second.
+         */
+        public double getHashesPerSecond() {
+            return uptimeNanos == 0 ? 0 : completed * 1e9 / uptimeNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d queued, %d active, %d done, %d rejected, %.1f ms/hash, %.1f hashes/s",
+                    queueDepth, active, completed, rejected, getAverageHashMillis(), getHashesPerSecond());
+        }
+    }
+}
@@ -3,11 +3,16 @@
  * to vote on other users event proposals with an upvote or downvote. Users may
  * only vote once, and may change their vote if they desire.
  * 
+ * A Vote is a value handed to Event.addVote or made by Event.getVotes, not the
+ * vote the event keeps: the event stores its votes compactly and makes new
+ * Vote objects each time they are read. Changing a Vote therefore never
+ * changes an event; use Event.switchVote or Event.addVote for that.
+ * 
  * @author DCruz
  */
 public class Vote {
     private String authorID;
-    private boolean isUpvote;
+    private volatile boolean isUpvote;
 
     /**
      * Creates a vote object with a given userID and boolean.
@@ -30,9 +35,14 @@ public class Vote {
     }
 
     /**
-     * Switches the value of the vote to be the opposite.
+     * Switches the value of this Vote object to be the opposite. Votes are
+     * detached from the events they were read from, so this does not change
+     * any event.
+     * 
+     * @deprecated Use Event.switchVote to switch a user's vote on an event.
      */
-    public void switchValue() {
+    @Deprecated
+    public synchronized void switchValue() {
         isUpvote = !isUpvote;
     }
 
@@ -0,0 +1,35 @@
+/**
+ * Hears about changes to the votes on an Event, such as a vote being cast,
+ * switched or removed, and to the fields an Event is ordered and scheduled by.
+ */
+@FunctionalInterface
+public interface VoteListener {
+    /**
+     * Called after the votes on an event have changed.
+     * 
+     * @param changed The event whose votes changed.
+     */
+    void votesChanged(Event changed);
+
+    /**
+     * Called after one user's vote on an event has changed. Calls votesChanged
+     * unless overridden.
+     * 
+     * @param changed The event whose votes changed.
+     * @param userID  The user whose vote was cast, switched or removed.
+     */
+    default void voteChanged(Event changed, String userID) {
+        votesChanged(changed);
+    }
+
+    /**
+     * Called after an event's date-time, name, location or duration has been
+     * set. Does nothing unless overridden.
+     * 
+     * @param changed The event that was edited.
+     * @param oldKey  The key the event had before the edit, which is equal to its
+     *                current key if only the duration changed.
+     */
+    default void eventEdited(Event changed, EventKey oldKey) {
+    }
+}